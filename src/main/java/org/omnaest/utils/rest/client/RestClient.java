@@ -33,13 +33,21 @@
 */
 package org.omnaest.utils.rest.client;
 
+import java.io.InputStream;
 import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import org.omnaest.utils.ReflectionUtils;
 import org.omnaest.utils.cache.Cache;
@@ -96,6 +104,41 @@ public interface RestClient
      */
     public <T> ResponseHolder<T> requestGetAnd(String url, Class<T> type, Map<String, String> headers);
 
+    /**
+     * Requests a top level json array and returns its elements as lazy {@link Stream}, which parses the elements incrementally while they are
+     * consumed. If the response has the media type application/x-ndjson, every line is parsed as one element instead. The underlying response is
+     * closed together with the {@link Stream}, so use it within a try-with-resources block.
+     * 
+     * @param url
+     * @param elementType
+     * @param headers
+     * @return
+     */
+    public <T> Stream<T> requestGetAsStream(String url, Class<T> elementType, Map<String, String> headers);
+
+    /**
+     * Downloads the response body of a GET request directly into the given target file without holding it in memory. An existing file is
+     * overwritten.
+     * 
+     * @param url
+     * @param target
+     * @param headers
+     * @return {@link ResponseHolder} with the number of written bytes
+     */
+    public ResponseHolder<Long> requestDownload(String url, Path target, Map<String, String> headers);
+
+    /**
+     * Similar to {@link #requestDownload(String, Path, Map)} but downloads the body with the given number of concurrent byte range requests, if the
+     * server supports range requests. Interrupted ranges are resumed from their last written byte.
+     * 
+     * @param url
+     * @param target
+     * @param numberOfRanges
+     * @param headers
+     * @return {@link ResponseHolder} with the number of written bytes
+     */
+    public ResponseHolder<Long> requestDownload(String url, Path target, int numberOfRanges, Map<String, String> headers);
+
     /**
      * Sends a POST request
      * 
@@ -117,6 +160,18 @@ public interface RestClient
      */
     public <R, B> R requestPost(String url, B body, Class<R> resultType);
 
+    /**
+     * Sends a POST request with a newline delimited json body (application/x-ndjson), which contains one json object per element. The elements are
+     * serialized one by one into a chunked request body while it is sent, so the whole body is never held in memory.
+     * 
+     * @param url
+     * @param elements
+     * @param resultType
+     * @param headers
+     * @return
+     */
+    public <R, B> R requestPostAsNDJson(String url, Iterator<B> elements, Class<R> resultType, Map<String, String> headers);
+
     /**
      * Sends a PATCH request
      * 
@@ -128,6 +183,54 @@ public interface RestClient
      */
     public <R, B> R requestPatch(String url, B body, Class<R> resultType, Map<String, String> headers);
 
+    /**
+     * Executes {@link #requestGet(String, Class)} for all given urls with at maximum the given number of concurrent requests. Uses virtual threads if
+     * the runtime supports them, otherwise a bounded pool of platform threads.<br>
+     * <br>
+     * The returned {@link BulkResponse}s are in the same order as the given urls. A failing request does not abort the other requests, instead its
+     * {@link BulkResponse} holds the exception.
+     * 
+     * @param urls
+     * @param type
+     * @param maxConcurrency
+     * @return
+     */
+    public <T> List<BulkResponse<T>> requestGetAll(Collection<String> urls, Class<T> type, int maxConcurrency);
+
+    /**
+     * Non blocking counterpart of {@link #requestGet(String, Class, Map)}. The request is executed by a non blocking i/o engine, so no thread is
+     * occupied while waiting for the response.
+     * 
+     * @param url
+     * @param type
+     * @param headers
+     * @return
+     */
+    public <T> CompletableFuture<T> requestGetAsync(String url, Class<T> type, Map<String, String> headers);
+
+    /**
+     * Non blocking counterpart of {@link #requestGetAnd(String, Class, Map)}, which provides the status code and headers of the response
+     * 
+     * @see #requestGetAsync(String, Class, Map)
+     * @param url
+     * @param type
+     * @param headers
+     * @return
+     */
+    public <T> CompletableFuture<ResponseHolder<T>> requestGetAndAsync(String url, Class<T> type, Map<String, String> headers);
+
+    /**
+     * Non blocking counterpart of {@link #requestPost(String, Object, Class, Map)}
+     * 
+     * @see #requestGetAsync(String, Class, Map)
+     * @param url
+     * @param body
+     * @param resultType
+     * @param headers
+     * @return
+     */
+    public <R, B> CompletableFuture<R> requestPostAsync(String url, B body, Class<R> resultType, Map<String, String> headers);
+
     /**
      * @see FiddlerLocalhostProxy
      * @author omnaest
@@ -190,6 +293,44 @@ public interface RestClient
 
     RestClient withLocalCache(String name);
 
+    /**
+     * Returns a {@link RestClient} which caches the undecoded response bodies within a local folder. Cached responses are decoded on each read,
+     * so a cache hit costs one file read and one parse and the same entry can serve different result types.
+     * 
+     * @param name
+     * @return
+     */
+    public RestClient withLocalRawCache(String name);
+
+    /**
+     * Similar to {@link #withLocalCache(String)} but stores larger entries deflate compressed, which reduces the size of the cache folder
+     * and the amount of data written and read for each entry. The compressed entries are stored as binary files, as a json representation
+     * would encode them as base64 text.
+     * 
+     * @param name
+     * @return
+     */
+    public RestClient withLocalCompressedCache(String name);
+
+    /**
+     * Returns a {@link RestClient} which caches the undecoded response bodies within a bounded in memory cache in front of persistent memory
+     * mapped segment files within a local folder. The persistent part survives restarts and is reopened without reading its entries.
+     * 
+     * @param name
+     * @param maximumMemoryWeightInBytes
+     * @return
+     */
+    public RestClient withLocalTieredCache(String name, long maximumMemoryWeightInBytes);
+
+    /**
+     * Returns a {@link RestClient} using an in memory {@link Cache} which is bounded by the given maximum weight in bytes. The weight of an
+     * entry is estimated from its serialized size.
+     * 
+     * @param maximumWeightInBytes
+     * @return
+     */
+    public RestClient withInMemoryCache(long maximumWeightInBytes);
+
     public RestClient withRetry(int times, long duration, TimeUnit timeUnit);
 
     public RestClient withAcceptCharset(Charset charset);
@@ -203,6 +344,15 @@ public interface RestClient
 
     public RestClient withoutSSLHostnameVerification();
 
+    /**
+     * Defines the limits of the pooled connections of the shared http client, which is reused across all requests with the same configuration
+     * 
+     * @param maxConnectionsTotal
+     * @param maxConnectionsPerRoute
+     * @return
+     */
+    public RestClient withConnectionPool(int maxConnectionsTotal, int maxConnectionsPerRoute);
+
     public RestClient withAcceptMediaType(String mediaType);
 
     public RestClient withAcceptMediaType(MediaType mediaType);
@@ -215,6 +365,7 @@ public interface RestClient
     {
         APPLICATION_JSON("application/json"),
         APPLICATION_JSON_UTF8("application/json;charset=utf-8"),
+        APPLICATION_NDJSON("application/x-ndjson"),
         APPLICATION_XML("application/xml;charset=utf-8"),
         APPLICATION_XML_UTF8("application/xml"),
         APPLICATION_FORM_URL_ENCODED("application/x-www-form-urlencoded"),
@@ -277,10 +428,52 @@ public interface RestClient
 
         public <T> ResponseHolder<T> getAnd(Class<T> type);
 
+        public <T> CompletableFuture<T> getAsync(Class<T> type);
+
+        /**
+         * @see RestClient#requestGetAsStream(String, Class, Map)
+         * @param elementType
+         * @return
+         */
+        public <T> Stream<T> stream(Class<T> elementType);
+
         public RequestBuilderWithUrl withHeaders(Map<String, String> headers);
 
+        /**
+         * @see RestClient#requestDownload(String, Path, Map)
+         * @param target
+         * @return
+         */
+        public ResponseHolder<Long> downloadTo(Path target);
+
+        /**
+         * @see RestClient#requestDownload(String, Path, int, Map)
+         * @param target
+         * @param numberOfRanges
+         * @return
+         */
+        public ResponseHolder<Long> downloadTo(Path target, int numberOfRanges);
+
         public <R, B> R post(B body, Class<R> resultType);
 
+        public <R, B> CompletableFuture<R> postAsync(B body, Class<R> resultType);
+
+        /**
+         * @see RestClient#requestPostAsNDJson(String, Iterator, Class, Map)
+         * @param elements
+         * @param resultType
+         * @return
+         */
+        public <R, B> R postAsNDJson(Stream<B> elements, Class<R> resultType);
+
+        /**
+         * @see RestClient#requestPostAsNDJson(String, Iterator, Class, Map)
+         * @param elements
+         * @param resultType
+         * @return
+         */
+        public <R, B> R postAsNDJson(Iterator<B> elements, Class<R> resultType);
+
         public <R, B> R postForm(Consumer<FormBuilder> formBuilderConsumer, Class<R> resultType);
 
         public <R, B> R patch(B body, Class<R> resultType);
@@ -289,6 +482,31 @@ public interface RestClient
 
     public static interface ResponseHolder<T> extends Supplier<T>
     {
+        /**
+         * Returns the http status code of the response
+         * 
+         * @return
+         */
+        public int getStatusCode();
+
+        /**
+         * Returns the value of the response header with the given name, which is matched case insensitive
+         * 
+         * @param name
+         * @return
+         */
+        public Optional<String> getHeader(String name);
+
+        /**
+         * Returns the number of bytes of the response body the result has been decoded from, if it is known
+         * 
+         * @return
+         */
+        public default OptionalLong getBodySize()
+        {
+            return OptionalLong.empty();
+        }
+
         public ResponseHolder<T> handleStatusCode(int httpStatusCode, HttpStatusCodeHandler<T> statusCodeHandler);
 
         public <R> ResponseHolder<R> map(Function<T, R> mapper);
@@ -298,6 +516,29 @@ public interface RestClient
         public Optional<T> asOptional();
     }
 
+    /**
+     * Result of a single request of {@link RestClient#requestGetAll(Collection, Class, int)}
+     * 
+     * @author omnaest
+     * @param <T>
+     */
+    public static interface BulkResponse<T> extends Supplier<T>
+    {
+        public String getUrl();
+
+        /**
+         * Returns the result or throws the exception of the failed request
+         */
+        @Override
+        public T get();
+
+        public boolean isSuccessful();
+
+        public Optional<RuntimeException> getException();
+
+        public Optional<T> asOptional();
+    }
+
     public static interface HttpStatusCodeHandler<T> extends Function<ResponseHolder<T>, T>
     {
     }
@@ -330,6 +571,31 @@ public interface RestClient
 
             public PreparedMultipartUpload upload(String name, String fileName, byte[] data, Consumer<MultipartUploadResponse> responseHandler);
 
+            /**
+             * Uploads the given file as multipart, which streams the file content from disk instead of loading it into memory
+             * 
+             * @param name
+             * @param file
+             * @param responseHandler
+             * @return
+             */
+            public PreparedMultipartUpload upload(String name, Path file, Consumer<MultipartUploadResponse> responseHandler);
+
+            /**
+             * Uploads the content of the {@link InputStream}s of the given {@link Supplier} as multipart. The {@link Supplier} is called for every
+             * transmission of the body and the returned {@link InputStream} is closed afterwards.
+             * 
+             * @param name
+             * @param fileName
+             * @param data
+             * @param length
+             *            number of bytes provided by each {@link InputStream}
+             * @param responseHandler
+             * @return
+             */
+            public PreparedMultipartUpload upload(String name, String fileName, Supplier<InputStream> data, long length,
+                                                  Consumer<MultipartUploadResponse> responseHandler);
+
             public static interface MultipartUploadResponse
             {
                 public MultipartUploadResponse assertHttpStatusCode(int statusCode);
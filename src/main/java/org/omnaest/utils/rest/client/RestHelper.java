@@ -33,23 +33,60 @@
 */
 package org.omnaest.utils.rest.client;
 
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.Reader;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import javax.net.ssl.SSLContext;
 
 import org.apache.commons.lang.StringUtils;
+import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpHost;
 import org.apache.http.HttpRequest;
@@ -61,21 +98,42 @@ import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpDelete;
 import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpHead;
 import org.apache.http.client.methods.HttpPatch;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
 import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
 import org.apache.http.conn.ssl.NoopHostnameVerifier;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.FileEntity;
+import org.apache.http.entity.InputStreamEntity;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.BasicCookieStore;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.impl.cookie.BasicClientCookie;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.conn.NoopIOSessionStrategy;
+import org.apache.http.nio.conn.SchemeIOSessionStrategy;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
 import org.apache.http.ssl.SSLContextBuilder;
 import org.apache.http.util.EntityUtils;
 import org.omnaest.utils.exception.RuntimeIOException;
 import org.omnaest.utils.rest.client.RestClient.ResponseHolder;
+import org.omnaest.utils.rest.client.internal.entity.BodyWriterEntity;
+import org.omnaest.utils.rest.client.internal.holder.RawResponse;
 import org.omnaest.utils.rest.client.internal.holder.ResponseHolderImpl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -90,6 +148,15 @@ public class RestHelper
 {
     private static Logger LOG = LoggerFactory.getLogger(RestHelper.class);
 
+    private static final Map<HttpClientConfiguration, CloseableHttpClient>      SHARED_HTTP_CLIENTS       = new ConcurrentHashMap<>();
+    private static final Map<HttpClientConfiguration, CloseableHttpAsyncClient> SHARED_HTTP_ASYNC_CLIENTS = new ConcurrentHashMap<>();
+
+    private static final int             MAX_RANGE_DOWNLOAD_ATTEMPTS = 3;
+    private static final ExecutorService RANGE_DOWNLOAD_EXECUTOR     = createRangeDownloadExecutor();
+
+    private static final int                       TRANSFER_BUFFER_SIZE = 64 * 1024;
+    private static final BlockingQueue<ByteBuffer> TRANSFER_BUFFER_POOL = new ArrayBlockingQueue<>(32);
+
     /**
      * @see #getStatusCode()
      * @author Omnaest
@@ -137,14 +204,31 @@ public class RestHelper
         public void observe(HttpResponse response);
     }
 
+    /**
+     * Writes a request body directly into the request {@link OutputStream}. The {@link OutputStream} must not be closed by the {@link BodyWriter}.
+     * 
+     * @author omnaest
+     */
+    @FunctionalInterface
+    public static interface BodyWriter
+    {
+        public void writeTo(OutputStream outputStream) throws IOException;
+    }
+
     public static class RequestOptions
     {
+        public static final int DEFAULT_MAX_CONNECTIONS_TOTAL     = 200;
+        public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 20;
+
         private Proxy                  proxy                         = null;
         private Charset                acceptCharset                 = StandardCharsets.UTF_8;
         private String                 contentType                   = null;
         private boolean                ignoreSSLHostnameVerification = false;
         private List<ResponseListener> responseListeners             = new ArrayList<>();
         private boolean                disableRedirects              = false;
+        private int                    maxConnectionsTotal           = DEFAULT_MAX_CONNECTIONS_TOTAL;
+        private int                    maxConnectionsPerRoute        = DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
+        private Executor               decodeExecutor                = null;
 
         private CookieStore cookieStore = new BasicCookieStore();
 
@@ -244,6 +328,58 @@ public class RestHelper
             return this;
         }
 
+        public int getMaxConnectionsTotal()
+        {
+            return this.maxConnectionsTotal;
+        }
+
+        /**
+         * Sets the maximum number of pooled connections of the shared http client. Default is {@value #DEFAULT_MAX_CONNECTIONS_TOTAL}
+         * 
+         * @param maxConnectionsTotal
+         * @return
+         */
+        public RequestOptions setMaxConnectionsTotal(int maxConnectionsTotal)
+        {
+            this.maxConnectionsTotal = maxConnectionsTotal;
+            return this;
+        }
+
+        public int getMaxConnectionsPerRoute()
+        {
+            return this.maxConnectionsPerRoute;
+        }
+
+        /**
+         * Sets the maximum number of pooled connections per route of the shared http client. Default is {@value #DEFAULT_MAX_CONNECTIONS_PER_ROUTE}
+         * 
+         * @param maxConnectionsPerRoute
+         * @return
+         */
+        public RequestOptions setMaxConnectionsPerRoute(int maxConnectionsPerRoute)
+        {
+            this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+            return this;
+        }
+
+        public Executor getDecodeExecutor()
+        {
+            return this.decodeExecutor;
+        }
+
+        /**
+         * Sets the {@link Executor} which decodes the responses of non blocking requests, so the i/o threads of the shared http client are not
+         * blocked by the decoding of large responses. Default is the {@link ForkJoinPool#commonPool()}
+         * 
+         * @param decodeExecutor
+         * @return
+         */
+        public RequestOptions setDecodeExecutor(Executor decodeExecutor)
+        {
+            this.decodeExecutor = decodeExecutor;
+            return this;
+        }
+
     }
 
     public static class Proxy
@@ -346,6 +482,51 @@ public class RestHelper
         });
     }
 
+    /**
+     * Returns the undecoded body of the response together with its content type, which allows to decode the body later on
+     * 
+     * @param url
+     * @param queryParameters
+     * @param headers
+     * @param requestOptions
+     * @return
+     */
+    public static ResponseHolder<RawResponse> requestGetAsRawResponseAnd(String url, Map<String, String> queryParameters, Map<String, String> headers,
+                                                                         RequestOptions requestOptions)
+    {
+        return requestGetAnd(url, queryParameters, headers, requestOptions, RestHelper::toRawResponse);
+    }
+
+    /**
+     * Non blocking counterpart of {@link #requestGetAsRawResponseAnd(String, Map, Map, RequestOptions)}
+     * 
+     * @param url
+     * @param queryParameters
+     * @param headers
+     * @param requestOptions
+     * @return
+     */
+    public static CompletableFuture<ResponseHolder<RawResponse>> requestGetAsRawResponseAsync(String url, Map<String, String> queryParameters,
+                                                                                              Map<String, String> headers, RequestOptions requestOptions)
+    {
+        return requestGetAsync(url, queryParameters, headers, requestOptions, RestHelper::toRawResponse);
+    }
+
+    private static RawResponse toRawResponse(HttpEntity entity)
+    {
+        try
+        {
+            String contentType = Optional.ofNullable(entity.getContentType())
+                                         .map(Header::getValue)
+                                         .orElse(null);
+            return new RawResponse(contentType, EntityUtils.toByteArray(entity));
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeIOException(e);
+        }
+    }
+
     public static String requestGet(String url, Map<String, String> queryParameters, Map<String, String> headers, RequestOptions requestOptions)
     {
         return requestGetAsStringAnd(url, queryParameters, headers, requestOptions).get();
@@ -386,291 +567,1280 @@ public class RestHelper
             int responseHttpStatusCode = response.getStatusLine()
                                                  .getStatusCode();
 
-            return new ResponseHolderImpl<T>(result, responseHttpStatusCode);
+            return new ResponseHolderImpl<T>(result, responseHttpStatusCode, null, extractHeaders(response));
         });
     }
 
-    public static <T> T requestGet(String url, Map<String, String> queryParameters, Map<String, String> headers, RequestOptions options,
-                                   BiFunction<CloseableHttpResponse, RequestOptions, T> responseHandler)
+    /**
+     * Downloads the response body into the given target file. The body is streamed through a pooled direct {@link ByteBuffer} into a
+     * {@link FileChannel} and is never held on the heap as a whole. The target file is only written for successful responses.
+     * 
+     * @param url
+     * @param queryParameters
+     * @param headers
+     * @param requestOptions
+     * @param target
+     * @return {@link ResponseHolder} with the number of written bytes
+     */
+    public static ResponseHolder<Long> requestGetToFile(String url, Map<String, String> queryParameters, Map<String, String> headers,
+                                                        RequestOptions requestOptions, Path target)
     {
-        T retval = null;
-        try (CloseableHttpClient httpclient = createHttpClient(options))
+        return requestGet(url, queryParameters, headers, requestOptions, (response, options) ->
         {
-            String parameters = Optional.ofNullable(queryParameters)
-                                        .orElseGet(() -> Collections.emptyMap())
-                                        .entrySet()
-                                        .stream()
-                                        .map(entry -> entry.getKey() + "=" + encodeUrlParameter(entry.getValue()))
-                                        .collect(Collectors.joining("&"));
-
-            url = url + (StringUtils.isNotBlank(parameters) ? "?" + parameters : "");
+            applyResponseListeners(options, response);
 
-            HttpGet httpGet = new HttpGet(url);
-            applyHeaders(headers, httpGet);
-            applyOptions(options, httpGet);
-            try (CloseableHttpResponse response = httpclient.execute(httpGet))
+            int responseHttpStatusCode = response.getStatusLine()
+                                                 .getStatusCode();
+            HttpEntity entity = response.getEntity();
+            try
             {
-                retval = responseHandler.apply(response, options);
+                if ((responseHttpStatusCode < 200 || responseHttpStatusCode > 299) && responseHttpStatusCode != 302)
+                {
+                    String content = entity != null ? EntityUtils.toString(entity, StandardCharsets.UTF_8) : "";
+                    return new ResponseHolderImpl<Long>(null, responseHttpStatusCode, content, extractHeaders(response));
+                }
+
+                long writtenBytes = 0;
+                try (FileChannel fileChannel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                                StandardOpenOption.TRUNCATE_EXISTING))
+                {
+                    if (entity != null)
+                    {
+                        try (ReadableByteChannel sourceChannel = Channels.newChannel(entity.getContent()))
+                        {
+                            writtenBytes = transfer(sourceChannel, fileChannel);
+                        }
+                    }
+                }
+                return new ResponseHolderImpl<Long>(writtenBytes, responseHttpStatusCode, null, extractHeaders(response));
             }
-            catch (IOException | RuntimeIOException e)
+            catch (IOException e)
             {
-                LOG.debug("", e);
-                throw new RESTConnectException(e);
+                throw new RuntimeIOException(e);
             }
-        }
-        catch (IOException e)
-        {
-            LOG.debug("", e);
-            throw new RESTConnectException(e);
-        }
-        return retval;
+        });
     }
 
-    public static String requestPut(String url, String body)
+    /**
+     * Similar to {@link #requestGetToFile(String, Map, Map, RequestOptions, Path)} but downloads the body with the given number of concurrent range
+     * requests over pooled connections. Each range is written with positional writes into the pre sized target file. If a range transfer fails it is
+     * resumed from its last written byte, up to {@value #MAX_RANGE_DOWNLOAD_ATTEMPTS} attempts per range.<br>
+     * <br>
+     * The range requests carry the <code>ETag</code> or <code>Last-Modified</code> validator of the initial HEAD request as <code>If-Range</code>
+     * header, so a resource which changes during the download fails the download instead of being stitched together from different versions. If
+     * the download fails, the target file is deleted.<br>
+     * <br>
+     * Falls back to a single request, if the server does not announce "Accept-Ranges: bytes" and a content length for a HEAD request.
+     * 
+     * @param url
+     * @param headers
+     * @param options
+     * @param target
+     * @param numberOfRanges
+     * @return {@link ResponseHolder} with the number of written bytes
+     */
+    public static ResponseHolder<Long> requestGetToFileInRanges(String url, Map<String, String> headers, RequestOptions options, Path target,
+                                                                int numberOfRanges)
     {
-        RequestOptions options = new RequestOptions().setContentType("application/json");
-        return requestPut(url, body, options);
-    }
+        RangeResource resource = execute(new HttpHead(url), headers, options, response ->
+        {
+            int statusCode = response.getStatusLine()
+                                     .getStatusCode();
+            boolean acceptsRanges = Optional.ofNullable(response.getFirstHeader("Accept-Ranges"))
+                                            .map(Header::getValue)
+                                            .map(value -> "bytes".equalsIgnoreCase(value.trim()))
+                                            .orElse(false);
+            Header contentLengthHeader = response.getFirstHeader("Content-Length");
+            long contentLength = statusCode >= 200 && statusCode <= 299 && acceptsRanges && contentLengthHeader != null
+                    ? Long.parseLong(contentLengthHeader.getValue())
+                    : -1L;
+
+            // weak entity tags must not be used for If-Range
+            String validator = Optional.ofNullable(response.getFirstHeader("ETag"))
+                                       .map(Header::getValue)
+                                       .filter(eTag -> !eTag.startsWith("W/"))
+                                       .orElseGet(() -> Optional.ofNullable(response.getFirstHeader("Last-Modified"))
+                                                                .map(Header::getValue)
+                                                                .orElse(null));
+            return new RangeResource(contentLength, validator);
+        });
 
-    public static String requestPut(String url, String body, RequestOptions options)
-    {
         Map<String, String> queryParameters = Collections.emptyMap();
-        Map<String, String> headers = Collections.emptyMap();
-        return requestPut(url, queryParameters, headers, body, options);
-    }
-
-    public static String requestPut(String url, Map<String, String> queryParameters, Map<String, String> headers, String body, RequestOptions options)
-    {
-        String retval = null;
-        try (CloseableHttpClient httpclient = createHttpClient(options))
+        long contentLength = resource.getContentLength();
+        if (numberOfRanges <= 1 || contentLength <= 0)
         {
-            String parameters = Optional.ofNullable(queryParameters)
-                                        .orElseGet(() -> Collections.emptyMap())
-                                        .entrySet()
-                                        .stream()
-                                        .map(entry -> entry.getKey() + "=" + encodeUrlParameter(entry.getValue()))
-                                        .collect(Collectors.joining("&"));
-
-            url = url + (StringUtils.isNotBlank(parameters) ? "?" + parameters : "");
+            return requestGetToFile(url, queryParameters, headers, options, target);
+        }
 
-            HttpPut httpPut = new HttpPut(url);
-            httpPut.setEntity(new StringEntity(body, StandardCharsets.UTF_8));
-            applyHeaders(headers, httpPut);
-            applyOptions(options, httpPut);
-            try (CloseableHttpResponse response = httpclient.execute(httpPut))
+        List<Future<Long>> futures = new ArrayList<>();
+        boolean success = false;
+        try
+        {
+            try (RandomAccessFile file = new RandomAccessFile(target.toFile(), "rw"))
             {
-                HttpEntity entity = response.getEntity();
-
-                retval = entity != null
-                        ? EntityUtils.toString(entity,
-                                               options != null && options.getAcceptCharset() != null ? options.getAcceptCharset() : StandardCharsets.UTF_8)
-                        : "";
+                file.setLength(contentLength);
+                FileChannel fileChannel = file.getChannel();
 
-                applyResponseListeners(options, response);
-
-                int statusCode = response.getStatusLine()
-                                         .getStatusCode();
-                if ((statusCode < 200 || statusCode > 299) && (statusCode != 302))
+                long rangeSize = (contentLength + numberOfRanges - 1) / numberOfRanges;
+                for (long start = 0; start < contentLength; start += rangeSize)
                 {
-                    throw new RESTAccessExeption(statusCode, retval);
+                    long rangeStart = start;
+                    long rangeEnd = Math.min(contentLength, start + rangeSize) - 1;
+                    futures.add(RANGE_DOWNLOAD_EXECUTOR.submit(() -> downloadRange(url, headers, options, resource, fileChannel, rangeStart,
+                                                                                   rangeEnd)));
                 }
 
+                long writtenBytes = 0;
+                for (Future<Long> future : futures)
+                {
+                    writtenBytes += future.get();
+                }
+                success = true;
+                return new ResponseHolderImpl<Long>(writtenBytes, 200);
             }
-            catch (IOException e)
+            finally
             {
-                LOG.debug("", e);
-                throw new RESTConnectException(e);
+                if (!success)
+                {
+                    futures.forEach(future -> future.cancel(true));
+                    deleteQuietly(target);
+                }
             }
         }
         catch (IOException e)
         {
-            LOG.debug("", e);
-            throw new RESTConnectException(e);
+            throw new RuntimeIOException(e);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread()
+                  .interrupt();
+            throw new IllegalStateException("Interrupted while downloading ranges of " + url, e);
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof RuntimeException)
+            {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
         }
-        return retval;
-    }
-
-    public static String requestDelete(String url)
-    {
-        RequestOptions options = new RequestOptions();
-        return requestDelete(url, options);
     }
 
-    public static String requestDelete(String url, RequestOptions options)
+    /**
+     * Content length and validator of a resource which is downloaded in ranges
+     */
+    private static class RangeResource
     {
-        Map<String, String> queryParameters = Collections.emptyMap();
-        Map<String, String> headers = Collections.emptyMap();
-        return requestDelete(url, queryParameters, headers, options);
-    }
+        private final long   contentLength;
+        private final String validator;
 
-    public static String requestDelete(String url, Map<String, String> queryParameters, Map<String, String> headers, RequestOptions options)
-    {
-        String retval = null;
-        try (CloseableHttpClient httpclient = createHttpClient(options))
+        public RangeResource(long contentLength, String validator)
         {
-            String parameters = Optional.ofNullable(queryParameters)
-                                        .orElseGet(() -> Collections.emptyMap())
-                                        .entrySet()
-                                        .stream()
-                                        .map(entry -> entry.getKey() + "=" + encodeUrlParameter(entry.getValue()))
-                                        .collect(Collectors.joining("&"));
-
-            url = url + (StringUtils.isNotBlank(parameters) ? "?" + parameters : "");
+            super();
+            this.contentLength = contentLength;
+            this.validator = validator;
+        }
 
-            HttpDelete httpPut = new HttpDelete(url);
-            applyHeaders(headers, httpPut);
-            applyOptions(options, httpPut);
-            try (CloseableHttpResponse response = httpclient.execute(httpPut))
-            {
-                HttpEntity entity = response.getEntity();
+        public long getContentLength()
+        {
+            return this.contentLength;
+        }
 
-                retval = entity != null
-                        ? EntityUtils.toString(entity,
-                                               options != null && options.getAcceptCharset() != null ? options.getAcceptCharset() : StandardCharsets.UTF_8)
-                        : "";
+        public String getValidator()
+        {
+            return this.validator;
+        }
+    }
 
-                applyResponseListeners(options, response);
+    /**
+     * Counts the bytes which are read from the underlying {@link InputStream}
+     */
+    private static class CountingInputStream extends FilterInputStream
+    {
+        private long count = 0;
 
-                int statusCode = response.getStatusLine()
-                                         .getStatusCode();
-                if ((statusCode < 200 || statusCode > 299) && (statusCode != 302))
-                {
-                    throw new RESTAccessExeption(statusCode, retval);
-                }
+        public CountingInputStream(InputStream inputStream)
+        {
+            super(inputStream);
+        }
 
+        @Override
+        public int read() throws IOException
+        {
+            int value = super.read();
+            if (value >= 0)
+            {
+                this.count++;
             }
-            catch (IOException e)
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException
+        {
+            int readLength = super.read(buffer, offset, length);
+            if (readLength > 0)
             {
-                LOG.debug("", e);
-                throw new RESTConnectException(e);
+                this.count += readLength;
             }
+            return readLength;
         }
-        catch (IOException e)
+
+        @Override
+        public long skip(long length) throws IOException
         {
-            LOG.debug("", e);
-            throw new RESTConnectException(e);
+            long skippedLength = super.skip(length);
+            this.count += skippedLength;
+            return skippedLength;
         }
-        return retval;
-    }
 
-    private static void applyResponseListeners(RequestOptions options, CloseableHttpResponse response)
-    {
-        if (options != null && options.hasResponseListeners())
+        public long getCount()
         {
-            List<ResponseListener> responseListeners = options.getResponseListeners();
-            for (ResponseListener responseListener : responseListeners)
-            {
-                responseListener.observe(response);
-            }
+            return this.count;
         }
     }
 
-    private static CloseableHttpClient createHttpClient(RequestOptions options)
+    private static ExecutorService createRangeDownloadExecutor()
     {
-        CloseableHttpClient retval;
-        if (options != null && options.isIgnoreSSLHostnameVerification())
+        return Executors.newCachedThreadPool(runnable ->
         {
-            try
-            {
-                SSLContext sslContext = new SSLContextBuilder().loadTrustMaterial(null, (chain, authType) -> true)
-                                                               .build();
+            Thread thread = new Thread(runnable, "RestHelper-range-download");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
 
-                retval = HttpClients.custom()
-                                    .setDefaultCookieStore(options.getCookieStore())
-                                    .setSSLHostnameVerifier(NoopHostnameVerifier.INSTANCE)
-                                    .setSSLContext(sslContext)
-                                    .setSSLSocketFactory(new SSLConnectionSocketFactory(sslContext,
-                                                                                        new String[] { "SSLv2Hello", "SSLv3", "TLSv1", "TLSv1.1", "TLSv1.2" },
-                                                                                        null, NoopHostnameVerifier.INSTANCE))
-                                    .build();
-            }
-            catch (Exception e)
-            {
-                throw new IllegalStateException(e);
-            }
+    private static void deleteQuietly(Path file)
+    {
+        try
+        {
+            Files.deleteIfExists(file);
         }
-        else
+        catch (IOException e)
         {
-            retval = HttpClients.createDefault();
+            LOG.warn("Failed to delete incomplete download " + file, e);
         }
-        return retval;
     }
 
-    private static void applyOptions(RequestOptions options, HttpRequestBase httpRequest)
+    private static long downloadRange(String url, Map<String, String> headers, RequestOptions options, RangeResource resource, FileChannel fileChannel,
+                                      long start, long end)
     {
-        if (options != null)
+        AtomicLong position = new AtomicLong(start);
+        RuntimeException lastException = null;
+        for (int attempt = 1; position.get() <= end; attempt++)
         {
-            //
-            Builder builder = RequestConfig.custom();
-            if (options.hasProxy())
+            if (attempt > MAX_RANGE_DOWNLOAD_ATTEMPTS)
             {
-                builder.setProxy(new HttpHost(options.getProxy()
-                                                     .getHost(),
-                                              options.getProxy()
-                                                     .getPort()));
+                throw lastException != null ? lastException
+                        : new RuntimeIOException(new EOFException("Range download of " + url + " ended at byte " + position.get() + " instead of "
+                                + end + " after " + MAX_RANGE_DOWNLOAD_ATTEMPTS + " attempts"));
             }
-
-            if (options.isDisableRedirects())
+            if (Thread.currentThread()
+                      .isInterrupted())
             {
-                builder.setRedirectsEnabled(false);
+                throw new IllegalStateException("Interrupted while downloading range " + start + "-" + end + " of " + url);
             }
 
-            RequestConfig requestConfig = builder.build();
-            httpRequest.setConfig(requestConfig);
-
-            //
-            Charset acceptCharset = options.getAcceptCharset();
-            if (acceptCharset != null)
+            try
             {
-                httpRequest.setHeader("Accept-Charset", acceptCharset.name());
+                HttpGet httpGet = new HttpGet(url);
+                httpGet.setHeader("Range", "bytes=" + position.get() + "-" + end);
+                if (resource.getValidator() != null)
+                {
+                    httpGet.setHeader("If-Range", resource.getValidator());
+                }
+                execute(httpGet, headers, options, response ->
+                {
+                    int statusCode = response.getStatusLine()
+                                             .getStatusCode();
+                    if (statusCode != 206)
+                    {
+                        throw new RESTAccessExeption(statusCode, "Range request for bytes " + position.get() + "-" + end
+                                + " not answered with 206, the resource might have been changed");
+                    }
+                    try (ReadableByteChannel sourceChannel = Channels.newChannel(response.getEntity()
+                                                                                         .getContent()))
+                    {
+                        ByteBuffer buffer = acquireTransferBuffer();
+                        try
+                        {
+                            // never reads beyond the end of the range, which is written by another thread
+                            buffer.limit((int) Math.min(buffer.capacity(), end - position.get() + 1));
+                            while (sourceChannel.read(buffer) >= 0)
+                            {
+                                buffer.flip();
+                                while (buffer.hasRemaining())
+                                {
+                                    position.addAndGet(fileChannel.write(buffer, position.get()));
+                                }
+                                buffer.clear();
+                                if (position.get() > end)
+                                {
+                                    break;
+                                }
+                                buffer.limit((int) Math.min(buffer.capacity(), end - position.get() + 1));
+                            }
+                        }
+                        finally
+                        {
+                            releaseTransferBuffer(buffer);
+                        }
+                    }
+                    catch (IOException e)
+                    {
+                        throw new RuntimeIOException(e);
+                    }
+                    return null;
+                });
             }
-
-            //
-            String contentType = options.getContentType();
-            if (contentType != null)
+            catch (RESTConnectException | RuntimeIOException e)
             {
-                httpRequest.setHeader("Content-Type", contentType);
+                lastException = e;
+                LOG.debug("Range download of " + url + " failed at byte " + position.get() + " -> resume", e);
             }
         }
+        return end - start + 1;
     }
 
-    private static void applyHeaders(Map<String, String> headers, HttpRequest httpRequest)
+    private static long transfer(ReadableByteChannel sourceChannel, WritableByteChannel targetChannel) throws IOException
     {
-        if (headers != null)
+        long writtenBytes = 0;
+        ByteBuffer buffer = acquireTransferBuffer();
+        try
         {
-            for (String name : headers.keySet())
+            while (sourceChannel.read(buffer) >= 0)
             {
-                httpRequest.addHeader(name, headers.get(name));
+                buffer.flip();
+                while (buffer.hasRemaining())
+                {
+                    writtenBytes += targetChannel.write(buffer);
+                }
+                buffer.clear();
             }
         }
+        finally
+        {
+            releaseTransferBuffer(buffer);
+        }
+        return writtenBytes;
     }
 
-    public static String requestPost(String url, String body)
+    private static ByteBuffer acquireTransferBuffer()
     {
-        return requestPost(url, body, new RequestOptions().setContentType("application/json"));
+        ByteBuffer buffer = TRANSFER_BUFFER_POOL.poll();
+        if (buffer == null)
+        {
+            buffer = ByteBuffer.allocateDirect(TRANSFER_BUFFER_SIZE);
+        }
+        buffer.clear();
+        return buffer;
     }
 
-    public static String requestPost(String url, String body, RequestOptions options)
+    private static void releaseTransferBuffer(ByteBuffer buffer)
     {
-        Map<String, String> headers = Collections.emptyMap();
-        return requestPost(url, body, headers, options);
+        TRANSFER_BUFFER_POOL.offer(buffer);
     }
 
-    public static String requestPost(String url, String body, Map<String, String> headers, RequestOptions options)
+    /**
+     * Similar to {@link #requestGetAsStringAnd(String, Map, Map, RequestOptions)} but hands the response body as {@link Reader} to the given decoder,
+     * so the body is never materialized as a whole {@link String}. The decoder is only applied for successful responses, the body of failed
+     * responses is kept as content of the {@link RESTAccessExeption}.
+     * 
+     * @param url
+     * @param queryParameters
+     * @param headers
+     * @param requestOptions
+     * @param decoder
+     * @return
+     */
+    public static <T> ResponseHolder<T> requestGetAndDecode(String url, Map<String, String> queryParameters, Map<String, String> headers,
+                                                            RequestOptions requestOptions, Function<Reader, T> decoder)
     {
-        Map<String, String> queryParameters = Collections.emptyMap();
-        return requestPost(url, queryParameters, body, headers, options);
+        return requestGet(url, queryParameters, headers, requestOptions, (response, options) -> decodeResponse(response, options, decoder));
     }
 
-    public static String requestPost(String url, Map<String, String> queryParameters, String body, Map<String, String> headers, RequestOptions options)
+    /**
+     * Returns a lazy {@link Stream} of the elements which the given iterator factory reads from the response body {@link Reader}. The response stays
+     * open until the {@link Stream} is closed, so the returned {@link Stream} should be used within a try-with-resources block.<br>
+     * <br>
+     * A non successful response is read completely and raised as {@link RESTAccessExeption} before any element is returned.
+     * 
+     * @param url
+     * @param queryParameters
+     * @param headers
+     * @param options
+     * @param iteratorFactory
+     * @return
+     */
+    public static <T> Stream<T> requestGetAsStream(String url, Map<String, String> queryParameters, Map<String, String> headers, RequestOptions options,
+                                                   Function<Reader, Iterator<T>> iteratorFactory)
     {
-        HttpPost httpPost = new HttpPost(url);
-        httpPost.setEntity(new StringEntity(body, StandardCharsets.UTF_8));
-        return executeRequest(url, queryParameters, headers, options, httpPost);
+        return requestGetAsStream(url, queryParameters, headers, options, (reader, contentType) -> iteratorFactory.apply(reader));
     }
 
-    public static String requestPatch(String url, String body, Map<String, String> headers, RequestOptions options)
-    {
+    /**
+     * Similar to {@link #requestGetAsStream(String, Map, Map, RequestOptions, Function)} but provides the {@link ContentType} of the response to the
+     * iterator factory, which allows to select the element format based on the response media type.
+     * 
+     * @param url
+     * @param queryParameters
+     * @param headers
+     * @param options
+     * @param iteratorFactory
+     * @return
+     */
+    public static <T> Stream<T> requestGetAsStream(String url, Map<String, String> queryParameters, Map<String, String> headers, RequestOptions options,
+                                                   BiFunction<Reader, ContentType, Iterator<T>> iteratorFactory)
+    {
+        HttpGet httpGet = new HttpGet(url + createQueryString(queryParameters));
+        applyHeaders(headers, httpGet);
+        applyOptions(options, httpGet);
+
+        CloseableHttpResponse response;
+        try
+        {
+            response = getSharedHttpClient(options).execute(httpGet, createHttpContext(options));
+        }
+        catch (IOException e)
+        {
+            LOG.debug("", e);
+            throw new RESTConnectException(e);
+        }
+
+        try
+        {
+            applyResponseListeners(options, response);
+
+            int statusCode = response.getStatusLine()
+                                     .getStatusCode();
+            HttpEntity entity = response.getEntity();
+            Charset charset = Optional.ofNullable(entity)
+                                      .map(ContentType::get)
+                                      .map(ContentType::getCharset)
+                                      .orElse(options != null && options.getAcceptCharset() != null ? options.getAcceptCharset() : StandardCharsets.UTF_8);
+            if ((statusCode < 200 || statusCode > 299) && (statusCode != 302))
+            {
+                throw new RESTAccessExeption(statusCode, entity != null ? EntityUtils.toString(entity, charset) : "");
+            }
+            if (entity == null)
+            {
+                response.close();
+                return Stream.empty();
+            }
+
+            Reader reader = new InputStreamReader(entity.getContent(), charset);
+            Iterator<T> iterator = iteratorFactory.apply(reader, ContentType.get(entity));
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+                                .onClose(() ->
+                                {
+                                    try
+                                    {
+                                        response.close();
+                                    }
+                                    catch (IOException e)
+                                    {
+                                        throw new RuntimeIOException(e);
+                                    }
+                                });
+        }
+        catch (IOException e)
+        {
+            closeQuietly(response);
+            LOG.debug("", e);
+            throw new RESTConnectException(e);
+        }
+        catch (RuntimeException e)
+        {
+            closeQuietly(response);
+            throw e;
+        }
+    }
+
+    private static void closeQuietly(CloseableHttpResponse response)
+    {
+        try
+        {
+            response.close();
+        }
+        catch (IOException e)
+        {
+            LOG.debug("Failed to close response", e);
+        }
+    }
+
+    /**
+     * Non blocking counterpart of {@link #requestGetAndDecode(String, Map, Map, RequestOptions, Function)}
+     * 
+     * @param url
+     * @param queryParameters
+     * @param headers
+     * @param options
+     * @param decoder
+     * @return
+     */
+    public static <T> CompletableFuture<ResponseHolder<T>> requestGetAndDecodeAsync(String url, Map<String, String> queryParameters,
+                                                                                    Map<String, String> headers, RequestOptions options,
+                                                                                    Function<Reader, T> decoder)
+    {
+        HttpGet httpGet = new HttpGet(url + createQueryString(queryParameters));
+        applyHeaders(headers, httpGet);
+        applyOptions(options, httpGet);
+        return executeAsync(httpGet, options, response -> decodeResponse(response, options, decoder));
+    }
+
+    private static <T> ResponseHolder<T> decodeResponse(HttpResponse response, RequestOptions options, Function<Reader, T> decoder)
+    {
+        applyResponseListeners(options, response);
+
+        int responseHttpStatusCode = response.getStatusLine()
+                                             .getStatusCode();
+        HttpEntity entity = response.getEntity();
+        Charset charset = Optional.ofNullable(entity)
+                                  .map(ContentType::get)
+                                  .map(ContentType::getCharset)
+                                  .orElse(options != null && options.getAcceptCharset() != null ? options.getAcceptCharset() : StandardCharsets.UTF_8);
+        try
+        {
+            if ((responseHttpStatusCode >= 200 && responseHttpStatusCode <= 299) || responseHttpStatusCode == 302)
+            {
+                T result = null;
+                OptionalLong bodySize = OptionalLong.empty();
+                if (entity != null)
+                {
+                    CountingInputStream inputStream = new CountingInputStream(entity.getContent());
+                    try (Reader reader = new InputStreamReader(inputStream, charset))
+                    {
+                        result = decoder.apply(reader);
+                    }
+                    bodySize = OptionalLong.of(inputStream.getCount());
+                }
+                return new ResponseHolderImpl<T>(result, responseHttpStatusCode, null, extractHeaders(response), bodySize);
+            }
+            else
+            {
+                String content = entity != null ? EntityUtils.toString(entity, charset) : "";
+                return new ResponseHolderImpl<T>(null, responseHttpStatusCode, content, extractHeaders(response));
+            }
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeIOException(e);
+        }
+    }
+
+    public static <T> T requestGet(String url, Map<String, String> queryParameters, Map<String, String> headers, RequestOptions options,
+                                   BiFunction<CloseableHttpResponse, RequestOptions, T> responseHandler)
+    {
+        T retval = null;
+        CloseableHttpClient httpclient = getSharedHttpClient(options);
+
+        String parameters = Optional.ofNullable(queryParameters)
+                                    .orElseGet(() -> Collections.emptyMap())
+                                    .entrySet()
+                                    .stream()
+                                    .map(entry -> entry.getKey() + "=" + encodeUrlParameter(entry.getValue()))
+                                    .collect(Collectors.joining("&"));
+
+        url = url + (StringUtils.isNotBlank(parameters) ? "?" + parameters : "");
+
+        HttpGet httpGet = new HttpGet(url);
+        applyHeaders(headers, httpGet);
+        applyOptions(options, httpGet);
+        try (CloseableHttpResponse response = httpclient.execute(httpGet, createHttpContext(options)))
+        {
+            retval = responseHandler.apply(response, options);
+            EntityUtils.consumeQuietly(response.getEntity());
+        }
+        catch (IOException | RuntimeIOException e)
+        {
+            LOG.debug("", e);
+            throw new RESTConnectException(e);
+        }
+        return retval;
+    }
+
+    /**
+     * Non blocking counterpart of {@link #requestGetAsStringAnd(String, Map, Map, RequestOptions)}, which does not occupy a thread while the request
+     * is in flight.
+     * 
+     * @param url
+     * @param queryParameters
+     * @param headers
+     * @param requestOptions
+     * @return
+     */
+    public static CompletableFuture<ResponseHolder<String>> requestGetAsStringAsync(String url, Map<String, String> queryParameters,
+                                                                                    Map<String, String> headers, RequestOptions requestOptions)
+    {
+        return requestGetAsync(url, queryParameters, headers, requestOptions, entity ->
+        {
+            try
+            {
+                return EntityUtils.toString(entity, requestOptions != null && requestOptions.getAcceptCharset() != null ? requestOptions.getAcceptCharset()
+                        : StandardCharsets.UTF_8);
+            }
+            catch (IOException e)
+            {
+                throw new RuntimeIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Non blocking counterpart of {@link #requestGetAsByteArrayAnd(String, Map, Map, RequestOptions)}
+     * 
+     * @param url
+     * @param queryParameters
+     * @param headers
+     * @param requestOptions
+     * @return
+     */
+    public static CompletableFuture<ResponseHolder<byte[]>> requestGetAsByteArrayAsync(String url, Map<String, String> queryParameters,
+                                                                                       Map<String, String> headers, RequestOptions requestOptions)
+    {
+        return requestGetAsync(url, queryParameters, headers, requestOptions, entity ->
+        {
+            try
+            {
+                return EntityUtils.toByteArray(entity);
+            }
+            catch (IOException e)
+            {
+                throw new RuntimeIOException(e);
+            }
+        });
+    }
+
+    public static <T> CompletableFuture<ResponseHolder<T>> requestGetAsync(String url, Map<String, String> queryParameters, Map<String, String> headers,
+                                                                           RequestOptions options, Function<HttpEntity, T> bodyExtractFunction)
+    {
+        HttpGet httpGet = new HttpGet(url + createQueryString(queryParameters));
+        applyHeaders(headers, httpGet);
+        applyOptions(options, httpGet);
+        return executeAsync(httpGet, options, response ->
+        {
+            applyResponseListeners(options, response);
+
+            T result = Optional.ofNullable(response.getEntity())
+                               .map(bodyExtractFunction)
+                               .orElse(null);
+
+            int responseHttpStatusCode = response.getStatusLine()
+                                                 .getStatusCode();
+
+            return new ResponseHolderImpl<T>(result, responseHttpStatusCode, null, extractHeaders(response));
+        });
+    }
+
+    /**
+     * Non blocking counterpart of {@link #requestPost(String, Map, String, Map, RequestOptions)}
+     * 
+     * @param url
+     * @param queryParameters
+     * @param body
+     * @param headers
+     * @param options
+     * @return
+     */
+    public static CompletableFuture<String> requestPostAsync(String url, Map<String, String> queryParameters, String body, Map<String, String> headers,
+                                                             RequestOptions options)
+    {
+        HttpPost httpPost = new HttpPost(url + createQueryString(queryParameters));
+        httpPost.setEntity(new StringEntity(body, StandardCharsets.UTF_8));
+        applyHeaders(headers, httpPost);
+        applyOptions(options, httpPost);
+        return executeAsync(httpPost, options, response ->
+        {
+            HttpEntity entity = response.getEntity();
+
+            String retval;
+            try
+            {
+                retval = entity != null
+                        ? EntityUtils.toString(entity,
+                                               options != null && options.getAcceptCharset() != null ? options.getAcceptCharset() : StandardCharsets.UTF_8)
+                        : "";
+            }
+            catch (IOException e)
+            {
+                throw new RESTConnectException(e);
+            }
+
+            applyResponseListeners(options, response);
+
+            int statusCode = response.getStatusLine()
+                                     .getStatusCode();
+            if ((statusCode < 200 || statusCode > 299) && (statusCode != 302))
+            {
+                throw new RESTAccessExeption(statusCode, retval);
+            }
+            return retval;
+        });
+    }
+
+    /**
+     * Executes the given request with the shared non blocking http client and applies the response handler with the decode {@link Executor}
+     * of the {@link RequestOptions}, so the i/o threads are never blocked by the decoding. Cancelling the returned {@link CompletableFuture}
+     * aborts the request.
+     */
+    private static <T> CompletableFuture<T> executeAsync(HttpRequestBase httpRequest, RequestOptions options, Function<HttpResponse, T> responseHandler)
+    {
+        Executor decodeExecutor = options != null && options.getDecodeExecutor() != null ? options.getDecodeExecutor() : ForkJoinPool.commonPool();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<HttpResponse> future = getSharedHttpAsyncClient(options).execute(httpRequest, createHttpContext(options), new FutureCallback<HttpResponse>()
+        {
+            @Override
+            public void completed(HttpResponse response)
+            {
+                try
+                {
+                    decodeExecutor.execute(() ->
+                    {
+                        try
+                        {
+                            result.complete(responseHandler.apply(response));
+                        }
+                        catch (RuntimeException e)
+                        {
+                            result.completeExceptionally(e);
+                        }
+                    });
+                }
+                catch (RejectedExecutionException e)
+                {
+                    result.completeExceptionally(e);
+                }
+            }
+
+            @Override
+            public void failed(Exception e)
+            {
+                LOG.debug("", e);
+                result.completeExceptionally(new RESTConnectException(e));
+            }
+
+            @Override
+            public void cancelled()
+            {
+                result.cancel(false);
+            }
+        });
+        result.whenComplete((value, e) ->
+        {
+            if (result.isCancelled())
+            {
+                future.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Similar to {@link CompletableFuture#thenApply(Function)}, but cancelling the returned {@link CompletableFuture} cancels the given one
+     * as well, which e.g. aborts the underlying non blocking request
+     * 
+     * @param future
+     * @param function
+     * @return
+     */
+    public static <T, R> CompletableFuture<R> thenApplyCancellable(CompletableFuture<T> future, Function<? super T, ? extends R> function)
+    {
+        CompletableFuture<R> result = future.thenApply(function);
+        result.whenComplete((value, e) ->
+        {
+            if (result.isCancelled())
+            {
+                future.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    private static String createQueryString(Map<String, String> queryParameters)
+    {
+        String parameters = Optional.ofNullable(queryParameters)
+                                    .orElseGet(() -> Collections.emptyMap())
+                                    .entrySet()
+                                    .stream()
+                                    .map(entry -> entry.getKey() + "=" + encodeUrlParameter(entry.getValue()))
+                                    .collect(Collectors.joining("&"));
+        return StringUtils.isNotBlank(parameters) ? "?" + parameters : "";
+    }
+
+    public static String requestPut(String url, String body)
+    {
+        RequestOptions options = new RequestOptions().setContentType("application/json");
+        return requestPut(url, body, options);
+    }
+
+    public static String requestPut(String url, String body, RequestOptions options)
+    {
+        Map<String, String> queryParameters = Collections.emptyMap();
+        Map<String, String> headers = Collections.emptyMap();
+        return requestPut(url, queryParameters, headers, body, options);
+    }
+
+    public static String requestPut(String url, Map<String, String> queryParameters, Map<String, String> headers, String body, RequestOptions options)
+    {
+        String retval = null;
+        CloseableHttpClient httpclient = getSharedHttpClient(options);
+
+        String parameters = Optional.ofNullable(queryParameters)
+                                    .orElseGet(() -> Collections.emptyMap())
+                                    .entrySet()
+                                    .stream()
+                                    .map(entry -> entry.getKey() + "=" + encodeUrlParameter(entry.getValue()))
+                                    .collect(Collectors.joining("&"));
+
+        url = url + (StringUtils.isNotBlank(parameters) ? "?" + parameters : "");
+
+        HttpPut httpPut = new HttpPut(url);
+        httpPut.setEntity(new StringEntity(body, StandardCharsets.UTF_8));
+        applyHeaders(headers, httpPut);
+        applyOptions(options, httpPut);
+        try (CloseableHttpResponse response = httpclient.execute(httpPut, createHttpContext(options)))
+        {
+            HttpEntity entity = response.getEntity();
+
+            retval = entity != null
+                    ? EntityUtils.toString(entity,
+                                           options != null && options.getAcceptCharset() != null ? options.getAcceptCharset() : StandardCharsets.UTF_8)
+                    : "";
+
+            applyResponseListeners(options, response);
+
+            int statusCode = response.getStatusLine()
+                                     .getStatusCode();
+            if ((statusCode < 200 || statusCode > 299) && (statusCode != 302))
+            {
+                throw new RESTAccessExeption(statusCode, retval);
+            }
+
+        }
+        catch (IOException e)
+        {
+            LOG.debug("", e);
+            throw new RESTConnectException(e);
+        }
+        return retval;
+    }
+
+    public static String requestDelete(String url)
+    {
+        RequestOptions options = new RequestOptions();
+        return requestDelete(url, options);
+    }
+
+    public static String requestDelete(String url, RequestOptions options)
+    {
+        Map<String, String> queryParameters = Collections.emptyMap();
+        Map<String, String> headers = Collections.emptyMap();
+        return requestDelete(url, queryParameters, headers, options);
+    }
+
+    public static String requestDelete(String url, Map<String, String> queryParameters, Map<String, String> headers, RequestOptions options)
+    {
+        String retval = null;
+        CloseableHttpClient httpclient = getSharedHttpClient(options);
+
+        String parameters = Optional.ofNullable(queryParameters)
+                                    .orElseGet(() -> Collections.emptyMap())
+                                    .entrySet()
+                                    .stream()
+                                    .map(entry -> entry.getKey() + "=" + encodeUrlParameter(entry.getValue()))
+                                    .collect(Collectors.joining("&"));
+
+        url = url + (StringUtils.isNotBlank(parameters) ? "?" + parameters : "");
+
+        HttpDelete httpPut = new HttpDelete(url);
+        applyHeaders(headers, httpPut);
+        applyOptions(options, httpPut);
+        try (CloseableHttpResponse response = httpclient.execute(httpPut, createHttpContext(options)))
+        {
+            HttpEntity entity = response.getEntity();
+
+            retval = entity != null
+                    ? EntityUtils.toString(entity,
+                                           options != null && options.getAcceptCharset() != null ? options.getAcceptCharset() : StandardCharsets.UTF_8)
+                    : "";
+
+            applyResponseListeners(options, response);
+
+            int statusCode = response.getStatusLine()
+                                     .getStatusCode();
+            if ((statusCode < 200 || statusCode > 299) && (statusCode != 302))
+            {
+                throw new RESTAccessExeption(statusCode, retval);
+            }
+
+        }
+        catch (IOException e)
+        {
+            LOG.debug("", e);
+            throw new RESTConnectException(e);
+        }
+        return retval;
+    }
+
+    private static Map<String, String> extractHeaders(HttpResponse response)
+    {
+        Map<String, String> headers = new LinkedHashMap<>();
+        for (Header header : response.getAllHeaders())
+        {
+            headers.merge(header.getName(), header.getValue(), (value1, value2) -> value1 + ", " + value2);
+        }
+        return headers;
+    }
+
+    private static void applyResponseListeners(RequestOptions options, HttpResponse response)
+    {
+        if (options != null && options.hasResponseListeners())
+        {
+            List<ResponseListener> responseListeners = options.getResponseListeners();
+            for (ResponseListener responseListener : responseListeners)
+            {
+                responseListener.observe(response);
+            }
+        }
+    }
+
+    /**
+     * Returns a long living {@link CloseableHttpClient} backed by a {@link PoolingHttpClientConnectionManager}. One client is shared for all
+     * {@link RequestOptions} with the same ssl mode and connection pool limits. Proxy and {@link CookieStore} are applied per request, so they do not
+     * require a separate client.
+     * 
+     * @param options
+     * @return
+     */
+    private static CloseableHttpClient getSharedHttpClient(RequestOptions options)
+    {
+        HttpClientConfiguration configuration = new HttpClientConfiguration(options);
+        return SHARED_HTTP_CLIENTS.computeIfAbsent(configuration, RestHelper::createHttpClient);
+    }
+
+    /**
+     * Similar to {@link #getSharedHttpClient(RequestOptions)} but returns a started non blocking {@link CloseableHttpAsyncClient}
+     * 
+     * @param options
+     * @return
+     */
+    private static CloseableHttpAsyncClient getSharedHttpAsyncClient(RequestOptions options)
+    {
+        HttpClientConfiguration configuration = new HttpClientConfiguration(options);
+        return SHARED_HTTP_ASYNC_CLIENTS.computeIfAbsent(configuration, RestHelper::createHttpAsyncClient);
+    }
+
+    private static CloseableHttpAsyncClient createHttpAsyncClient(HttpClientConfiguration configuration)
+    {
+        try
+        {
+            SchemeIOSessionStrategy sslStrategy;
+            if (configuration.isIgnoreSSLHostnameVerification())
+            {
+                SSLContext sslContext = new SSLContextBuilder().loadTrustMaterial(null, (chain, authType) -> true)
+                                                               .build();
+                sslStrategy = new SSLIOSessionStrategy(sslContext, new String[] { "SSLv2Hello", "SSLv3", "TLSv1", "TLSv1.1", "TLSv1.2" }, null,
+                                                       NoopHostnameVerifier.INSTANCE);
+            }
+            else
+            {
+                sslStrategy = SSLIOSessionStrategy.getDefaultStrategy();
+            }
+            Registry<SchemeIOSessionStrategy> sessionStrategyRegistry = RegistryBuilder.<SchemeIOSessionStrategy>create()
+                                                                                       .register("http", NoopIOSessionStrategy.INSTANCE)
+                                                                                       .register("https", sslStrategy)
+                                                                                       .build();
+            PoolingNHttpClientConnectionManager connectionManager = new PoolingNHttpClientConnectionManager(new DefaultConnectingIOReactor(IOReactorConfig.DEFAULT),
+                                                                                                            sessionStrategyRegistry);
+            connectionManager.setMaxTotal(configuration.getMaxConnectionsTotal());
+            connectionManager.setDefaultMaxPerRoute(configuration.getMaxConnectionsPerRoute());
+
+            CloseableHttpAsyncClient httpAsyncClient = HttpAsyncClients.custom()
+                                                                       .setConnectionManager(connectionManager)
+                                                                       .build();
+            httpAsyncClient.start();
+            return httpAsyncClient;
+        }
+        catch (IOException e)
+        {
+            throw new RESTConnectException(e);
+        }
+        catch (Exception e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static HttpClientContext createHttpContext(RequestOptions options)
+    {
+        HttpClientContext context = HttpClientContext.create();
+        context.setCookieStore(options != null && options.getCookieStore() != null ? options.getCookieStore() : new BasicCookieStore());
+        return context;
+    }
+
+    /**
+     * Closes all shared {@link CloseableHttpClient}s, {@link CloseableHttpAsyncClient}s and their pooled connections. Further requests will create new clients.
+     */
+    public static void closeSharedHttpClients()
+    {
+        closeAll(SHARED_HTTP_CLIENTS);
+        closeAll(SHARED_HTTP_ASYNC_CLIENTS);
+    }
+
+    private static void closeAll(Map<HttpClientConfiguration, ? extends Closeable> httpClients)
+    {
+        for (HttpClientConfiguration configuration : new ArrayList<>(httpClients.keySet()))
+        {
+            Closeable httpClient = httpClients.remove(configuration);
+            if (httpClient != null)
+            {
+                try
+                {
+                    httpClient.close();
+                }
+                catch (IOException e)
+                {
+                    LOG.debug("Failed to close http client", e);
+                }
+            }
+        }
+    }
+
+    private static CloseableHttpClient createHttpClient(HttpClientConfiguration configuration)
+    {
+        PoolingHttpClientConnectionManager connectionManager;
+        if (configuration.isIgnoreSSLHostnameVerification())
+        {
+            try
+            {
+                SSLContext sslContext = new SSLContextBuilder().loadTrustMaterial(null, (chain, authType) -> true)
+                                                               .build();
+
+                SSLConnectionSocketFactory sslSocketFactory = new SSLConnectionSocketFactory(sslContext,
+                                                                                             new String[] { "SSLv2Hello", "SSLv3", "TLSv1", "TLSv1.1",
+                                                                                                     "TLSv1.2" },
+                                                                                             null, NoopHostnameVerifier.INSTANCE);
+                Registry<ConnectionSocketFactory> socketFactoryRegistry = RegistryBuilder.<ConnectionSocketFactory>create()
+                                                                                         .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                                                                                         .register("https", sslSocketFactory)
+                                                                                         .build();
+                connectionManager = new PoolingHttpClientConnectionManager(socketFactoryRegistry);
+            }
+            catch (Exception e)
+            {
+                throw new IllegalStateException(e);
+            }
+        }
+        else
+        {
+            connectionManager = new PoolingHttpClientConnectionManager();
+        }
+        connectionManager.setMaxTotal(configuration.getMaxConnectionsTotal());
+        connectionManager.setDefaultMaxPerRoute(configuration.getMaxConnectionsPerRoute());
+
+        return HttpClients.custom()
+                          .setConnectionManager(connectionManager)
+                          .build();
+    }
+
+    private static class HttpClientConfiguration
+    {
+        private final boolean ignoreSSLHostnameVerification;
+        private final int     maxConnectionsTotal;
+        private final int     maxConnectionsPerRoute;
+
+        public HttpClientConfiguration(RequestOptions options)
+        {
+            super();
+            this.ignoreSSLHostnameVerification = options != null && options.isIgnoreSSLHostnameVerification();
+            this.maxConnectionsTotal = options != null ? options.getMaxConnectionsTotal() : RequestOptions.DEFAULT_MAX_CONNECTIONS_TOTAL;
+            this.maxConnectionsPerRoute = options != null ? options.getMaxConnectionsPerRoute() : RequestOptions.DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
+        }
+
+        public boolean isIgnoreSSLHostnameVerification()
+        {
+            return this.ignoreSSLHostnameVerification;
+        }
+
+        public int getMaxConnectionsTotal()
+        {
+            return this.maxConnectionsTotal;
+        }
+
+        public int getMaxConnectionsPerRoute()
+        {
+            return this.maxConnectionsPerRoute;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(this.ignoreSSLHostnameVerification, this.maxConnectionsTotal, this.maxConnectionsPerRoute);
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (this == obj)
+            {
+                return true;
+            }
+            if (!(obj instanceof HttpClientConfiguration))
+            {
+                return false;
+            }
+            HttpClientConfiguration other = (HttpClientConfiguration) obj;
+            return this.ignoreSSLHostnameVerification == other.ignoreSSLHostnameVerification && this.maxConnectionsTotal == other.maxConnectionsTotal
+                    && this.maxConnectionsPerRoute == other.maxConnectionsPerRoute;
+        }
+
+    }
+
+    private static void applyOptions(RequestOptions options, HttpRequestBase httpRequest)
+    {
+        if (options != null)
+        {
+            //
+            Builder builder = RequestConfig.custom();
+            if (options.hasProxy())
+            {
+                builder.setProxy(new HttpHost(options.getProxy()
+                                                     .getHost(),
+                                              options.getProxy()
+                                                     .getPort()));
+            }
+
+            if (options.isDisableRedirects())
+            {
+                builder.setRedirectsEnabled(false);
+            }
+
+            RequestConfig requestConfig = builder.build();
+            httpRequest.setConfig(requestConfig);
+
+            //
+            Charset acceptCharset = options.getAcceptCharset();
+            if (acceptCharset != null)
+            {
+                httpRequest.setHeader("Accept-Charset", acceptCharset.name());
+            }
+
+            //
+            String contentType = options.getContentType();
+            if (contentType != null)
+            {
+                httpRequest.setHeader("Content-Type", contentType);
+            }
+        }
+    }
+
+    private static void applyHeaders(Map<String, String> headers, HttpRequest httpRequest)
+    {
+        if (headers != null)
+        {
+            for (String name : headers.keySet())
+            {
+                httpRequest.addHeader(name, headers.get(name));
+            }
+        }
+    }
+
+    public static String requestPost(String url, String body)
+    {
+        return requestPost(url, body, new RequestOptions().setContentType("application/json"));
+    }
+
+    public static String requestPost(String url, String body, RequestOptions options)
+    {
+        Map<String, String> headers = Collections.emptyMap();
+        return requestPost(url, body, headers, options);
+    }
+
+    public static String requestPost(String url, String body, Map<String, String> headers, RequestOptions options)
+    {
+        Map<String, String> queryParameters = Collections.emptyMap();
+        return requestPost(url, queryParameters, body, headers, options);
+    }
+
+    public static String requestPost(String url, Map<String, String> queryParameters, String body, Map<String, String> headers, RequestOptions options)
+    {
+        HttpPost httpPost = new HttpPost(url);
+        httpPost.setEntity(new StringEntity(body, StandardCharsets.UTF_8));
+        return executeRequest(url, queryParameters, headers, options, httpPost);
+    }
+
+    /**
+     * Similar to {@link #requestPost(String, Map, String, Map, RequestOptions)} but sends the given {@link HttpEntity} as body, which allows to stream
+     * the body instead of materializing it as {@link String}
+     * 
+     * @param url
+     * @param queryParameters
+     * @param entity
+     * @param headers
+     * @param options
+     * @return
+     */
+    public static String requestPost(String url, Map<String, String> queryParameters, HttpEntity entity, Map<String, String> headers,
+                                     RequestOptions options)
+    {
+        HttpPost httpPost = new HttpPost(url);
+        httpPost.setEntity(entity);
+        return executeRequest(url, queryParameters, headers, options, httpPost);
+    }
+
+    /**
+     * Sends a POST request whose body is written by the given {@link BodyWriter}. Bodies larger than
+     * {@link BodyWriterEntity#DEFAULT_BUFFER_THRESHOLD_IN_BYTES} are written directly into the request stream using chunked transfer
+     * encoding, smaller ones are sent with a <code>Content-Length</code>.
+     * 
+     * @param url
+     * @param queryParameters
+     * @param bodyWriter
+     * @param headers
+     * @param options
+     * @return
+     */
+    public static String requestPost(String url, Map<String, String> queryParameters, BodyWriter bodyWriter, Map<String, String> headers,
+                                     RequestOptions options)
+    {
+        return requestPost(url, queryParameters, createBodyWriterEntity(bodyWriter, options), headers, options);
+    }
+
+    /**
+     * Sends a POST request which streams the body from the given {@link InputStream} using chunked transfer encoding. The {@link InputStream} is
+     * closed afterwards.
+     * 
+     * @param url
+     * @param queryParameters
+     * @param body
+     * @param headers
+     * @param options
+     * @return
+     */
+    public static String requestPost(String url, Map<String, String> queryParameters, InputStream body, Map<String, String> headers,
+                                     RequestOptions options)
+    {
+        return requestPost(url, queryParameters, createInputStreamEntity(body, options), headers, options);
+    }
+
+    /**
+     * Sends a POST request which streams the body from the given file
+     * 
+     * @param url
+     * @param queryParameters
+     * @param body
+     * @param headers
+     * @param options
+     * @return
+     */
+    public static String requestPost(String url, Map<String, String> queryParameters, Path body, Map<String, String> headers, RequestOptions options)
+    {
+        return requestPost(url, queryParameters, createFileEntity(body, options), headers, options);
+    }
+
+    public static String requestPatch(String url, String body, Map<String, String> headers, RequestOptions options)
+    {
         Map<String, String> queryParameters = Collections.emptyMap();
         return requestPatch(url, queryParameters, body, headers, options);
     }
@@ -682,48 +1852,106 @@ public class RestHelper
         return executeRequest(url, queryParameters, headers, options, httpPatch);
     }
 
+    /**
+     * Similar to {@link #requestPatch(String, Map, String, Map, RequestOptions)} but sends the given {@link HttpEntity} as body
+     * 
+     * @param url
+     * @param queryParameters
+     * @param entity
+     * @param headers
+     * @param options
+     * @return
+     */
+    public static String requestPatch(String url, Map<String, String> queryParameters, HttpEntity entity, Map<String, String> headers,
+                                      RequestOptions options)
+    {
+        HttpEntityEnclosingRequestBase httpPatch = new HttpPatch(url);
+        httpPatch.setEntity(entity);
+        return executeRequest(url, queryParameters, headers, options, httpPatch);
+    }
+
+    /**
+     * @see #requestPost(String, Map, BodyWriter, Map, RequestOptions)
+     */
+    public static String requestPatch(String url, Map<String, String> queryParameters, BodyWriter bodyWriter, Map<String, String> headers,
+                                      RequestOptions options)
+    {
+        return requestPatch(url, queryParameters, createBodyWriterEntity(bodyWriter, options), headers, options);
+    }
+
+    /**
+     * @see #requestPost(String, Map, InputStream, Map, RequestOptions)
+     */
+    public static String requestPatch(String url, Map<String, String> queryParameters, InputStream body, Map<String, String> headers,
+                                      RequestOptions options)
+    {
+        return requestPatch(url, queryParameters, createInputStreamEntity(body, options), headers, options);
+    }
+
+    /**
+     * @see #requestPost(String, Map, Path, Map, RequestOptions)
+     */
+    public static String requestPatch(String url, Map<String, String> queryParameters, Path body, Map<String, String> headers, RequestOptions options)
+    {
+        return requestPatch(url, queryParameters, createFileEntity(body, options), headers, options);
+    }
+
+    private static HttpEntity createBodyWriterEntity(BodyWriter bodyWriter, RequestOptions options)
+    {
+        return new BodyWriterEntity(bodyWriter, options != null ? options.getContentType() : null);
+    }
+
+    private static HttpEntity createInputStreamEntity(InputStream body, RequestOptions options)
+    {
+        InputStreamEntity entity = new InputStreamEntity(body, -1);
+        entity.setChunked(true);
+        entity.setContentType(options != null ? options.getContentType() : null);
+        return entity;
+    }
+
+    private static HttpEntity createFileEntity(Path body, RequestOptions options)
+    {
+        FileEntity entity = new FileEntity(body.toFile());
+        entity.setContentType(options != null ? options.getContentType() : null);
+        return entity;
+    }
+
     private static String executeRequest(String url, Map<String, String> queryParameters, Map<String, String> headers, RequestOptions options,
                                          HttpEntityEnclosingRequestBase httpPatch)
     {
         String retval = null;
-        try (CloseableHttpClient httpclient = createHttpClient(options))
-        {
-            String parameters = Optional.ofNullable(queryParameters)
-                                        .orElseGet(() -> Collections.emptyMap())
-                                        .entrySet()
-                                        .stream()
-                                        .map(entry -> entry.getKey() + "=" + encodeUrlParameter(entry.getValue()))
-                                        .collect(Collectors.joining("&"));
+        CloseableHttpClient httpclient = getSharedHttpClient(options);
 
-            url = url + (StringUtils.isNotBlank(parameters) ? "?" + parameters : "");
+        String parameters = Optional.ofNullable(queryParameters)
+                                    .orElseGet(() -> Collections.emptyMap())
+                                    .entrySet()
+                                    .stream()
+                                    .map(entry -> entry.getKey() + "=" + encodeUrlParameter(entry.getValue()))
+                                    .collect(Collectors.joining("&"));
 
-            applyHeaders(headers, httpPatch);
-            applyOptions(options, httpPatch);
+        url = url + (StringUtils.isNotBlank(parameters) ? "?" + parameters : "");
 
-            try (CloseableHttpResponse response = httpclient.execute(httpPatch))
-            {
-                HttpEntity entity = response.getEntity();
+        applyHeaders(headers, httpPatch);
+        applyOptions(options, httpPatch);
 
-                retval = entity != null
-                        ? EntityUtils.toString(entity,
-                                               options != null && options.getAcceptCharset() != null ? options.getAcceptCharset() : StandardCharsets.UTF_8)
-                        : "";
+        try (CloseableHttpResponse response = httpclient.execute(httpPatch, createHttpContext(options)))
+        {
+            HttpEntity entity = response.getEntity();
 
-                applyResponseListeners(options, response);
+            retval = entity != null
+                    ? EntityUtils.toString(entity,
+                                           options != null && options.getAcceptCharset() != null ? options.getAcceptCharset() : StandardCharsets.UTF_8)
+                    : "";
 
-                int statusCode = response.getStatusLine()
-                                         .getStatusCode();
-                if ((statusCode < 200 || statusCode > 299) && (statusCode != 302))
-                {
-                    throw new RESTAccessExeption(statusCode, retval);
-                }
+            applyResponseListeners(options, response);
 
-            }
-            catch (IOException e)
+            int statusCode = response.getStatusLine()
+                                     .getStatusCode();
+            if ((statusCode < 200 || statusCode > 299) && (statusCode != 302))
             {
-                LOG.debug("", e);
-                throw new RESTConnectException(e);
+                throw new RESTAccessExeption(statusCode, retval);
             }
+
         }
         catch (IOException e)
         {
@@ -733,6 +1961,35 @@ public class RestHelper
         return retval;
     }
 
+    /**
+     * Executes the given request with the shared pooled http client and hands the response to the given response handler. The response entity is
+     * consumed afterwards, so the connection can be reused.
+     * 
+     * @param httpRequest
+     * @param headers
+     * @param options
+     * @param responseHandler
+     * @return
+     */
+    public static <T> T execute(HttpRequestBase httpRequest, Map<String, String> headers, RequestOptions options,
+                                Function<HttpResponse, T> responseHandler)
+    {
+        applyHeaders(headers, httpRequest);
+        applyOptions(options, httpRequest);
+        try (CloseableHttpResponse response = getSharedHttpClient(options).execute(httpRequest, createHttpContext(options)))
+        {
+            applyResponseListeners(options, response);
+            T retval = responseHandler.apply(response);
+            EntityUtils.consumeQuietly(response.getEntity());
+            return retval;
+        }
+        catch (IOException e)
+        {
+            LOG.debug("", e);
+            throw new RESTConnectException(e);
+        }
+    }
+
     public static FormBuilder newFormBuilder()
     {
         return new FormBuilder();
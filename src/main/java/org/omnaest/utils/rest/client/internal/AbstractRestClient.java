@@ -35,22 +35,32 @@ package org.omnaest.utils.rest.client.internal;
 
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+import org.omnaest.utils.MapUtils;
 import org.omnaest.utils.rest.client.RestClient;
 import org.omnaest.utils.rest.client.RestHelper;
 import org.omnaest.utils.rest.client.RestHelper.RequestOptions;
+import org.omnaest.utils.rest.client.internal.holder.RawResponse;
 
 /**
  * @see RestClient
  * @author Omnaest
  */
-public abstract class AbstractRestClient extends IntrinsicRestClient
+public abstract class AbstractRestClient extends IntrinsicRestClient implements RawResponseRestClient
 {
     protected Proxy  proxy                         = null;
     private Charset  acceptCharset                 = StandardCharsets.UTF_8;
     private boolean  ignoreSSLHostnameVerification = false;
     protected String acceptMediaType               = null;
     protected String contentMediaType              = null;
+    private int      maxConnectionsTotal           = RequestOptions.DEFAULT_MAX_CONNECTIONS_TOTAL;
+    private int      maxConnectionsPerRoute        = RequestOptions.DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
 
     public AbstractRestClient()
     {
@@ -78,11 +88,105 @@ public abstract class AbstractRestClient extends IntrinsicRestClient
         return this;
     }
 
+    @Override
+    public RestClient withConnectionPool(int maxConnectionsTotal, int maxConnectionsPerRoute)
+    {
+        this.maxConnectionsTotal = maxConnectionsTotal;
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+        return this;
+    }
+
+    @Override
+    public ResponseHolder<Long> requestDownload(String url, Path target, Map<String, String> headers)
+    {
+        headers = MapUtils.builder()
+                          .put("Accept", this.acceptMediaType)
+                          .putAll(headers)
+                          .build();
+        Map<String, String> queryParameters = Collections.emptyMap();
+        return RestHelper.requestGetToFile(url, queryParameters, headers, this.createRequestOptions(), target);
+    }
+
+    @Override
+    public ResponseHolder<Long> requestDownload(String url, Path target, int numberOfRanges, Map<String, String> headers)
+    {
+        headers = MapUtils.builder()
+                          .put("Accept", this.acceptMediaType)
+                          .putAll(headers)
+                          .build();
+        return RestHelper.requestGetToFileInRanges(url, headers, this.createRequestOptions(), target, numberOfRanges);
+    }
+
+    @Override
+    public <T> Stream<T> requestGetAsStream(String url, Class<T> elementType, Map<String, String> headers)
+    {
+        throw new UnsupportedOperationException(this.getClass()
+                                                    .getSimpleName()
+                + " requestGetAsStream");
+    }
+
+    @Override
+    public <R, B> R requestPostAsNDJson(String url, Iterator<B> elements, Class<R> resultType, Map<String, String> headers)
+    {
+        throw new UnsupportedOperationException(this.getClass()
+                                                    .getSimpleName()
+                + " requestPostAsNDJson");
+    }
+
+    @Override
+    public ResponseHolder<RawResponse> requestGetRawAnd(String url, Map<String, String> headers)
+    {
+        if (this.acceptMediaType != null)
+        {
+            headers = MapUtils.builder()
+                              .put("Accept", this.acceptMediaType)
+                              .putAll(headers)
+                              .build();
+        }
+        Map<String, String> queryParameters = Collections.emptyMap();
+        return RestHelper.requestGetAsRawResponseAnd(url, queryParameters, headers, this.createRequestOptions());
+    }
+
+    @Override
+    public CompletableFuture<ResponseHolder<RawResponse>> requestGetRawAndAsync(String url, Map<String, String> headers)
+    {
+        if (this.acceptMediaType != null)
+        {
+            headers = MapUtils.builder()
+                              .put("Accept", this.acceptMediaType)
+                              .putAll(headers)
+                              .build();
+        }
+        Map<String, String> queryParameters = Collections.emptyMap();
+        return RestHelper.requestGetAsRawResponseAsync(url, queryParameters, headers, this.createRequestOptions());
+    }
+
+    @Override
+    public <T> T decode(RawResponse rawResponse, Class<T> type)
+    {
+        throw new UnsupportedOperationException(this.getClass()
+                                                    .getSimpleName()
+                + " decode");
+    }
+
+    /**
+     * Returns the charset of the given {@link RawResponse} or the accept charset if the response does not define one
+     * 
+     * @param rawResponse
+     * @return
+     */
+    protected Charset determineCharset(RawResponse rawResponse)
+    {
+        return rawResponse.getCharset(this.acceptCharset != null ? this.acceptCharset : StandardCharsets.UTF_8);
+    }
+
     protected RequestOptions createRequestOptions()
     {
         return new RequestOptions().setAcceptCharset(this.acceptCharset)
                                    .setIgnoreSSLHostnameVerification(this.ignoreSSLHostnameVerification)
-                                   .setProxy(this.proxy != null ? new RestHelper.Proxy(this.proxy.getHost(), this.proxy.getPort()) : null);
+                                   .setProxy(this.proxy != null ? new RestHelper.Proxy(this.proxy.getHost(), this.proxy.getPort()) : null)
+                                   .setMaxConnectionsTotal(this.maxConnectionsTotal)
+                                   .setMaxConnectionsPerRoute(this.maxConnectionsPerRoute);
     }
 
     @Override
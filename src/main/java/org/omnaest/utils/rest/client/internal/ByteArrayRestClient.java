@@ -35,12 +35,14 @@ package org.omnaest.utils.rest.client.internal;
 
 import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import org.apache.commons.lang.ObjectUtils;
 import org.omnaest.utils.JSONHelper;
 import org.omnaest.utils.MapUtils;
 import org.omnaest.utils.rest.client.RestClient;
 import org.omnaest.utils.rest.client.RestHelper;
+import org.omnaest.utils.rest.client.internal.holder.RawResponse;
 
 /**
  * @see RestClient
@@ -91,6 +93,42 @@ public class ByteArrayRestClient extends AbstractRestClient
         return responseHolder.map(data -> (T) ObjectUtils.defaultIfNull(data, new byte[0]));
     }
 
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T> T decode(RawResponse rawResponse, Class<T> type)
+    {
+        if (!byte[].class.isAssignableFrom(type))
+        {
+            throw new IllegalArgumentException("Only byte array type allowed for this implementation");
+        }
+        return (T) rawResponse.getBody();
+    }
+
+    @Override
+    public <T> CompletableFuture<T> requestGetAsync(String url, Class<T> type, Map<String, String> headers)
+    {
+        return RestHelper.thenApplyCancellable(this.requestGetAndAsync(url, type, headers), ResponseHolder::get);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T> CompletableFuture<ResponseHolder<T>> requestGetAndAsync(String url, Class<T> type, Map<String, String> headers)
+    {
+        if (!byte[].class.isAssignableFrom(type))
+        {
+            throw new IllegalArgumentException("Only byte array type allowed for this implementation");
+        }
+
+        headers = MapUtils.builder()
+                          .put("Accept", this.acceptMediaType)
+                          .putAll(headers)
+                          .build();
+        Map<String, String> queryParameters = Collections.emptyMap();
+        CompletableFuture<ResponseHolder<byte[]>> future = RestHelper.requestGetAsByteArrayAsync(url, queryParameters, headers,
+                                                                                                 this.createRequestOptions());
+        return RestHelper.thenApplyCancellable(future, response -> response.map(data -> (T) ObjectUtils.defaultIfNull(data, new byte[0])));
+    }
+
     @Override
     public <R, B> R requestPost(String url, B body, Class<R> resultType, Map<String, String> headers)
     {
@@ -99,6 +137,14 @@ public class ByteArrayRestClient extends AbstractRestClient
                 + " requestPost");
     }
 
+    @Override
+    public <R, B> CompletableFuture<R> requestPostAsync(String url, B body, Class<R> resultType, Map<String, String> headers)
+    {
+        throw new UnsupportedOperationException(this.getClass()
+                                                    .getSimpleName()
+                + " requestPostAsync");
+    }
+
     @Override
     public <R, B> R requestPatch(String url, B body, Class<R> resultType, Map<String, String> headers)
     {
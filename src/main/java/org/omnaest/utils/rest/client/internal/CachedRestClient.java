@@ -34,16 +34,62 @@
 package org.omnaest.utils.rest.client.internal;
 
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 import org.omnaest.utils.CacheUtils;
 import org.omnaest.utils.JSONHelper;
 import org.omnaest.utils.cache.Cache;
 import org.omnaest.utils.rest.client.RestClient;
 import org.omnaest.utils.rest.client.RestHelper.RESTAccessExeption;
+import org.omnaest.utils.rest.client.internal.cache.BoundedInMemoryCache;
+import org.omnaest.utils.rest.client.internal.cache.CacheControl;
+import org.omnaest.utils.rest.client.internal.cache.CacheEntryMetadata;
+import org.omnaest.utils.rest.client.internal.cache.CacheKeyIndex;
+import org.omnaest.utils.rest.client.internal.cache.CacheKeyStrategy;
+import org.omnaest.utils.rest.client.internal.cache.CachePrewarmer;
+import org.omnaest.utils.rest.client.internal.cache.CacheStats;
+import org.omnaest.utils.rest.client.internal.cache.CacheStatsCounter;
+import org.omnaest.utils.rest.client.internal.cache.CacheStatsListener;
+import org.omnaest.utils.rest.client.internal.cache.CompressingCache;
+import org.omnaest.utils.rest.client.internal.cache.CompressionCodec;
+import org.omnaest.utils.rest.client.internal.cache.DefaultCacheKeyStrategy;
+import org.omnaest.utils.rest.client.internal.cache.DeflateCompressionCodec;
+import org.omnaest.utils.rest.client.internal.cache.LocalRawFolderCache;
+import org.omnaest.utils.rest.client.internal.cache.MeasurableCache;
+import org.omnaest.utils.rest.client.internal.cache.WeightAwareCache;
+import org.omnaest.utils.rest.client.internal.holder.RawResponse;
 import org.omnaest.utils.rest.client.internal.holder.ResponseHolderImpl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -57,160 +103,1438 @@ import org.slf4j.LoggerFactory;
  * calls
  *
  * @see #setCache(Cache)
+ * @see #withRevalidation(long, TimeUnit)
+ * @see #withDefaultTimeToLive(long, TimeUnit)
+ * @see #withMaxTimeToLive(long, TimeUnit)
+ * @see #withStaleWhileRevalidate(long, TimeUnit)
+ * @see #withStaleIfError(long, TimeUnit)
+ * @see #withRefreshAhead(double)
+ * @see #withNegativeCaching(long, TimeUnit)
+ * @see #withRawResponseCaching()
+ * @see #withCacheKeyHeaders(String...)
+ * @see #getCacheStats()
+ * @see #prewarm()
+ * @see #withPostCaching(String...)
+ * @see #withCompression()
+ * @see #invalidate(String)
  * @author Omnaest
  */
 public class CachedRestClient extends IntrinsicRestClient
 {
     private static final Logger LOG = LoggerFactory.getLogger(CachedRestClient.class);
 
-    private RestClient restClient;
-    private Cache      cache;
+    private static final String                             METADATA_KEY_SUFFIX = " #metadata";
+    private static final String                             VARY_KEY_SUFFIX     = " #vary";
+    private static final Function<String, Optional<String>> NO_HEADERS          = name -> Optional.empty();
+
+    public static final long DEFAULT_MAXIMUM_CACHE_WEIGHT_IN_BYTES = 64l * 1024 * 1024;
+
+    private static final int MAX_ACCESS_COUNTS = 10000;
+
+    private static final ThreadPoolExecutor REFRESH_EXECUTOR = createRefreshExecutor();
+
+    private RestClient       restClient;
+    private Cache            cache;
+    private Long             revalidationDelayInMillis    = null;
+    private Long             defaultTimeToLiveInMillis    = null;
+    private Long             maxTimeToLiveInMillis        = null;
+    private Long             staleWhileRevalidateInMillis = null;
+    private Long             staleIfErrorInMillis         = null;
+    private Double           refreshAheadFactor           = null;
+    private Long             negativeTimeToLiveInMillis   = null;
+    private Set<Integer>     negativeStatusCodes          = new HashSet<>(Arrays.asList(404, 410));
+    private int              negativeMaxEntries           = 10000;
+    private boolean          rawResponseCaching           = false;
+    private CacheKeyStrategy cacheKeyStrategy             = new DefaultCacheKeyStrategy();
+    private CompressionCodec compressionCodec             = null;
+    private int              compressionThresholdInBytes  = CompressingCache.DEFAULT_THRESHOLD_IN_BYTES;
+    private List<Pattern>    postCachingUrlPatterns       = Collections.emptyList();
+    private LongSupplier     clock                        = System::currentTimeMillis;
+
+    private final Map<String, CompletableFuture<?>> inFlightRequests      = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<?>> inFlightAsyncRequests = new ConcurrentHashMap<>();
+    private final Set<String>                       refreshingKeys        = ConcurrentHashMap.newKeySet();
+    private final Map<String, LongAdder>            accessCounts          = new ConcurrentHashMap<>();
+    private final Set<String>                       negativeKeys          = new LinkedHashSet<>();
+    private final CacheStatsCounter                 statsCounter          = new CacheStatsCounter();
+    private final List<CacheStatsListener>          statsListeners        = new CopyOnWriteArrayList<>(Arrays.asList(this.statsCounter));
+    private final CacheKeyIndex                     keyIndex              = new CacheKeyIndex();
+    private final AtomicBoolean                     keyIndexInitialized   = new AtomicBoolean();
 
     public CachedRestClient(RestClient restClient, Cache cache)
     {
         super();
         this.restClient = restClient;
         this.cache = cache;
+        this.registerEvictionListener(cache);
+    }
+
+    /**
+     * Bounded executor for background refreshes. If the queue is full further refreshes are rejected and dropped, as the affected entries
+     * are refreshed by a later access anyway.
+     * 
+     * @return
+     */
+    private static ThreadPoolExecutor createRefreshExecutor()
+    {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(4, 4, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(1000), runnable ->
+        {
+            Thread thread = new Thread(runnable, "CachedRestClient-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Uses a {@link BoundedInMemoryCache} with a maximum weight of {@value #DEFAULT_MAXIMUM_CACHE_WEIGHT_IN_BYTES} bytes as default cache
+     *
+     * @param restClient
+     */
+    public CachedRestClient(RestClient restClient)
+    {
+        this(restClient, new BoundedInMemoryCache(DEFAULT_MAXIMUM_CACHE_WEIGHT_IN_BYTES));
+    }
+
+    public CachedRestClient setCache(Cache cache)
+    {
+        if (cache != null)
+        {
+            Cache newCache = this.compressionCodec != null ? new CompressingCache(cache, this.compressionCodec, this.compressionThresholdInBytes)
+                    : cache;
+            Cache oldCache = this.cache;
+            CacheUtils.populateCacheContentToNewCache(oldCache, newCache);
+
+            this.cache = newCache;
+            this.registerEvictionListener(newCache);
+            this.keyIndexInitialized.set(false);
+        }
+        return this;
+    }
+
+    /**
+     * Cached responses which are older than the given duration are revalidated against the server. If the cached response provided an
+     * <code>ETag</code> or <code>Last-Modified</code> header, a conditional request with <code>If-None-Match</code> and
+     * <code>If-Modified-Since</code> is sent and a <code>304 Not Modified</code> answer refreshes the cached entry without downloading and
+     * deserializing the body again. Cached responses without validators are requested again.<br>
+     * <br>
+     * By default cached responses are never revalidated.
+     * 
+     * @param duration
+     * @param timeUnit
+     * @return
+     */
+    public CachedRestClient withRevalidation(long duration, TimeUnit timeUnit)
+    {
+        this.revalidationDelayInMillis = timeUnit.toMillis(duration);
+        return this;
+    }
+
+    /**
+     * Defines the time to live of cached responses which do not provide any freshness information via <code>Cache-Control</code> or
+     * <code>Expires</code> headers. Expired responses are revalidated or requested again.<br>
+     * <br>
+     * By default such responses never expire.
+     * 
+     * @param duration
+     * @param timeUnit
+     * @return
+     */
+    public CachedRestClient withDefaultTimeToLive(long duration, TimeUnit timeUnit)
+    {
+        this.defaultTimeToLiveInMillis = timeUnit.toMillis(duration);
+        return this;
+    }
+
+    /**
+     * Limits the time to live of any cached response, regardless of the freshness information provided by the server
+     * 
+     * @param duration
+     * @param timeUnit
+     * @return
+     */
+    public CachedRestClient withMaxTimeToLive(long duration, TimeUnit timeUnit)
+    {
+        this.maxTimeToLiveInMillis = timeUnit.toMillis(duration);
+        return this;
+    }
+
+    /**
+     * Stale cached responses are returned immediately, as long as they are not stale for longer than the given duration, and are refreshed
+     * asynchronously in the background. Responses which are stale for longer are loaded synchronously as before.
+     * 
+     * @see #withRevalidation(long, TimeUnit)
+     * @see #withDefaultTimeToLive(long, TimeUnit)
+     * @param duration
+     * @param timeUnit
+     * @return
+     */
+    public CachedRestClient withStaleWhileRevalidate(long duration, TimeUnit timeUnit)
+    {
+        this.staleWhileRevalidateInMillis = timeUnit.toMillis(duration);
+        return this;
+    }
+
+    /**
+     * If loading or refreshing a stale cached response fails, the stale response is returned instead of failing, as long as it is not stale
+     * for longer than the given duration.
+     * 
+     * @param duration
+     * @param timeUnit
+     * @return
+     */
+    public CachedRestClient withStaleIfError(long duration, TimeUnit timeUnit)
+    {
+        this.staleIfErrorInMillis = timeUnit.toMillis(duration);
+        return this;
+    }
+
+    /**
+     * Cached responses which are accessed frequently are refreshed in the background shortly before they become stale. A response is
+     * refreshed ahead if the remaining fraction of its lifetime drops below the given factor and it has been accessed often enough to expect
+     * at least one further access within another lifetime.
+     * 
+     * @param factor
+     *            fraction of the lifetime between 0.0 and 1.0, e.g. 0.2 to refresh within the last 20% of the lifetime
+     * @return
+     */
+    public CachedRestClient withRefreshAhead(double factor)
+    {
+        if (factor < 0.0 || factor > 1.0)
+        {
+            throw new IllegalArgumentException("Refresh ahead factor must be between 0.0 and 1.0 but was " + factor);
+        }
+        this.refreshAheadFactor = factor;
+        return this;
+    }
+
+    /**
+     * Enables the caching of negative responses for the given duration. By default the status codes <code>404</code> and <code>410</code> are
+     * cached as negative responses. A cached negative response is replayed with its status code and error body.
+     * 
+     * @see #withNegativeCachingStatusCodes(Integer...)
+     * @see #withNegativeCachingMaxEntries(int)
+     * @param duration
+     * @param timeUnit
+     * @return
+     */
+    public CachedRestClient withNegativeCaching(long duration, TimeUnit timeUnit)
+    {
+        this.negativeTimeToLiveInMillis = timeUnit.toMillis(duration);
+        return this;
+    }
+
+    /**
+     * Defines the http status codes which are cached as negative responses if negative caching is enabled
+     * 
+     * @see #withNegativeCaching(long, TimeUnit)
+     * @param statusCodes
+     * @return
+     */
+    public CachedRestClient withNegativeCachingStatusCodes(Integer... statusCodes)
+    {
+        this.negativeStatusCodes = new HashSet<>(Arrays.asList(statusCodes));
+        return this;
+    }
+
+    /**
+     * Limits the number of cached negative responses. If the limit is exceeded the oldest negative responses are removed first. Default is
+     * 10000.
+     * 
+     * @param maxEntries
+     * @return
+     */
+    public CachedRestClient withNegativeCachingMaxEntries(int maxEntries)
+    {
+        this.negativeMaxEntries = maxEntries;
+        return this;
+    }
+
+    /**
+     * Sets the clock which returns the current time in milliseconds. It determines when cached entries are stored, expire and get stale.
+     * Default is {@link System#currentTimeMillis()}.
+     * 
+     * @param clock
+     * @return
+     */
+    CachedRestClient withClock(LongSupplier clock)
+    {
+        this.clock = clock;
+        return this;
+    }
+
+    /**
+     * Caches the undecoded response bodies together with their status and validators instead of the decoded results. Cached responses are
+     * decoded on each read, so the same entry can serve different result types and the result type does not need to round trip through the
+     * {@link Cache}.<br>
+     * <br>
+     * Requires the underlying {@link RestClient} to be a {@link RawResponseRestClient}.
+     * 
+     * @see LocalRawFolderCache
+     * @return
+     */
+    public CachedRestClient withRawResponseCaching()
+    {
+        if (!(this.restClient instanceof RawResponseRestClient))
+        {
+            throw new IllegalStateException("Raw response caching is not supported by " + this.restClient.getClass()
+                                                                                                  .getSimpleName());
+        }
+        this.rawResponseCaching = true;
+        return this;
+    }
+
+    /**
+     * Defines the {@link CacheKeyStrategy} which generates the keys of cached responses. The default is a {@link DefaultCacheKeyStrategy}
+     * which only considers the headers {@link DefaultCacheKeyStrategy#DEFAULT_HEADER_NAMES} and the headers listed in the <code>Vary</code>
+     * header of a response.
+     * 
+     * @see #withCacheKeyHeaders(String...)
+     * @param cacheKeyStrategy
+     * @return
+     */
+    public CachedRestClient withCacheKeyStrategy(CacheKeyStrategy cacheKeyStrategy)
+    {
+        this.cacheKeyStrategy = cacheKeyStrategy;
+        return this;
+    }
+
+    /**
+     * Defines the request headers which are part of the key of a cached response in addition to the headers listed in the <code>Vary</code>
+     * header of a response. Headers which select a user specific response have to be listed here if the server does not name them within the
+     * <code>Vary</code> header, apart from <code>Authorization</code> and <code>Cookie</code>, which are always part of the key.
+     * 
+     * @see DefaultCacheKeyStrategy
+     * @param headerNames
+     * @return
+     */
+    public CachedRestClient withCacheKeyHeaders(String... headerNames)
+    {
+        return this.withCacheKeyStrategy(new DefaultCacheKeyStrategy(headerNames));
+    }
+
+    /**
+     * Enables the caching of POST requests to urls which match any of the given regular expressions. This should only be used for
+     * idempotent requests like search queries. The key of a cached response includes a hash of the serialized request body.<br>
+     * <br>
+     * Cached POST responses are handled like GET responses regarding time to live, negative caching and concurrent requests. As POST
+     * responses do not expose their headers, they are neither revalidated nor do they respect <code>Cache-Control</code> headers. Their keys
+     * include the <code>Vary</code> headers which are known from GET responses of the same url.
+     * 
+     * @param urlPatterns
+     *            regular expressions which have to match the whole url
+     * @return
+     */
+    public CachedRestClient withPostCaching(String... urlPatterns)
+    {
+        List<Pattern> patterns = new ArrayList<>(this.postCachingUrlPatterns);
+        for (String urlPattern : urlPatterns)
+        {
+            patterns.add(Pattern.compile(urlPattern));
+        }
+        this.postCachingUrlPatterns = patterns;
+        return this;
+    }
+
+    /**
+     * Stores the cached entries in compressed form by wrapping the current {@link Cache} and any {@link Cache} given later to
+     * {@link #setCache(Cache)} into a {@link CompressingCache}. Entries below the given threshold are stored uncompressed. The achieved
+     * compression ratio is available from {@link #getCacheStats()}.
+     * 
+     * @param codec
+     * @param thresholdInBytes
+     * @return
+     */
+    public CachedRestClient withCompression(CompressionCodec codec, int thresholdInBytes)
+    {
+        this.compressionCodec = codec;
+        this.compressionThresholdInBytes = thresholdInBytes;
+
+        // the eviction listener of the underlying cache is already registered
+        this.cache = new CompressingCache(this.cache, codec, thresholdInBytes);
+        return this;
+    }
+
+    /**
+     * Similar to {@link #withCompression(CompressionCodec, int)} using a {@link DeflateCompressionCodec} and a threshold of
+     * {@value CompressingCache#DEFAULT_THRESHOLD_IN_BYTES} bytes
+     * 
+     * @return
+     */
+    public CachedRestClient withCompression()
+    {
+        return this.withCompression(new DeflateCompressionCodec(), CompressingCache.DEFAULT_THRESHOLD_IN_BYTES);
+    }
+
+    /**
+     * Adds a {@link CacheStatsListener} which is notified about hits, misses, loads and evictions
+     * 
+     * @see #getCacheStats()
+     * @param listener
+     * @return
+     */
+    public CachedRestClient withCacheStatsListener(CacheStatsListener listener)
+    {
+        this.statsListeners.add(listener);
+        return this;
+    }
+
+    /**
+     * Returns a snapshot of the statistics of this {@link CachedRestClient}. Entry count and estimated bytes are only available if the
+     * underlying {@link Cache} is a {@link MeasurableCache}.
+     * 
+     * @return
+     */
+    public CacheStats getCacheStats()
+    {
+        Cache cache = this.cache;
+        long entryCount = cache instanceof MeasurableCache ? ((MeasurableCache) cache).size() : -1;
+        long estimatedBytes = cache instanceof MeasurableCache ? ((MeasurableCache) cache).getWeight() : -1;
+        double compressionRatio = cache instanceof CompressingCache ? ((CompressingCache) cache).getCompressionRatio() : 1.0;
+        return this.statsCounter.snapshot(entryCount, estimatedBytes, compressionRatio);
+    }
+
+    /**
+     * Removes all cached responses whose url starts with the given prefix, e.g. after a write to the upstream service. The prefix is
+     * normalized by the {@link CacheKeyStrategy} like a requested url. The cached keys are held in a sorted {@link CacheKeyIndex}, so the
+     * effort is proportional to the number of affected responses and not to the size of the cache.<br>
+     * <br>
+     * Responses which are loaded concurrently to the invalidation might still be stored afterwards.
+     * 
+     * @see #invalidateMatching(String)
+     * @param urlPrefix
+     * @return number of invalidated responses
+     */
+    public int invalidate(String urlPrefix)
+    {
+        String keyPrefix = this.cacheKeyStrategy.generateUrlKey(urlPrefix);
+        return this.invalidateKeys(this.determineKeyIndex()
+                                       .getKeysWithPrefix(keyPrefix));
+    }
+
+    /**
+     * Similar to {@link #invalidate(String)} but removes all cached responses whose normalized url matches the given regular expression. In
+     * contrast to {@link #invalidate(String)} this requires a scan over all cached keys.
+     * 
+     * @param urlPattern
+     *            regular expression which has to match the whole normalized url
+     * @return number of invalidated responses
+     */
+    public int invalidateMatching(String urlPattern)
+    {
+        Pattern pattern = Pattern.compile(urlPattern);
+        return this.invalidateKeys(this.determineKeyIndex()
+                                       .getKeysMatching(key -> pattern.matcher(extractUrlKey(key))
+                                                                      .matches()));
+    }
+
+    /**
+     * Returns a {@link CachePrewarmer} which loads a given set of urls into the cache of this {@link CachedRestClient} with a limited
+     * concurrency, e.g. before traffic is admitted after a deployment.
+     * 
+     * @return
+     */
+    public CachePrewarmer prewarm()
+    {
+        return new CachePrewarmer(this);
+    }
+
+    private void registerEvictionListener(Cache cache)
+    {
+        if (cache instanceof MeasurableCache)
+        {
+            ((MeasurableCache) cache).addEvictionListener(key ->
+            {
+                if (!key.endsWith(METADATA_KEY_SUFFIX) && !key.endsWith(VARY_KEY_SUFFIX))
+                {
+                    this.keyIndex.remove(key);
+                    this.accessCounts.remove(key);
+                    this.notifyStatsListeners(listener -> listener.onEviction(key));
+                }
+            });
+        }
+    }
+
+    /**
+     * Returns the {@link CacheKeyIndex}, which is populated with the keys already contained in the {@link Cache} on first use, as e.g. a
+     * local folder cache can contain responses from former runs
+     */
+    private CacheKeyIndex determineKeyIndex()
+    {
+        if (!this.keyIndexInitialized.get())
+        {
+            synchronized (this.keyIndex)
+            {
+                if (!this.keyIndexInitialized.get())
+                {
+                    for (String key : this.cache.keySet())
+                    {
+                        if (key.endsWith(METADATA_KEY_SUFFIX))
+                        {
+                            this.keyIndex.add(key.substring(0, key.length() - METADATA_KEY_SUFFIX.length()));
+                        }
+                        else if (!key.endsWith(VARY_KEY_SUFFIX))
+                        {
+                            this.keyIndex.add(key);
+                        }
+                    }
+                    this.keyIndexInitialized.set(true);
+                }
+            }
+        }
+        return this.keyIndex;
+    }
+
+    private int invalidateKeys(List<String> keys)
+    {
+        for (String key : keys)
+        {
+            this.removeFromCache(key);
+            synchronized (this.negativeKeys)
+            {
+                this.negativeKeys.remove(key);
+            }
+        }
+        LOG.debug("Invalidated " + keys.size() + " cached responses");
+        return keys.size();
+    }
+
+    /**
+     * Returns the part of the given key which has been generated by {@link CacheKeyStrategy#generateUrlKey(String)}
+     */
+    private static String extractUrlKey(String key)
+    {
+        int index = key.indexOf(" #");
+        return index >= 0 ? key.substring(0, index) : key;
+    }
+
+    private void notifyStatsListeners(Consumer<CacheStatsListener> notification)
+    {
+        for (CacheStatsListener listener : this.statsListeners)
+        {
+            try
+            {
+                notification.accept(listener);
+            }
+            catch (RuntimeException e)
+            {
+                LOG.warn("Cache stats listener failed", e);
+            }
+        }
+    }
+
+    @Override
+    public <T> T requestGet(String url, Class<T> type, Map<String, String> headers)
+    {
+        ResponseHolder<T> responseHolder = this.requestGetAnd(url, type, headers);
+        int statusCode = responseHolder.getStatusCode();
+        if (statusCode == 400 || statusCode == 404)
+        {
+            return null;
+        }
+        else
+        {
+            return responseHolder.get();
+        }
+    }
+
+    @Override
+    public <T> ResponseHolder<T> requestGetAnd(String url, Class<T> type, Map<String, String> headers)
+    {
+        LOG.trace("Request to url: " + url);
+
+        String key = this.generateCacheKey(url, headers);
+        return this.requestCachedAnd(key, type, () -> this.readCachedValue(key, type), () -> this.loadResponse(key, url, type, headers));
+    }
+
+    /**
+     * Answers a request from the cache or executes the given loader, which loads and stores the response, at most once at a time per key
+     * and type
+     */
+    private <T> ResponseHolder<T> requestCachedAnd(String key, Class<T> type, Supplier<T> cachedValueReader, Supplier<ResponseHolder<T>> loader)
+    {
+        CacheEntryMetadata negativeMetadata = this.readNegativeMetadata(key);
+        if (negativeMetadata != null)
+        {
+            LOG.trace("Cached negative response");
+            this.notifyStatsListeners(listener -> listener.onHit(key));
+            return this.createNegativeResponse(negativeMetadata.getNegativeStatusCode(), negativeMetadata.getNegativeContent());
+        }
+
+        try
+        {
+            // the entry can be evicted at any time, so a value which is gone at the time of reading is a miss
+            T cachedValue = this.cache.contains(key) && this.isServableFromCache(key, type, loader) ? cachedValueReader.get() : null;
+            if (cachedValue != null)
+            {
+                LOG.trace("Cached");
+                this.notifyStatsListeners(listener -> listener.onHit(key));
+                return new ResponseHolderImpl<>(cachedValue, 200);
+            }
+
+            this.notifyStatsListeners(listener -> listener.onMiss(key));
+            AtomicBoolean loadedByCurrentThread = new AtomicBoolean(false);
+            ResponseHolder<T> responseHolder = join(this.executeSingleFlight(this.inFlightRequests, this.generateInFlightKey(key, type), () ->
+            {
+                loadedByCurrentThread.set(true);
+                return completedOrFailedFuture(loader);
+            }));
+
+            // other threads get their own holder, as a holder is modified by a status code handler
+            return loadedByCurrentThread.get() ? responseHolder : new ResponseHolderImpl<>(responseHolder.get(), responseHolder.getStatusCode());
+        }
+        catch (RESTAccessExeption e)
+        {
+            int statusCode = e.getStatusCode();
+            if (this.isNegativeCachingApplicable(statusCode))
+            {
+                this.storeNegative(key, statusCode, e.getContent());
+                return this.createNegativeResponse(statusCode, e.getContent());
+            }
+            else if (statusCode == 400 || statusCode == 404)
+            {
+                return new ResponseHolderImpl<>(null, statusCode, e.getContent());
+            }
+            else
+            {
+                return this.handleLoadError(key, cachedValueReader, e);
+            }
+        }
+        catch (RuntimeException e)
+        {
+            return this.handleLoadError(key, cachedValueReader, e);
+        }
+    }
+
+    /**
+     * Returns the same result for a negative response as an uncached request, which is a response without result for 400 and 404 and a
+     * {@link RESTAccessExeption} for any other status code. Both carry the error body of the original response.
+     */
+    private <T> ResponseHolder<T> createNegativeResponse(int statusCode, String content)
+    {
+        if (statusCode == 400 || statusCode == 404)
+        {
+            return new ResponseHolderImpl<>(null, statusCode, content);
+        }
+        else
+        {
+            throw new RESTAccessExeption(statusCode, content);
+        }
+    }
+
+    private boolean isNegativeCachingApplicable(int statusCode)
+    {
+        return this.negativeTimeToLiveInMillis != null && this.negativeStatusCodes.contains(statusCode);
+    }
+
+    /**
+     * Returns the metadata of an unexpired negative response, or null if the key does not mark a negative response
+     */
+    private CacheEntryMetadata readNegativeMetadata(String key)
+    {
+        if (this.negativeTimeToLiveInMillis == null)
+        {
+            return null;
+        }
+        CacheEntryMetadata metadata = this.readMetadata(key);
+        return metadata != null && metadata.representsNegativeResponse() && !metadata.isExpired(this.clock.getAsLong()) ? metadata : null;
+    }
+
+    private void storeNegative(String key, int statusCode, String content)
+    {
+        long now = this.clock.getAsLong();
+        CacheEntryMetadata metadata = new CacheEntryMetadata(now, null, null).setExpiresAt(now + this.negativeTimeToLiveInMillis)
+                                                                             .setNegativeStatusCode(statusCode)
+                                                                             .setNegativeContent(content);
+        this.cache.remove(key);
+        this.cache.put(this.generateMetadataKey(key), metadata);
+        this.keyIndex.add(key);
+
+        List<String> evictedKeys = new ArrayList<>();
+        synchronized (this.negativeKeys)
+        {
+            this.negativeKeys.remove(key);
+            this.negativeKeys.add(key);
+            Iterator<String> iterator = this.negativeKeys.iterator();
+            while (this.negativeKeys.size() > this.negativeMaxEntries && iterator.hasNext())
+            {
+                evictedKeys.add(iterator.next());
+                iterator.remove();
+            }
+        }
+        for (String evictedKey : evictedKeys)
+        {
+            CacheEntryMetadata evictedMetadata = this.readMetadata(evictedKey);
+            if (evictedMetadata != null && evictedMetadata.representsNegativeResponse())
+            {
+                this.cache.remove(this.generateMetadataKey(evictedKey));
+                this.keyIndex.remove(evictedKey);
+            }
+        }
+    }
+
+    private <T> ResponseHolder<T> handleLoadError(String key, Supplier<T> cachedValueReader, RuntimeException e)
+    {
+        T cachedValue = this.isStaleIfErrorApplicable(key) ? cachedValueReader.get() : null;
+        if (cachedValue != null)
+        {
+            LOG.debug("Failed to load " + key + " -> serving stale cached response", e);
+            return new ResponseHolderImpl<>(cachedValue, 200);
+        }
+        else
+        {
+            this.removeFromCache(key);
+            throw e;
+        }
+    }
+
+    /**
+     * Returns true if the cached entry is fresh or may be returned while it is refreshed in the background
+     */
+    private <T> boolean isServableFromCache(String key, Class<T> type, Supplier<ResponseHolder<T>> loader)
+    {
+        long now = this.clock.getAsLong();
+        CacheEntryMetadata metadata = this.readMetadata(key);
+        Long staleSince = this.determineStaleSince(metadata);
+        if (staleSince == null || now < staleSince)
+        {
+            if (this.isRefreshAheadRequired(key, metadata, staleSince, now))
+            {
+                this.refreshInBackground(key, type, loader);
+            }
+            return true;
+        }
+        else if (this.staleWhileRevalidateInMillis != null && now - staleSince < this.staleWhileRevalidateInMillis)
+        {
+            this.refreshInBackground(key, type, loader);
+            return true;
+        }
+        else
+        {
+            return false;
+        }
+    }
+
+    private boolean isRefreshAheadRequired(String key, CacheEntryMetadata metadata, Long staleSince, long now)
+    {
+        if (this.refreshAheadFactor == null || staleSince == null)
+        {
+            return false;
+        }
+
+        // the counts only drive a heuristic, so they are dropped as a whole instead of tracking every key which has ever been accessed
+        if (this.accessCounts.size() >= MAX_ACCESS_COUNTS && !this.accessCounts.containsKey(key))
+        {
+            this.accessCounts.clear();
+        }
+        LongAdder accessCount = this.accessCounts.computeIfAbsent(key, k -> new LongAdder());
+        accessCount.increment();
+
+        long lifetime = staleSince - metadata.getStoredAt();
+        long remaining = staleSince - now;
+        long age = Math.max(1, now - metadata.getStoredAt());
+        double expectedAccessesWithinLifetime = accessCount.doubleValue() / age * lifetime;
+        return remaining <= lifetime * this.refreshAheadFactor && expectedAccessesWithinLifetime >= 1.0;
+    }
+
+    private <T> void refreshInBackground(String key, Class<T> type, Supplier<ResponseHolder<T>> loader)
+    {
+        if (this.refreshingKeys.add(key))
+        {
+            LOG.trace("Scheduling background refresh of " + key);
+            try
+            {
+                REFRESH_EXECUTOR.execute(() ->
+                {
+                    try
+                    {
+                        join(this.executeSingleFlight(this.inFlightRequests, this.generateInFlightKey(key, type),
+                                                      () -> completedOrFailedFuture(loader)));
+                    }
+                    catch (Exception e)
+                    {
+                        LOG.debug("Background refresh of " + key + " failed -> keeping stale cached response", e);
+                    }
+                    finally
+                    {
+                        this.refreshingKeys.remove(key);
+                    }
+                });
+            }
+            catch (RejectedExecutionException e)
+            {
+                LOG.trace("Background refresh of " + key + " rejected");
+                this.refreshingKeys.remove(key);
+            }
+        }
+    }
+
+    private boolean isStaleIfErrorApplicable(String key)
+    {
+        if (this.staleIfErrorInMillis == null || !this.cache.contains(key))
+        {
+            return false;
+        }
+        Long staleSince = this.determineStaleSince(this.readMetadata(key));
+        return staleSince != null && this.clock.getAsLong() - staleSince < this.staleIfErrorInMillis;
+    }
+
+    private <T> ResponseHolder<T> measureLoad(String key, Supplier<ResponseHolder<T>> loader)
+    {
+        long start = System.nanoTime();
+        try
+        {
+            ResponseHolder<T> responseHolder = loader.get();
+            this.notifyStatsListeners(listener -> listener.onLoadSuccess(key, System.nanoTime() - start));
+            return responseHolder;
+        }
+        catch (RuntimeException e)
+        {
+            this.notifyStatsListeners(listener -> listener.onLoadFailure(key, System.nanoTime() - start, e));
+            throw e;
+        }
+    }
+
+    private <T> ResponseHolder<T> loadResponse(String key, String url, Class<T> type, Map<String, String> headers)
+    {
+        return this.measureLoad(key, () -> this.loadGetResponse(key, url, type, headers));
+    }
+
+    private <T> ResponseHolder<T> loadGetResponse(String key, String url, Class<T> type, Map<String, String> headers)
+    {
+        if (this.rawResponseCaching)
+        {
+            RawResponseRestClient rawResponseRestClient = (RawResponseRestClient) this.restClient;
+            return this.loadAndStoreResponse(key, url, RawResponse.class, headers, requestHeaders -> this.rawRequestGetRawAnd(url, requestHeaders))
+                       .map(rawResponse -> rawResponseRestClient.decode(rawResponse, type));
+        }
+        else
+        {
+            return this.loadAndStoreResponse(key, url, type, headers, requestHeaders -> this.rawRequestGetAnd(url, type, requestHeaders));
+        }
+    }
+
+    private <V> ResponseHolder<V> loadAndStoreResponse(String key, String url, Class<V> storedType, Map<String, String> headers,
+                                                       Function<Map<String, String>, ResponseHolder<V>> requester)
+    {
+        CacheEntryMetadata metadata = this.cache.contains(key) ? this.readMetadata(key) : null;
+        if (metadata != null && metadata.hasValidators())
+        {
+            ResponseHolder<V> responseHolder = requester.apply(this.createConditionalHeaders(headers, metadata));
+            V cachedValue = responseHolder.getStatusCode() == 304 ? this.readFromCache(key, storedType) : null;
+            if (cachedValue != null)
+            {
+                LOG.trace("Revalidated");
+                this.refreshMetadata(key, metadata, responseHolder::getHeader);
+                return new ResponseHolderImpl<>(cachedValue, 200);
+            }
+            else if (responseHolder.getStatusCode() == 304)
+            {
+                LOG.trace("Revalidated, but the cached response has been evicted meanwhile");
+                return this.storeResponse(key, url, headers, requester.apply(headers));
+            }
+            else
+            {
+                return this.storeResponse(key, url, headers, responseHolder);
+            }
+        }
+        else
+        {
+            return this.storeResponse(key, url, headers, requester.apply(headers));
+        }
     }
 
     /**
-     * Uses a {@link CacheUtils#newConcurrentInMemoryCache()} as default cache
-     *
-     * @param restClient
+     * Cached results are revalidated like within {@link #requestGetAnd(String, Class, Map)}. The requests are executed by the non blocking api
+     * of the underlying {@link RestClient}, so no thread is occupied while a response is loaded.
      */
-    public CachedRestClient(RestClient restClient)
+    @Override
+    public <T> CompletableFuture<T> requestGetAsync(String url, Class<T> type, Map<String, String> headers)
     {
-        this(restClient, CacheUtils.newConcurrentInMemoryCache());
+        LOG.trace("Request to url: " + url);
+
+        String key = this.generateCacheKey(url, headers);
+        return this.requestCachedAsync(key, type, () -> this.readCachedValue(key, type), () -> this.loadResponse(key, url, type, headers),
+                                       () -> this.loadResultAsync(key, url, type, headers));
     }
 
-    public CachedRestClient setCache(Cache cache)
+    /**
+     * Non blocking counterpart of {@link #requestCachedAnd(String, Class, Supplier, Supplier)}. The blocking loader is only used for
+     * background refreshes.
+     */
+    private <T> CompletableFuture<T> requestCachedAsync(String key, Class<T> type, Supplier<T> cachedValueReader, Supplier<ResponseHolder<T>> loader,
+                                                        Supplier<CompletableFuture<T>> asyncLoader)
     {
-        if (cache != null)
+        CacheEntryMetadata negativeMetadata = this.readNegativeMetadata(key);
+        if (negativeMetadata != null)
         {
-            Cache oldCache = this.cache;
-            CacheUtils.populateCacheContentToNewCache(oldCache, cache);
+            LOG.trace("Cached negative response");
+            this.notifyStatsListeners(listener -> listener.onHit(key));
+            CompletableFuture<T> future = new CompletableFuture<>();
+            future.completeExceptionally(new RESTAccessExeption(negativeMetadata.getNegativeStatusCode(),
+                                                                negativeMetadata.getNegativeContent()));
+            return future;
+        }
+
+        T cachedValue = this.cache.contains(key) && this.isServableFromCache(key, type, loader) ? cachedValueReader.get() : null;
+        if (cachedValue != null)
+        {
+            LOG.trace("Cached");
+            this.notifyStatsListeners(listener -> listener.onHit(key));
+            return CompletableFuture.completedFuture(cachedValue);
+        }
+        else
+        {
+            this.notifyStatsListeners(listener -> listener.onMiss(key));
+            return this.executeSingleFlight(this.inFlightAsyncRequests, this.generateInFlightKey(key, type),
+                                            () -> this.measureLoad(key, asyncLoader.get()))
+                       .exceptionally(exception ->
+                       {
+                           Throwable cause = unwrap(exception);
+                           int statusCode = cause instanceof RESTAccessExeption ? ((RESTAccessExeption) cause).getStatusCode() : -1;
+                           if (this.isNegativeCachingApplicable(statusCode))
+                           {
+                               this.storeNegative(key, statusCode, ((RESTAccessExeption) cause).getContent());
+                               throw new CompletionException(cause);
+                           }
 
-            this.cache = cache;
+                           T staleValue = this.isStaleIfErrorApplicable(key) ? cachedValueReader.get() : null;
+                           if (staleValue != null)
+                           {
+                               LOG.debug("Failed to load " + key + " -> serving stale cached response", exception);
+                               return staleValue;
+                           }
+                           else
+                           {
+                               throw new CompletionException(cause);
+                           }
+                       });
         }
-        return this;
     }
 
+    /**
+     * Similar to {@link #requestGetAsync(String, Class, Map)}. Error responses are provided as {@link ResponseHolder} with their status code,
+     * while connection failures complete the returned future exceptionally.
+     */
     @Override
-    public <T> T requestGet(String url, Class<T> type, Map<String, String> headers)
+    public <T> CompletableFuture<ResponseHolder<T>> requestGetAndAsync(String url, Class<T> type, Map<String, String> headers)
     {
-        LOG.trace("Request to url: " + url);
+        return this.requestGetAsync(url, type, headers)
+                   .<ResponseHolder<T>>thenApply(result -> new ResponseHolderImpl<>(result, 200))
+                   .exceptionally(exception ->
+                   {
+                       Throwable cause = unwrap(exception);
+                       if (cause instanceof RESTAccessExeption)
+                       {
+                           RESTAccessExeption restAccessExeption = (RESTAccessExeption) cause;
+                           return new ResponseHolderImpl<>(null, restAccessExeption.getStatusCode(), restAccessExeption.getContent());
+                       }
+                       throw new CompletionException(cause);
+                   });
+    }
 
-        AtomicBoolean cached = new AtomicBoolean(true);
-        String key = this.generateCacheKey(url, headers);
-        try
+    private <T> CompletableFuture<T> measureLoad(String key, CompletableFuture<T> future)
+    {
+        long start = System.nanoTime();
+        return future.whenComplete((result, exception) ->
         {
-            //
-            boolean containsKey = this.cache.contains(key);
-            T retval = this.cache.computeIfAbsent(key, () ->
+            long duration = System.nanoTime() - start;
+            if (exception != null)
             {
-                if (containsKey)
-                {
-                    return null;
-                }
-                else
-                {
-                    cached.set(false);
-                    return this.rawRequestGet(url, type, headers);
-                }
-            }, type);
-
-            //
-            if (cached.get())
+                this.notifyStatsListeners(listener -> listener.onLoadFailure(key, duration, unwrap(exception)));
+            }
+            else
             {
-                LOG.trace("Cached");
+                this.notifyStatsListeners(listener -> listener.onLoadSuccess(key, duration));
             }
+        });
+    }
 
-            //
-            return retval;
+    private <T> CompletableFuture<T> loadResultAsync(String key, String url, Class<T> type, Map<String, String> headers)
+    {
+        if (this.rawResponseCaching)
+        {
+            RawResponseRestClient rawResponseRestClient = (RawResponseRestClient) this.restClient;
+            return this.loadAndStoreResponseAsync(key, url, RawResponse.class, headers,
+                                                  requestHeaders -> this.rawRequestGetRawAndAsync(url, requestHeaders))
+                       .thenApply(responseHolder -> rawResponseRestClient.decode(responseHolder.get(), type));
         }
-        catch (RESTAccessExeption e)
+        else
         {
-            int statusCode = e.getStatusCode();
-            if (statusCode == 400 || statusCode == 404)
+            return this.loadAndStoreResponseAsync(key, url, type, headers, requestHeaders -> this.rawRequestGetAndAsync(url, type, requestHeaders))
+                       .thenApply(ResponseHolder::get);
+        }
+    }
+
+    /**
+     * Non blocking counterpart of {@link #loadAndStoreResponse(String, String, Class, Map, Function)}. Error responses complete the returned
+     * future exceptionally with a {@link RESTAccessExeption}.
+     */
+    private <V> CompletableFuture<ResponseHolder<V>> loadAndStoreResponseAsync(String key, String url, Class<V> storedType,
+                                                                               Map<String, String> headers,
+                                                                               Function<Map<String, String>, CompletableFuture<ResponseHolder<V>>> requester)
+    {
+        CacheEntryMetadata metadata = this.cache.contains(key) ? this.readMetadata(key) : null;
+        if (metadata != null && metadata.hasValidators())
+        {
+            return requester.apply(this.createConditionalHeaders(headers, metadata))
+                            .thenCompose(responseHolder ->
+                            {
+                                V cachedValue = responseHolder.getStatusCode() == 304 ? this.readFromCache(key, storedType) : null;
+                                if (cachedValue != null)
+                                {
+                                    LOG.trace("Revalidated");
+                                    this.refreshMetadata(key, metadata, responseHolder::getHeader);
+                                    return CompletableFuture.completedFuture(new ResponseHolderImpl<>(cachedValue, 200));
+                                }
+                                else if (responseHolder.getStatusCode() == 304)
+                                {
+                                    LOG.trace("Revalidated, but the cached response has been evicted meanwhile");
+                                    return requester.apply(headers)
+                                                    .thenApply(reloadedResponseHolder -> this.storeResponse(key, url, headers,
+                                                                                                            reloadedResponseHolder));
+                                }
+                                else
+                                {
+                                    return CompletableFuture.completedFuture(this.storeResponse(key, url, headers, responseHolder));
+                                }
+                            });
+        }
+        else
+        {
+            return requester.apply(headers)
+                            .thenApply(responseHolder -> this.storeResponse(key, url, headers, responseHolder));
+        }
+    }
+
+    /**
+     * Executes the given loader only if no other load for the same in flight key is currently running, otherwise the future of the running
+     * load is returned. This prevents concurrent requests for the same entry from hitting the server multiple times.
+     * 
+     * @param inFlightRequests
+     * @param inFlightKey
+     * @param loader
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    private <R> CompletableFuture<R> executeSingleFlight(Map<String, CompletableFuture<?>> inFlightRequests, String inFlightKey,
+                                                         Supplier<CompletableFuture<R>> loader)
+    {
+        CompletableFuture<R> future = new CompletableFuture<>();
+        CompletableFuture<R> inFlightFuture = (CompletableFuture<R>) inFlightRequests.putIfAbsent(inFlightKey, future);
+        if (inFlightFuture != null)
+        {
+            LOG.trace("Joining in flight request");
+            return inFlightFuture;
+        }
+
+        try
+        {
+            loader.get()
+                  .whenComplete((result, exception) ->
+                  {
+                      inFlightRequests.remove(inFlightKey, future);
+                      if (exception != null)
+                      {
+                          future.completeExceptionally(unwrap(exception));
+                      }
+                      else
+                      {
+                          future.complete(result);
+                      }
+                  });
+        }
+        catch (RuntimeException e)
+        {
+            inFlightRequests.remove(inFlightKey, future);
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private static <R> CompletableFuture<R> completedOrFailedFuture(Supplier<R> supplier)
+    {
+        CompletableFuture<R> future = new CompletableFuture<>();
+        try
+        {
+            future.complete(supplier.get());
+        }
+        catch (RuntimeException e)
+        {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private static <R> R join(CompletableFuture<R> future)
+    {
+        try
+        {
+            return future.join();
+        }
+        catch (CompletionException e)
+        {
+            Throwable cause = unwrap(e);
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException) cause;
+            }
+            else if (cause instanceof Error)
             {
-                this.cache.put(url, null);
-                return null;
+                throw (Error) cause;
             }
             else
             {
-                this.cache.remove(key);
                 throw e;
             }
         }
+    }
+
+    private static Throwable unwrap(Throwable exception)
+    {
+        return exception instanceof CompletionException && exception.getCause() != null ? exception.getCause() : exception;
+    }
 
-        catch (Exception e)
+    private <T> ResponseHolder<T> storeResponse(String key, String url, Map<String, String> headers, ResponseHolder<T> responseHolder)
+    {
+        T result = responseHolder.get();
+        Set<String> varyHeaderNames = parseVaryHeaderNames(responseHolder.getHeader("Vary"));
+        if (CacheControl.of(responseHolder::getHeader)
+                        .isNoStore()
+                || varyHeaderNames.contains("*"))
         {
-            this.cache.remove(key);
-            throw e;
+            this.removeFromCache(key);
+        }
+        else
+        {
+            // the vary headers are only known after the first response, so the key might change
+            String urlKey = this.cacheKeyStrategy.generateUrlKey(url);
+            this.storeVaryHeaderNames(urlKey, varyHeaderNames);
+            String storeKey = this.cacheKeyStrategy.generateKey(urlKey, headers, varyHeaderNames);
+            if (!storeKey.equals(key))
+            {
+                this.removeFromCache(key);
+            }
+            this.storeResult(storeKey, result, responseHolder.getBodySize(), this.createMetadata(responseHolder::getHeader));
         }
+        return responseHolder;
     }
 
-    @Override
-    public <T> ResponseHolder<T> requestGetAnd(String url, Class<T> type, Map<String, String> headers)
+    /**
+     * Stores a result whose response headers are not exposed, like results of post requests. The key is generated again from the
+     * <code>Vary</code> headers which are known for the url at the time of storing, as a concurrent request might have learned them
+     * meanwhile.
+     * 
+     * @param key
+     *            key which has been generated before the request
+     * @param keyPrefix
+     *            url key of the requested resource or the extended url key of a post request
+     * @param url
+     * @param headers
+     *            request headers
+     * @param result
+     * @return
+     */
+    private <T> T storeResultWithoutHeaders(String key, String keyPrefix, String url, Map<String, String> headers, T result)
     {
-        LOG.trace("Request to url: " + url);
+        String urlKey = this.cacheKeyStrategy.generateUrlKey(url);
+        String storeKey = this.cacheKeyStrategy.generateKey(keyPrefix, headers, this.readVaryHeaderNames(urlKey));
+        if (!storeKey.equals(key))
+        {
+            this.removeFromCache(key);
+        }
+        return this.storeResult(storeKey, result, OptionalLong.empty(), this.createMetadata(NO_HEADERS));
+    }
 
-        AtomicBoolean cached = new AtomicBoolean(true);
-        String key = this.generateCacheKey(url, headers);
-        try
+    private static Set<String> parseVaryHeaderNames(Optional<String> vary)
+    {
+        Set<String> varyHeaderNames = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        vary.ifPresent(value -> Arrays.stream(value.split(","))
+                                      .map(String::trim)
+                                      .filter(name -> !name.isEmpty())
+                                      .forEach(varyHeaderNames::add));
+        return varyHeaderNames;
+    }
+
+    private Set<String> readVaryHeaderNames(String urlKey)
+    {
+        String varyKey = urlKey + VARY_KEY_SUFFIX;
+        return this.cache.contains(varyKey) ? parseVaryHeaderNames(Optional.ofNullable(this.readFromCache(varyKey, String.class)))
+                : Collections.emptySet();
+    }
+
+    private void storeVaryHeaderNames(String urlKey, Set<String> varyHeaderNames)
+    {
+        String varyKey = urlKey + VARY_KEY_SUFFIX;
+        if (!varyHeaderNames.isEmpty())
         {
-            //
-            AtomicReference<ResponseHolder<T>> responseHolderReference = new AtomicReference<>();
-            boolean containsKey = this.cache.contains(key);
-            T result = this.cache.computeIfAbsent(key, () ->
-            {
-                if (containsKey)
-                {
-                    return null;
-                }
-                else
-                {
-                    cached.set(false);
-                    ResponseHolder<T> responseHolder = this.rawRequestGetAnd(url, type, headers);
-                    responseHolderReference.set(responseHolder);
-                    return responseHolder.get();
-                }
-            }, type);
+            this.cache.put(varyKey, String.join(",", varyHeaderNames));
+        }
+        else if (this.cache.contains(varyKey))
+        {
+            this.cache.remove(varyKey);
+        }
+    }
+
+    private <T> T storeResult(String key, T result, OptionalLong bodySize, CacheEntryMetadata metadata)
+    {
+        if (bodySize.isPresent() && this.cache instanceof WeightAwareCache)
+        {
+            ((WeightAwareCache) this.cache).put(key, result, bodySize.getAsLong());
+        }
+        else
+        {
+            this.cache.put(key, result);
+        }
+        this.cache.put(this.generateMetadataKey(key), metadata);
+        this.keyIndex.add(key);
+        this.accessCounts.remove(key);
+        return result;
+    }
 
-            //
-            if (cached.get())
+    private CacheEntryMetadata createMetadata(Function<String, Optional<String>> headerResolver)
+    {
+        long now = this.clock.getAsLong();
+        String eTag = headerResolver.apply("ETag")
+                                    .orElse(null);
+        String lastModified = headerResolver.apply("Last-Modified")
+                                            .orElse(null);
+        Long expiresAt = this.determineExpiresAt(CacheControl.of(headerResolver), now, this.defaultTimeToLiveInMillis);
+        return new CacheEntryMetadata(now, eTag, lastModified).setExpiresAt(expiresAt);
+    }
+
+    private void refreshMetadata(String key, CacheEntryMetadata metadata, Function<String, Optional<String>> headerResolver)
+    {
+        long now = this.clock.getAsLong();
+        Long previousTimeToLiveInMillis = metadata.getExpiresAt() != null ? metadata.getExpiresAt() - metadata.getStoredAt()
+                : this.defaultTimeToLiveInMillis;
+        String eTag = headerResolver.apply("ETag")
+                                    .orElse(metadata.getETag());
+        String lastModified = headerResolver.apply("Last-Modified")
+                                            .orElse(metadata.getLastModified());
+        Long expiresAt = this.determineExpiresAt(CacheControl.of(headerResolver), now, previousTimeToLiveInMillis);
+        this.accessCounts.remove(key);
+        this.cache.put(this.generateMetadataKey(key), new CacheEntryMetadata(now, eTag, lastModified).setExpiresAt(expiresAt));
+    }
+
+    private Long determineExpiresAt(CacheControl cacheControl, long now, Long fallbackTimeToLiveInMillis)
+    {
+        Long expiresAt = cacheControl.getExpiresAt(now)
+                                     .orElse(fallbackTimeToLiveInMillis != null ? now + fallbackTimeToLiveInMillis : null);
+        if (this.maxTimeToLiveInMillis != null)
+        {
+            long maxExpiresAt = now + this.maxTimeToLiveInMillis;
+            expiresAt = expiresAt != null ? Math.min(expiresAt, maxExpiresAt) : maxExpiresAt;
+        }
+        return expiresAt;
+    }
+
+    private void removeFromCache(String key)
+    {
+        this.cache.remove(key);
+        this.cache.remove(this.generateMetadataKey(key));
+        this.keyIndex.remove(key);
+        this.accessCounts.remove(key);
+    }
+
+    /**
+     * Reads the cached result and decodes it, if raw responses are cached
+     */
+    private <T> T readCachedValue(String key, Class<T> type)
+    {
+        if (this.rawResponseCaching)
+        {
+            RawResponse rawResponse = this.readFromCache(key, RawResponse.class);
+            return rawResponse != null ? ((RawResponseRestClient) this.restClient).decode(rawResponse, type) : null;
+        }
+        else
+        {
+            return this.readFromCache(key, type);
+        }
+    }
+
+    private <T> T readFromCache(String key, Class<T> type)
+    {
+        return this.cache.computeIfAbsent(key, () -> null, type);
+    }
+
+    private CacheEntryMetadata readMetadata(String key)
+    {
+        String metadataKey = this.generateMetadataKey(key);
+        return this.cache.contains(metadataKey) ? this.readFromCache(metadataKey, CacheEntryMetadata.class) : null;
+    }
+
+    /**
+     * Returns the point in time at which the cached entry becomes stale, or null if it never becomes stale. Entries without metadata, e.g.
+     * written by a former version into a persistent cache or whose metadata has been evicted independently, are stale as soon as any time
+     * to live or revalidation is configured.
+     */
+    private Long determineStaleSince(CacheEntryMetadata metadata)
+    {
+        if (metadata == null)
+        {
+            boolean expiring = this.revalidationDelayInMillis != null || this.defaultTimeToLiveInMillis != null || this.maxTimeToLiveInMillis != null;
+            return expiring ? 0l : null;
+        }
+        else
+        {
+            Long staleSince = metadata.getExpiresAt();
+            if (this.revalidationDelayInMillis != null)
             {
-                LOG.trace("Cached");
+                long revalidateAt = metadata.getStoredAt() + this.revalidationDelayInMillis;
+                staleSince = staleSince != null ? Math.min(staleSince, revalidateAt) : revalidateAt;
             }
+            return staleSince;
+        }
+    }
 
-            return Optional.ofNullable(responseHolderReference.get())
-                           .orElseGet(() -> new ResponseHolderImpl<>(result, 200));
+    private Map<String, String> createConditionalHeaders(Map<String, String> headers, CacheEntryMetadata metadata)
+    {
+        Map<String, String> conditionalHeaders = new LinkedHashMap<>();
+        if (headers != null)
+        {
+            conditionalHeaders.putAll(headers);
         }
-        catch (RESTAccessExeption e)
+        if (metadata.getETag() != null)
         {
-            int statusCode = e.getStatusCode();
-            if (statusCode == 400 || statusCode == 404)
+            conditionalHeaders.put("If-None-Match", metadata.getETag());
+        }
+        if (metadata.getLastModified() != null)
+        {
+            conditionalHeaders.put("If-Modified-Since", metadata.getLastModified());
+        }
+        return conditionalHeaders;
+    }
+
+    @Override
+    public ResponseHolder<Long> requestDownload(String url, Path target, Map<String, String> headers)
+    {
+        return this.restClient.requestDownload(url, target, headers);
+    }
+
+    @Override
+    public ResponseHolder<Long> requestDownload(String url, Path target, int numberOfRanges, Map<String, String> headers)
+    {
+        return this.restClient.requestDownload(url, target, numberOfRanges, headers);
+    }
+
+    @Override
+    public <T> Stream<T> requestGetAsStream(String url, Class<T> elementType, Map<String, String> headers)
+    {
+        return this.restClient.requestGetAsStream(url, elementType, headers);
+    }
+
+    @Override
+    public <R, B> R requestPost(String url, B body, Class<R> resultType, Map<String, String> headers)
+    {
+        if (!this.isPostCachingApplicable(url))
+        {
+            return this.restClient.requestPost(url, body, resultType, headers);
+        }
+
+        LOG.trace("Post request to url: " + url);
+        String postUrlKey = this.generatePostUrlKey(url, body);
+        String key = this.cacheKeyStrategy.generateKey(postUrlKey, headers, this.readVaryHeaderNames(this.cacheKeyStrategy.generateUrlKey(url)));
+        ResponseHolder<R> responseHolder = this.requestCachedAnd(key, resultType, () -> this.readFromCache(key, resultType),
+                                                                 () -> this.loadPostResponse(key, postUrlKey, url, body, resultType, headers));
+
+        // an uncached post request fails for any error status code, the holder of an error response throws a RESTAccessExeption with the
+        // status code and error body of the original response, any other failure has already been propagated as it is
+        return responseHolder.get();
+    }
+
+    /**
+     * If the url is cached via {@link #withPostCaching(String...)}, the request is cached like within
+     * {@link #requestPost(String, Object, Class, Map)} and executed by the non blocking api of the underlying {@link RestClient}
+     */
+    @Override
+    public <R, B> CompletableFuture<R> requestPostAsync(String url, B body, Class<R> resultType, Map<String, String> headers)
+    {
+        if (!this.isPostCachingApplicable(url))
+        {
+            return this.restClient.requestPostAsync(url, body, resultType, headers);
+        }
+
+        LOG.trace("Post request to url: " + url);
+        String postUrlKey = this.generatePostUrlKey(url, body);
+        String key = this.cacheKeyStrategy.generateKey(postUrlKey, headers, this.readVaryHeaderNames(this.cacheKeyStrategy.generateUrlKey(url)));
+        return this.requestCachedAsync(key, resultType, () -> this.readFromCache(key, resultType),
+                                       () -> this.loadPostResponse(key, postUrlKey, url, body, resultType, headers), () ->
+                                       {
+                                           LOG.trace("Executing raw post request to " + url);
+                                           return this.restClient.requestPostAsync(url, body, resultType, headers)
+                                                                 .thenApply(result -> this.storeResultWithoutHeaders(key, postUrlKey, url,
+                                                                                                                     headers, result));
+                                       });
+    }
+
+    private boolean isPostCachingApplicable(String url)
+    {
+        for (Pattern pattern : this.postCachingUrlPatterns)
+        {
+            if (pattern.matcher(url)
+                       .matches())
             {
-                this.cache.put(url, null);
-                return new ResponseHolderImpl<>(null, statusCode);
+                return true;
             }
-            else
+        }
+        return false;
+    }
+
+    private <R, B> ResponseHolder<R> loadPostResponse(String key, String postUrlKey, String url, B body, Class<R> resultType,
+                                                      Map<String, String> headers)
+    {
+        return this.measureLoad(key, () ->
+        {
+            LOG.trace("Executing raw post request to " + url);
+            R result = this.restClient.requestPost(url, body, resultType, headers);
+            this.storeResultWithoutHeaders(key, postUrlKey, url, headers, result);
+            return new ResponseHolderImpl<>(result, 200);
+        });
+    }
+
+    /**
+     * Returns the url key extended by a SHA-256 hash of the serialized body
+     */
+    private String generatePostUrlKey(String url, Object body)
+    {
+        byte[] serializedBody;
+        if (body instanceof byte[])
+        {
+            serializedBody = (byte[]) body;
+        }
+        else if (body instanceof String)
+        {
+            serializedBody = ((String) body).getBytes(StandardCharsets.UTF_8);
+        }
+        else
+        {
+            serializedBody = JSONHelper.serialize(body)
+                                       .getBytes(StandardCharsets.UTF_8);
+        }
+
+        try
+        {
+            StringBuilder key = new StringBuilder(this.cacheKeyStrategy.generateUrlKey(url)).append(" #post ");
+            for (byte value : MessageDigest.getInstance("SHA-256")
+                                           .digest(serializedBody))
             {
-                this.cache.remove(key);
-                throw e;
+                key.append(Character.forDigit((value >> 4) & 0xf, 16))
+                   .append(Character.forDigit(value & 0xf, 16));
             }
+            return key.toString();
         }
-        catch (Exception e)
+        catch (NoSuchAlgorithmException e)
         {
-            this.cache.remove(key);
-            throw e;
+            throw new IllegalStateException(e);
         }
     }
 
     @Override
-    public <R, B> R requestPost(String url, B body, Class<R> resultType, Map<String, String> headers)
+    public <R, B> R requestPostAsNDJson(String url, Iterator<B> elements, Class<R> resultType, Map<String, String> headers)
     {
-        return this.restClient.requestPost(url, body, resultType, headers);
+        return this.restClient.requestPostAsNDJson(url, elements, resultType, headers);
     }
 
     @Override
@@ -227,9 +1551,24 @@ public class CachedRestClient extends IntrinsicRestClient
 
     private String generateCacheKey(String url, Map<String, String> headers)
     {
-        return url + " " + this.encode(headers);
+        String urlKey = this.cacheKeyStrategy.generateUrlKey(url);
+        return this.cacheKeyStrategy.generateKey(urlKey, headers, this.readVaryHeaderNames(urlKey));
+    }
+
+    private String generateInFlightKey(String key, Class<?> type)
+    {
+        return key + " " + type.getName();
+    }
+
+    private String generateMetadataKey(String key)
+    {
+        return key + METADATA_KEY_SUFFIX;
     }
 
+    /**
+     * @deprecated GET requests are executed via {@link #rawRequestGetAnd(String, Class, Map)}, which has to be overridden instead
+     */
+    @Deprecated
     protected <T> T rawRequestGet(String url, Class<T> type, Map<String, String> headers)
     {
         LOG.trace("Executing raw request to " + url);
@@ -242,6 +1581,28 @@ public class CachedRestClient extends IntrinsicRestClient
         return this.restClient.requestGetAnd(url, type, headers);
     }
 
+    protected ResponseHolder<RawResponse> rawRequestGetRawAnd(String url, Map<String, String> headers)
+    {
+        LOG.trace("Executing raw request to " + url);
+        return ((RawResponseRestClient) this.restClient).requestGetRawAnd(url, headers);
+    }
+
+    protected <T> CompletableFuture<ResponseHolder<T>> rawRequestGetAndAsync(String url, Class<T> type, Map<String, String> headers)
+    {
+        LOG.trace("Executing raw request to " + url);
+        return this.restClient.requestGetAndAsync(url, type, headers);
+    }
+
+    protected CompletableFuture<ResponseHolder<RawResponse>> rawRequestGetRawAndAsync(String url, Map<String, String> headers)
+    {
+        LOG.trace("Executing raw request to " + url);
+        return ((RawResponseRestClient) this.restClient).requestGetRawAndAsync(url, headers);
+    }
+
+    /**
+     * @deprecated the cache keys are generated by the {@link CacheKeyStrategy}, see {@link #withCacheKeyStrategy(CacheKeyStrategy)}
+     */
+    @Deprecated
     protected String encode(Map<String, String> headers)
     {
         return JSONHelper.prettyPrint(headers);
@@ -259,6 +1620,12 @@ public class CachedRestClient extends IntrinsicRestClient
         return this.restClient.withoutSSLHostnameVerification();
     }
 
+    @Override
+    public RestClient withConnectionPool(int maxConnectionsTotal, int maxConnectionsPerRoute)
+    {
+        return this.restClient.withConnectionPool(maxConnectionsTotal, maxConnectionsPerRoute);
+    }
+
     @Override
     public RestClient withAcceptMediaType(String mediaType)
     {
@@ -15,19 +15,42 @@
  ******************************************************************************/
 package org.omnaest.utils.rest.client.internal;
 
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.stream.Stream;
 
 import org.omnaest.utils.CacheUtils;
 import org.omnaest.utils.rest.client.FormBuilder;
 import org.omnaest.utils.rest.client.RestClient;
 import org.omnaest.utils.rest.client.URLBuilder;
 import org.omnaest.utils.rest.client.URLBuilder.URLBuilderWithBaseUrl;
+import org.omnaest.utils.rest.client.internal.cache.BoundedInMemoryCache;
+import org.omnaest.utils.rest.client.internal.cache.LocalRawFolderCache;
+import org.omnaest.utils.rest.client.internal.cache.MappedSegmentCache;
+import org.omnaest.utils.rest.client.internal.cache.TieredCache;
+import org.omnaest.utils.rest.client.internal.holder.BulkResponseImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public abstract class InternalRestClient implements RestClient
 {
+    private static final Logger LOG = LoggerFactory.getLogger(InternalRestClient.class);
+
     @Override
     public RequestBuilder request()
     {
@@ -72,12 +95,57 @@ public abstract class InternalRestClient implements RestClient
                         return InternalRestClient.this.requestGetAnd(url, type, this.headers);
                     }
 
+                    @Override
+                    public <T> CompletableFuture<T> getAsync(Class<T> type)
+                    {
+                        return InternalRestClient.this.requestGetAsync(url, type, this.headers);
+                    }
+
+                    @Override
+                    public <T> Stream<T> stream(Class<T> elementType)
+                    {
+                        return InternalRestClient.this.requestGetAsStream(url, elementType, this.headers);
+                    }
+
+                    @Override
+                    public ResponseHolder<Long> downloadTo(Path target)
+                    {
+                        return InternalRestClient.this.requestDownload(url, target, this.headers);
+                    }
+
+                    @Override
+                    public ResponseHolder<Long> downloadTo(Path target, int numberOfRanges)
+                    {
+                        return InternalRestClient.this.requestDownload(url, target, numberOfRanges, this.headers);
+                    }
+
                     @Override
                     public <R, B> R post(B body, Class<R> resultType)
                     {
                         return InternalRestClient.this.requestPost(url, body, resultType, this.headers);
                     }
 
+                    @Override
+                    public <R, B> CompletableFuture<R> postAsync(B body, Class<R> resultType)
+                    {
+                        return InternalRestClient.this.requestPostAsync(url, body, resultType, this.headers);
+                    }
+
+                    @Override
+                    public <R, B> R postAsNDJson(Stream<B> elements, Class<R> resultType)
+                    {
+                        try (Stream<B> closeableElements = elements)
+                        {
+                            return this.postAsNDJson(closeableElements.iterator(), resultType);
+                        }
+                    }
+
+                    @Override
+                    public <R, B> R postAsNDJson(Iterator<B> elements, Class<R> resultType)
+                    {
+                        return InternalRestClient.this.requestPostAsNDJson(url, elements, resultType, this.headers);
+                    }
+
                     @Override
                     public <R, B> R postForm(Consumer<FormBuilder> formBuilderConsumer, Class<R> resultType)
                     {
@@ -106,10 +174,110 @@ public abstract class InternalRestClient implements RestClient
         };
     }
 
+    @Override
+    public <T> List<BulkResponse<T>> requestGetAll(Collection<String> urls, Class<T> type, int maxConcurrency)
+    {
+        if (maxConcurrency < 1)
+        {
+            throw new IllegalArgumentException("maxConcurrency must be at least 1: " + maxConcurrency);
+        }
+
+        ExecutorService executorService = newVirtualThreadPerTaskExecutor().orElseGet(() -> Executors.newFixedThreadPool(maxConcurrency));
+        try
+        {
+            Semaphore semaphore = new Semaphore(maxConcurrency);
+            List<Future<BulkResponse<T>>> futures = new ArrayList<>(urls.size());
+            for (String url : urls)
+            {
+                futures.add(executorService.submit(() ->
+                {
+                    semaphore.acquire();
+                    try
+                    {
+                        return BulkResponseImpl.ofResult(url, this.requestGet(url, type));
+                    }
+                    catch (RuntimeException e)
+                    {
+                        LOG.debug("Bulk request failed for url: " + url, e);
+                        return BulkResponseImpl.<T>ofException(url, e);
+                    }
+                    finally
+                    {
+                        semaphore.release();
+                    }
+                }));
+            }
+
+            List<BulkResponse<T>> retval = new ArrayList<>(futures.size());
+            for (Future<BulkResponse<T>> future : futures)
+            {
+                retval.add(future.get());
+            }
+            return retval;
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread()
+                  .interrupt();
+            throw new IllegalStateException("Interrupted while waiting for bulk requests", e);
+        }
+        catch (ExecutionException e)
+        {
+            throw new IllegalStateException(e.getCause());
+        }
+        finally
+        {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns an {@link ExecutorService} which starts a virtual thread per task, if the runtime supports virtual threads
+     * 
+     * @return
+     */
+    private static Optional<ExecutorService> newVirtualThreadPerTaskExecutor()
+    {
+        try
+        {
+            return Optional.of((ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+                                                                .invoke(null));
+        }
+        catch (ReflectiveOperationException e)
+        {
+            return Optional.empty();
+        }
+    }
+
     @Override
     public RestClient withLocalCache(String name)
     {
         return this.withCache(CacheUtils.newLocalJsonFolderCache(name));
     }
 
+    @Override
+    public RestClient withLocalRawCache(String name)
+    {
+        return new CachedRestClient(this, new LocalRawFolderCache(new File("cache/raw/" + name))).withRawResponseCaching();
+    }
+
+    @Override
+    public RestClient withLocalCompressedCache(String name)
+    {
+        return new CachedRestClient(this, new LocalRawFolderCache(new File("cache/compressed/" + name))).withCompression();
+    }
+
+    @Override
+    public RestClient withLocalTieredCache(String name, long maximumMemoryWeightInBytes)
+    {
+        return new CachedRestClient(this, new TieredCache(new BoundedInMemoryCache(maximumMemoryWeightInBytes),
+                                                          new MappedSegmentCache(new File("cache/tiered/" + name)))).withRawResponseCaching();
+    }
+
+    @Override
+    public RestClient withInMemoryCache(long maximumWeightInBytes)
+    {
+        return this.withCache(new BoundedInMemoryCache(maximumWeightInBytes));
+    }
+
 }
@@ -33,14 +33,35 @@
 */
 package org.omnaest.utils.rest.client.internal;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
-import org.apache.commons.lang3.StringUtils;
+import org.apache.http.entity.ContentType;
 import org.omnaest.utils.JSONHelper;
 import org.omnaest.utils.MapUtils;
+import org.omnaest.utils.exception.RuntimeIOException;
 import org.omnaest.utils.rest.client.RestClient;
 import org.omnaest.utils.rest.client.RestHelper;
+import org.omnaest.utils.rest.client.RestHelper.BodyWriter;
+import org.omnaest.utils.rest.client.internal.entity.NDJsonEntity;
+import org.omnaest.utils.rest.client.internal.holder.RawResponse;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
  * @see RestClient
@@ -49,6 +70,11 @@ import org.omnaest.utils.rest.client.RestHelper;
  */
 public class JSONRestClient extends AbstractRestClient
 {
+    /**
+     * Every json request and response body of this client is read and written by this single {@link ObjectMapper}, so a type is (de)serialized
+     * the same way regardless of the request method and whether the body is streamed or not.
+     */
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
 
     public JSONRestClient()
     {
@@ -63,7 +89,9 @@ public class JSONRestClient extends AbstractRestClient
                           .put("Accept", this.acceptMediaType)
                           .putAll(headers)
                           .build();
-        return JSONHelper.readFromString(RestHelper.requestGet(url, headers, this.createRequestOptions()), type);
+        Map<String, String> queryParameters = Collections.emptyMap();
+        return RestHelper.requestGetAndDecode(url, queryParameters, headers, this.createRequestOptions(), this.createDecoder(type))
+                         .get();
     }
 
     @Override
@@ -74,24 +102,237 @@ public class JSONRestClient extends AbstractRestClient
                           .putAll(headers)
                           .build();
         Map<String, String> queryParameters = Collections.emptyMap();
-        ResponseHolder<String> response = RestHelper.requestGetAsStringAnd(url, queryParameters, headers, this.createRequestOptions());
-        return response.map(string -> JSONHelper.readFromString(StringUtils.defaultString(string), type));
+        return RestHelper.requestGetAndDecode(url, queryParameters, headers, this.createRequestOptions(), this.createDecoder(type));
+    }
+
+    @Override
+    public <T> T decode(RawResponse rawResponse, Class<T> type)
+    {
+        try (Reader reader = new InputStreamReader(new ByteArrayInputStream(rawResponse.getBody()), this.determineCharset(rawResponse)))
+        {
+            return this.createDecoder(type)
+                       .apply(reader);
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeIOException(e);
+        }
+    }
+
+    @Override
+    public <T> CompletableFuture<T> requestGetAsync(String url, Class<T> type, Map<String, String> headers)
+    {
+        return RestHelper.thenApplyCancellable(this.requestGetAndAsync(url, type, headers), ResponseHolder::get);
+    }
+
+    @Override
+    public <T> CompletableFuture<ResponseHolder<T>> requestGetAndAsync(String url, Class<T> type, Map<String, String> headers)
+    {
+        headers = MapUtils.builder()
+                          .put("Accept", this.acceptMediaType)
+                          .putAll(headers)
+                          .build();
+        Map<String, String> queryParameters = Collections.emptyMap();
+        return RestHelper.requestGetAndDecodeAsync(url, queryParameters, headers, this.createRequestOptions(), this.createDecoder(type));
+    }
+
+    @Override
+    public <T> Stream<T> requestGetAsStream(String url, Class<T> elementType, Map<String, String> headers)
+    {
+        headers = MapUtils.builder()
+                          .put("Accept", this.acceptMediaType + ", " + MediaType.APPLICATION_NDJSON.getHeaderValue())
+                          .putAll(headers)
+                          .build();
+        Map<String, String> queryParameters = Collections.emptyMap();
+        BiFunction<Reader, ContentType, Iterator<T>> iteratorFactory = (reader, contentType) ->
+        {
+            boolean isNDJson = contentType != null && MediaType.APPLICATION_NDJSON.getHeaderValue()
+                                                                                  .equalsIgnoreCase(contentType.getMimeType());
+            return this.createElementIterator(reader, elementType, !isNDJson);
+        };
+        return RestHelper.requestGetAsStream(url, queryParameters, headers, this.createRequestOptions(), iteratorFactory);
+    }
+
+    /**
+     * Returns an {@link Iterator} which reads the elements one by one from the given {@link Reader}. The elements are either wrapped into a top level
+     * json array, or are a sequence of root level json values like in newline delimited json.
+     * 
+     * @param reader
+     * @param elementType
+     * @param wrappedInArray
+     * @return
+     */
+    protected <T> Iterator<T> createElementIterator(Reader reader, Class<T> elementType, boolean wrappedInArray)
+    {
+        try
+        {
+            JsonParser parser = OBJECT_MAPPER.getFactory()
+                                             .createParser(reader);
+            JsonToken firstToken = parser.nextToken();
+            if (wrappedInArray && firstToken != null && firstToken != JsonToken.START_ARRAY)
+            {
+                throw new IllegalStateException("Json response is not an array but starts with " + firstToken);
+            }
+            return new Iterator<T>()
+            {
+                private JsonToken currentToken = wrappedInArray && firstToken != null ? parser.nextToken() : firstToken;
+
+                @Override
+                public boolean hasNext()
+                {
+                    return this.currentToken != null && this.currentToken != JsonToken.END_ARRAY;
+                }
+
+                @Override
+                public T next()
+                {
+                    if (!this.hasNext())
+                    {
+                        throw new NoSuchElementException();
+                    }
+                    try
+                    {
+                        T element = OBJECT_MAPPER.readValue(parser, elementType);
+                        this.currentToken = parser.nextToken();
+                        return element;
+                    }
+                    catch (JsonProcessingException e)
+                    {
+                        throw new IllegalStateException("Unable to parse json element into " + elementType, e);
+                    }
+                    catch (IOException e)
+                    {
+                        throw new RuntimeIOException(e);
+                    }
+                }
+            };
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeIOException(e);
+        }
+    }
+
+    /**
+     * Returns a decoder which binds the json directly from the response {@link Reader} without an intermediate {@link String}. An empty body is
+     * decoded to null.
+     * 
+     * @param type
+     * @return
+     */
+    protected <T> Function<Reader, T> createDecoder(Class<T> type)
+    {
+        return reader ->
+        {
+            try (JsonParser parser = OBJECT_MAPPER.getFactory()
+                                                  .createParser(reader))
+            {
+                return parser.nextToken() != null ? OBJECT_MAPPER.readValue(parser, type) : null;
+            }
+            catch (JsonProcessingException e)
+            {
+                throw new IllegalStateException("Unable to parse json response into " + type, e);
+            }
+            catch (IOException e)
+            {
+                throw new RuntimeIOException(e);
+            }
+        };
     }
 
     @Override
     public <R, B> R requestPost(String url, B body, Class<R> responseType, Map<String, String> headers)
     {
-        return JSONHelper.readFromString(RestHelper.requestPost(url, JSONHelper.serialize(body), headers, this.createRequestOptions()
-                                                                                                              .setContentType("application/json")),
-                                         responseType);
+        Map<String, String> queryParameters = Collections.emptyMap();
+        return this.readFromString(RestHelper.requestPost(url, queryParameters, this.createBodyWriter(body), headers,
+                                                          this.createRequestOptions()
+                                                              .setContentType("application/json")),
+                                   responseType);
+    }
+
+    @Override
+    public <R, B> CompletableFuture<R> requestPostAsync(String url, B body, Class<R> responseType, Map<String, String> headers)
+    {
+        Map<String, String> queryParameters = Collections.emptyMap();
+        CompletableFuture<String> future = RestHelper.requestPostAsync(url, queryParameters, this.serialize(body), headers,
+                                                                       this.createRequestOptions()
+                                                                           .setContentType("application/json"));
+        return RestHelper.thenApplyCancellable(future, response -> this.readFromString(response, responseType));
+    }
+
+    @Override
+    public <R, B> R requestPostAsNDJson(String url, Iterator<B> elements, Class<R> resultType, Map<String, String> headers)
+    {
+        Map<String, String> queryParameters = Collections.emptyMap();
+        return this.readFromString(RestHelper.requestPost(url, queryParameters, new NDJsonEntity<>(elements, OBJECT_MAPPER), headers,
+                                                          this.createRequestOptions()
+                                                              .setContentType(MediaType.APPLICATION_NDJSON.getHeaderValue())),
+                                   resultType);
     }
 
     @Override
     public <R, B> R requestPatch(String url, B body, Class<R> responseType, Map<String, String> headers)
     {
-        return JSONHelper.readFromString(RestHelper.requestPatch(url, JSONHelper.serialize(body), headers, this.createRequestOptions()
-                                                                                                               .setContentType("application/json")),
-                                         responseType);
+        Map<String, String> queryParameters = Collections.emptyMap();
+        return this.readFromString(RestHelper.requestPatch(url, queryParameters, this.createBodyWriter(body), headers,
+                                                           this.createRequestOptions()
+                                                               .setContentType("application/json")),
+                                   responseType);
+    }
+
+    /**
+     * Returns a {@link BodyWriter} which serializes the given body as json directly into the request stream
+     * 
+     * @param body
+     * @return
+     */
+    protected <B> BodyWriter createBodyWriter(B body)
+    {
+        return outputStream ->
+        {
+            try
+            {
+                OBJECT_MAPPER.writer()
+                             .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                             .writeValue(outputStream, body);
+            }
+            catch (JsonProcessingException e)
+            {
+                throw new IllegalArgumentException("Unable to serialize request body to json: " + body, e);
+            }
+        };
+    }
+
+    /**
+     * Parses the given json response body into the given type. An empty body is parsed to null.
+     * 
+     * @param json
+     * @param type
+     * @return
+     */
+    protected <T> T readFromString(String json, Class<T> type)
+    {
+        return json != null ? this.createDecoder(type)
+                                  .apply(new StringReader(json))
+                : null;
+    }
+
+    /**
+     * Serializes the given request body into a json {@link String}
+     * 
+     * @param body
+     * @return
+     */
+    protected <B> String serialize(B body)
+    {
+        try
+        {
+            return OBJECT_MAPPER.writeValueAsString(body);
+        }
+        catch (JsonProcessingException e)
+        {
+            throw new IllegalArgumentException("Unable to serialize request body to json: " + body, e);
+        }
     }
 
 }
@@ -1,11 +1,15 @@
 package org.omnaest.utils.rest.client.internal;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
@@ -14,12 +18,14 @@ import org.apache.http.client.methods.HttpPost;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.mime.HttpMultipartMode;
 import org.apache.http.entity.mime.MultipartEntityBuilder;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
+import org.apache.http.entity.mime.content.AbstractContentBody;
 import org.apache.http.util.EntityUtils;
 import org.omnaest.utils.exception.RuntimeIOException;
 import org.omnaest.utils.rest.client.RestClient.MultipartUploader;
 import org.omnaest.utils.rest.client.RestClient.MultipartUploader.PreparedMultipartUpload.MultipartUploadResponse;
+import org.omnaest.utils.rest.client.RestHelper;
+import org.omnaest.utils.rest.client.RestHelper.RESTConnectException;
+import org.omnaest.utils.rest.client.RestHelper.RequestOptions;
 
 public class MultipartUploaderImpl implements MultipartUploader
 {
@@ -33,23 +39,54 @@ public class MultipartUploaderImpl implements MultipartUploader
             @Override
             public PreparedMultipartUpload upload(String name, String fileName, byte[] data, Consumer<MultipartUploadResponse> responseHandler)
             {
-                try (CloseableHttpClient httpClient = HttpClients.createDefault())
-                {
-                    HttpPost post = new HttpPost(url);
-                    this.headers.forEach(post::addHeader);
-                    MultipartEntityBuilder builder = MultipartEntityBuilder.create();
-                    builder.setMode(HttpMultipartMode.BROWSER_COMPATIBLE);
-                    builder.addBinaryBody(name, data, ContentType.DEFAULT_BINARY, fileName);
-                    HttpEntity entity = builder.build();
-                    post.setEntity(entity);
-                    HttpResponse response = httpClient.execute(post);
+                return this.upload(this.createMultipartEntityBuilder()
+                                       .addBinaryBody(name, data, ContentType.DEFAULT_BINARY, fileName),
+                                   responseHandler);
+            }
+
+            @Override
+            public PreparedMultipartUpload upload(String name, Path file, Consumer<MultipartUploadResponse> responseHandler)
+            {
+                return this.upload(this.createMultipartEntityBuilder()
+                                       .addBinaryBody(name, file.toFile(), ContentType.DEFAULT_BINARY, String.valueOf(file.getFileName())),
+                                   responseHandler);
+            }
+
+            @Override
+            public PreparedMultipartUpload upload(String name, String fileName, Supplier<InputStream> data, long length,
+                                                  Consumer<MultipartUploadResponse> responseHandler)
+            {
+                return this.upload(this.createMultipartEntityBuilder()
+                                       .addPart(name, new SuppliedInputStreamBody(data, length, fileName)),
+                                   responseHandler);
+            }
+
+            private MultipartEntityBuilder createMultipartEntityBuilder()
+            {
+                MultipartEntityBuilder builder = MultipartEntityBuilder.create();
+                builder.setMode(HttpMultipartMode.BROWSER_COMPATIBLE);
+                return builder;
+            }
 
+            private PreparedMultipartUpload upload(MultipartEntityBuilder builder, Consumer<MultipartUploadResponse> responseHandler)
+            {
+                HttpPost post = new HttpPost(url);
+                HttpEntity entity = builder.build();
+                post.setEntity(entity);
+                try
+                {
+                    RequestOptions options = null;
+                    MultipartUploadResponse response = RestHelper.execute(post, this.headers, options, MultipartUploadResponseImpl::new);
                     Optional.ofNullable(responseHandler)
-                            .ifPresent(consumer -> consumer.accept(new MultipartUploadResponseImpl(response)));
+                            .ifPresent(consumer -> consumer.accept(response));
                 }
-                catch (IOException e)
+                catch (RESTConnectException e)
                 {
-                    throw new RuntimeIOException(e);
+                    if (e.getCause() instanceof IOException)
+                    {
+                        throw new RuntimeIOException((IOException) e.getCause());
+                    }
+                    throw e;
                 }
                 return this;
             }
@@ -66,21 +103,80 @@ public class MultipartUploaderImpl implements MultipartUploader
         };
     }
 
+    /**
+     * Multipart body which streams the content of the {@link InputStream}s provided by a {@link Supplier}
+     * 
+     * @author omnaest
+     */
+    private static class SuppliedInputStreamBody extends AbstractContentBody
+    {
+        private final Supplier<InputStream> data;
+        private final long                  length;
+        private final String                fileName;
+
+        public SuppliedInputStreamBody(Supplier<InputStream> data, long length, String fileName)
+        {
+            super(ContentType.DEFAULT_BINARY);
+            this.data = data;
+            this.length = length;
+            this.fileName = fileName;
+        }
+
+        @Override
+        public String getFilename()
+        {
+            return this.fileName;
+        }
+
+        @Override
+        public void writeTo(OutputStream outputStream) throws IOException
+        {
+            try (InputStream inputStream = this.data.get())
+            {
+                byte[] buffer = new byte[8192];
+                int count;
+                while ((count = inputStream.read(buffer)) != -1)
+                {
+                    outputStream.write(buffer, 0, count);
+                }
+            }
+        }
+
+        @Override
+        public String getTransferEncoding()
+        {
+            return "binary";
+        }
+
+        @Override
+        public long getContentLength()
+        {
+            return this.length;
+        }
+    }
+
     public static class MultipartUploadResponseImpl implements MultipartUploadResponse
     {
-        private final HttpResponse response;
+        private final int    httpStatusCode;
+        private final String body;
 
+        /**
+         * Reads the body of the given {@link HttpResponse}, so the response can be released directly afterwards
+         * 
+         * @param response
+         */
         public MultipartUploadResponseImpl(HttpResponse response)
         {
-            this.response = response;
+            this.httpStatusCode = response.getStatusLine()
+                                          .getStatusCode();
+            this.body = readBody(response);
         }
 
-        @Override
-        public String getBody()
+        private static String readBody(HttpResponse response)
         {
             try
             {
-                return EntityUtils.toString(this.response.getEntity(), StandardCharsets.UTF_8);
+                return response.getEntity() != null ? EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8) : null;
             }
             catch (ParseException | IOException e)
             {
@@ -88,11 +184,16 @@ public class MultipartUploaderImpl implements MultipartUploader
             }
         }
 
+        @Override
+        public String getBody()
+        {
+            return this.body;
+        }
+
         @Override
         public int getHttpStatusCode()
         {
-            return this.response.getStatusLine()
-                                .getStatusCode();
+            return this.httpStatusCode;
         }
 
         @Override
@@ -105,4 +206,4 @@ public class MultipartUploaderImpl implements MultipartUploader
             return this;
         }
     }
-}
\ No newline at end of file
+}
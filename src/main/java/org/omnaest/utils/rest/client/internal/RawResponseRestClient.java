@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.rest.client.internal;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.omnaest.utils.rest.client.RestClient;
+import org.omnaest.utils.rest.client.RestClient.ResponseHolder;
+import org.omnaest.utils.rest.client.internal.holder.RawResponse;
+
+/**
+ * {@link RestClient} which provides the undecoded response of a GET request and is able to decode it later on. This allows a cache to store
+ * the original response body instead of the decoded result.
+ *
+ * @author omnaest
+ */
+public interface RawResponseRestClient
+{
+    /**
+     * Similar to {@link RestClient#requestGetAnd(String, Class, Map)} but without decoding the response body
+     * 
+     * @param url
+     * @param headers
+     * @return
+     */
+    public ResponseHolder<RawResponse> requestGetRawAnd(String url, Map<String, String> headers);
+
+    /**
+     * Non blocking counterpart of {@link #requestGetRawAnd(String, Map)}
+     * 
+     * @param url
+     * @param headers
+     * @return
+     */
+    public CompletableFuture<ResponseHolder<RawResponse>> requestGetRawAndAsync(String url, Map<String, String> headers);
+
+    /**
+     * Decodes the given {@link RawResponse} in the same way as a response of {@link RestClient#requestGetAnd(String, Class, Map)} would be
+     * decoded
+     * 
+     * @param rawResponse
+     * @param type
+     * @return
+     */
+    public <T> T decode(RawResponse rawResponse, Class<T> type);
+}
@@ -16,8 +16,15 @@
 package org.omnaest.utils.rest.client.internal;
 
 import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 import org.omnaest.utils.cache.Cache;
 import org.omnaest.utils.rest.client.RestClient;
@@ -29,6 +36,9 @@ import org.slf4j.LoggerFactory;
 public class RetryingRestClient extends InternalRestClient
 {
     private static final Logger LOG = LoggerFactory.getLogger(RetryingRestClient.class);
+
+    private static final ScheduledThreadPoolExecutor RETRY_SCHEDULER = createRetryScheduler();
+
     private RestClient          restClient;
     private int                 times;
     private long                duration;
@@ -43,6 +53,19 @@ public class RetryingRestClient extends InternalRestClient
         this.timeUnit = timeUnit;
     }
 
+    private static ScheduledThreadPoolExecutor createRetryScheduler()
+    {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable ->
+        {
+            Thread thread = new Thread(runnable, "RetryingRestClient-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // retries of cancelled requests are dropped from the queue instead of lingering until their delay has passed
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+
     private static interface Operation<T>
     {
         public T execute();
@@ -60,7 +83,7 @@ public class RetryingRestClient extends InternalRestClient
             catch (RESTAccessExeption e)
             {
                 int statusCode = e.getStatusCode();
-                if ((statusCode < 200 || (statusCode > 299 && statusCode < 400) || statusCode > 404) && isNotLastRetry)
+                if (this.isRetryableStatusCode(statusCode) && isNotLastRetry)
                 {
                     try
                     {
@@ -103,6 +126,84 @@ public class RetryingRestClient extends InternalRestClient
         throw new IllegalStateException();
     }
 
+    private boolean isRetryableStatusCode(int statusCode)
+    {
+        return statusCode < 200 || (statusCode > 299 && statusCode < 400) || statusCode > 404;
+    }
+
+    /**
+     * Executes the given non blocking operation and retries it like {@link #execute(Operation)} without blocking a thread in between. Cancelling
+     * the returned {@link CompletableFuture} cancels the currently running attempt and any pending retry.
+     * 
+     * @param operation
+     * @return
+     */
+    private <T> CompletableFuture<T> executeAsync(Operation<CompletableFuture<T>> operation)
+    {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        this.executeAsync(operation, 0, result);
+        return result;
+    }
+
+    private <T> void executeAsync(Operation<CompletableFuture<T>> operation, int retry, CompletableFuture<T> result)
+    {
+        if (result.isDone())
+        {
+            return;
+        }
+
+        boolean isNotLastRetry = retry < this.times - 1;
+        CompletableFuture<T> future;
+        try
+        {
+            future = operation.execute();
+        }
+        catch (RuntimeException e)
+        {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+        }
+        this.cancelOnCancellation(result, future);
+        future.whenComplete((value, exception) ->
+        {
+            if (exception == null)
+            {
+                result.complete(value);
+                return;
+            }
+
+            Throwable cause = exception instanceof CompletionException && exception.getCause() != null ? exception.getCause() : exception;
+            boolean isRetryable = (cause instanceof RESTAccessExeption && this.isRetryableStatusCode(((RESTAccessExeption) cause).getStatusCode()))
+                    || cause instanceof RESTConnectException;
+            if (result.isDone())
+            {
+                LOG.trace("Request has been cancelled", cause);
+            }
+            else if (isRetryable && isNotLastRetry)
+            {
+                LOG.info("Request failed -> retry operation in " + this.duration + " " + this.timeUnit);
+                this.cancelOnCancellation(result, RETRY_SCHEDULER.schedule(() -> this.executeAsync(operation, retry + 1, result), this.duration,
+                                                                           this.timeUnit));
+            }
+            else
+            {
+                LOG.trace("Failed to execute request", cause);
+                result.completeExceptionally(cause);
+            }
+        });
+    }
+
+    private void cancelOnCancellation(CompletableFuture<?> result, Future<?> future)
+    {
+        result.whenComplete((value, exception) ->
+        {
+            if (result.isCancelled())
+            {
+                future.cancel(true);
+            }
+        });
+    }
+
     @Override
     public <T> T requestGet(String url, Class<T> type)
     {
@@ -121,6 +222,24 @@ public class RetryingRestClient extends InternalRestClient
         return this.execute(() -> this.restClient.requestGetAnd(url, type, headers));
     }
 
+    @Override
+    public ResponseHolder<Long> requestDownload(String url, Path target, Map<String, String> headers)
+    {
+        return this.execute(() -> this.restClient.requestDownload(url, target, headers));
+    }
+
+    @Override
+    public ResponseHolder<Long> requestDownload(String url, Path target, int numberOfRanges, Map<String, String> headers)
+    {
+        return this.execute(() -> this.restClient.requestDownload(url, target, numberOfRanges, headers));
+    }
+
+    @Override
+    public <T> Stream<T> requestGetAsStream(String url, Class<T> elementType, Map<String, String> headers)
+    {
+        return this.execute(() -> this.restClient.requestGetAsStream(url, elementType, headers));
+    }
+
     @Override
     public <R, B> R requestPost(String url, B body, Class<R> resultType, Map<String, String> headers)
     {
@@ -133,6 +252,33 @@ public class RetryingRestClient extends InternalRestClient
         return this.execute(() -> this.restClient.requestPost(url, body, resultType));
     }
 
+    @Override
+    public <T> CompletableFuture<T> requestGetAsync(String url, Class<T> type, Map<String, String> headers)
+    {
+        return this.executeAsync(() -> this.restClient.requestGetAsync(url, type, headers));
+    }
+
+    @Override
+    public <T> CompletableFuture<ResponseHolder<T>> requestGetAndAsync(String url, Class<T> type, Map<String, String> headers)
+    {
+        return this.executeAsync(() -> this.restClient.requestGetAndAsync(url, type, headers));
+    }
+
+    @Override
+    public <R, B> CompletableFuture<R> requestPostAsync(String url, B body, Class<R> resultType, Map<String, String> headers)
+    {
+        return this.executeAsync(() -> this.restClient.requestPostAsync(url, body, resultType, headers));
+    }
+
+    /**
+     * Is not retried, as the given elements can only be consumed once
+     */
+    @Override
+    public <R, B> R requestPostAsNDJson(String url, Iterator<B> elements, Class<R> resultType, Map<String, String> headers)
+    {
+        return this.restClient.requestPostAsNDJson(url, elements, resultType, headers);
+    }
+
     @Override
     public <R, B> R requestPatch(String url, B body, Class<R> resultType, Map<String, String> headers)
     {
@@ -151,6 +297,24 @@ public class RetryingRestClient extends InternalRestClient
         return this.restClient.withCache(cache);
     }
 
+    @Override
+    public RestClient withLocalRawCache(String name)
+    {
+        return this.restClient.withLocalRawCache(name);
+    }
+
+    @Override
+    public RestClient withLocalCompressedCache(String name)
+    {
+        return this.restClient.withLocalCompressedCache(name);
+    }
+
+    @Override
+    public RestClient withLocalTieredCache(String name, long maximumMemoryWeightInBytes)
+    {
+        return this.restClient.withLocalTieredCache(name, maximumMemoryWeightInBytes);
+    }
+
     @Override
     public RestClient withRetry(int times, long duration, TimeUnit timeUnit)
     {
@@ -175,6 +339,12 @@ public class RetryingRestClient extends InternalRestClient
         return this.restClient.withoutSSLHostnameVerification();
     }
 
+    @Override
+    public RestClient withConnectionPool(int maxConnectionsTotal, int maxConnectionsPerRoute)
+    {
+        return this.restClient.withConnectionPool(maxConnectionsTotal, maxConnectionsPerRoute);
+    }
+
     @Override
     public RestClient withAcceptMediaType(String mediaType)
     {
@@ -35,11 +35,13 @@ package org.omnaest.utils.rest.client.internal;
 
 import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import org.omnaest.utils.JSONHelper;
 import org.omnaest.utils.MapUtils;
 import org.omnaest.utils.rest.client.RestClient;
 import org.omnaest.utils.rest.client.RestHelper;
+import org.omnaest.utils.rest.client.internal.holder.RawResponse;
 
 /**
  * @see RestClient
@@ -90,6 +92,41 @@ public class StringRestClient extends AbstractRestClient
                          .map(string -> (T) string);
     }
 
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T> T decode(RawResponse rawResponse, Class<T> type)
+    {
+        if (!String.class.isAssignableFrom(type))
+        {
+            throw new IllegalArgumentException("Only String type allowed for this implementation");
+        }
+        return (T) rawResponse.getBodyAsString(this.determineCharset(rawResponse));
+    }
+
+    @Override
+    public <T> CompletableFuture<T> requestGetAsync(String url, Class<T> type, Map<String, String> headers)
+    {
+        return RestHelper.thenApplyCancellable(this.requestGetAndAsync(url, type, headers), ResponseHolder::get);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T> CompletableFuture<ResponseHolder<T>> requestGetAndAsync(String url, Class<T> type, Map<String, String> headers)
+    {
+        if (!String.class.isAssignableFrom(type))
+        {
+            throw new IllegalArgumentException("Only String type allowed for this implementation");
+        }
+
+        headers = MapUtils.builder()
+                          .put("Accept", this.acceptMediaType)
+                          .putAll(headers)
+                          .build();
+        Map<String, String> queryParameters = Collections.emptyMap();
+        CompletableFuture<ResponseHolder<String>> future = RestHelper.requestGetAsStringAsync(url, queryParameters, headers, this.createRequestOptions());
+        return RestHelper.thenApplyCancellable(future, response -> response.map(body -> (T) body));
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public <R, B> R requestPost(String url, B body, Class<R> resultType, Map<String, String> headers)
@@ -98,6 +135,17 @@ public class StringRestClient extends AbstractRestClient
         return (R) RestHelper.requestPost(url, (String) body, this.enrichHeaders(headers), this.createRequestOptions());
     }
 
+    @SuppressWarnings("unchecked")
+    @Override
+    public <R, B> CompletableFuture<R> requestPostAsync(String url, B body, Class<R> resultType, Map<String, String> headers)
+    {
+        this.validateBodyAndResultType(body, resultType);
+        Map<String, String> queryParameters = Collections.emptyMap();
+        CompletableFuture<String> future = RestHelper.requestPostAsync(url, queryParameters, (String) body, this.enrichHeaders(headers),
+                                                                       this.createRequestOptions());
+        return RestHelper.thenApplyCancellable(future, response -> (R) response);
+    }
+
     private Map<String, String> enrichHeaders(Map<String, String> headers)
     {
         headers = MapUtils.builder()
@@ -35,11 +35,13 @@ package org.omnaest.utils.rest.client.internal;
 
 import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import org.apache.commons.lang3.StringUtils;
 import org.omnaest.utils.XMLHelper;
 import org.omnaest.utils.rest.client.RestClient;
 import org.omnaest.utils.rest.client.RestHelper;
+import org.omnaest.utils.rest.client.internal.holder.RawResponse;
 
 /**
  * @see RestClient
@@ -62,12 +64,41 @@ public class XMLRestClient extends AbstractRestClient
                          .map(xml -> XMLHelper.parse(StringUtils.defaultString(xml), type));
     }
 
+    @Override
+    public <T> T decode(RawResponse rawResponse, Class<T> type)
+    {
+        return XMLHelper.parse(rawResponse.getBodyAsString(this.determineCharset(rawResponse)), type);
+    }
+
+    @Override
+    public <T> CompletableFuture<T> requestGetAsync(String url, Class<T> type, Map<String, String> headers)
+    {
+        return RestHelper.thenApplyCancellable(this.requestGetAndAsync(url, type, headers), ResponseHolder::get);
+    }
+
+    @Override
+    public <T> CompletableFuture<ResponseHolder<T>> requestGetAndAsync(String url, Class<T> type, Map<String, String> headers)
+    {
+        Map<String, String> queryParameters = Collections.emptyMap();
+        CompletableFuture<ResponseHolder<String>> future = RestHelper.requestGetAsStringAsync(url, queryParameters, headers, this.createRequestOptions());
+        return RestHelper.thenApplyCancellable(future, response -> response.map(body -> XMLHelper.parse(body, type)));
+    }
+
     @Override
     public <R, B> R requestPost(String url, B body, Class<R> resultType, Map<String, String> headers)
     {
         return XMLHelper.parse(RestHelper.requestPost(url, XMLHelper.serialize(body), headers, this.createRequestOptions()), resultType);
     }
 
+    @Override
+    public <R, B> CompletableFuture<R> requestPostAsync(String url, B body, Class<R> resultType, Map<String, String> headers)
+    {
+        Map<String, String> queryParameters = Collections.emptyMap();
+        CompletableFuture<String> future = RestHelper.requestPostAsync(url, queryParameters, XMLHelper.serialize(body), headers,
+                                                                       this.createRequestOptions());
+        return RestHelper.thenApplyCancellable(future, response -> XMLHelper.parse(response, resultType));
+    }
+
     @Override
     public <R, B> R requestPatch(String url, B body, Class<R> resultType, Map<String, String> headers)
     {
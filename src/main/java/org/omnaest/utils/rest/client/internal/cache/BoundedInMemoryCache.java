@@ -0,0 +1,568 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.rest.client.internal.cache;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+import org.omnaest.utils.cache.Cache;
+import org.omnaest.utils.rest.client.internal.holder.RawResponse;
+
+/**
+ * In memory {@link Cache} which is bounded by a maximum weight in bytes. The weight of an entry is the size of the response body it has been
+ * decoded from, if it is given by {@link #put(String, Object, long)}, and is estimated from its payload size otherwise, see
+ * {@link #DEFAULT_WEIGHER}.<br>
+ * <br>
+ * Admission and eviction follow the W-TinyLFU policy: new entries enter a small LRU window and have to compete against the least recently
+ * used entry of the main space when they leave the window. Only the entry with the higher estimated access frequency is kept, so large one-off
+ * entries do not evict small frequently accessed entries. The main space is a segmented LRU with a probation and a protected segment.<br>
+ * <br>
+ * Entries are stored in a {@link ConcurrentHashMap}, so reads do not block. Accesses are recorded in a lock free {@link FrequencySketch} and
+ * buffered, while the eviction policy is maintained under a single lock which is only acquired by writes and by reads if it is free.
+ *
+ * @author omnaest
+ */
+public class BoundedInMemoryCache implements WeightAwareCache, MeasurableCache
+{
+    private static final int    READ_BUFFER_SIZE        = 128;
+    private static final double WINDOW_RATIO            = 0.01;
+    private static final double PROTECTED_RATIO         = 0.8;
+    private static final long   ENTRY_OVERHEAD_IN_BYTES = 64;
+    private static final long   OBJECT_WEIGHT_IN_BYTES  = 256;
+    private static final int    MAX_SAMPLE_SIZE         = 16;
+    private static final int    MAX_SAMPLE_DEPTH        = 3;
+
+    /**
+     * Estimates the weight of an entry in bytes from the size of its payload. Arrays, collections and maps are estimated from a sample of
+     * their elements and any other object has a fixed weight, so the estimate is cheap compared to serializing the value on each put. As
+     * the fixed weight does not reflect the content of an object, decoded responses should be put with the size of their body by
+     * {@link #put(String, Object, long)}.
+     */
+    public static final ToLongFunction<Object> DEFAULT_WEIGHER = value -> estimateWeight(value, 0);
+
+    private final long                   maximumWeight;
+    private final long                   maximumWindowWeight;
+    private final long                   maximumProtectedWeight;
+    private final ToLongFunction<Object> weigher;
+
+    private final Map<String, Node> data           = new ConcurrentHashMap<>();
+    private final FrequencySketch   sketch;
+    private final Queue<Node>       readBuffer     = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger     readBufferSize = new AtomicInteger();
+    private final ReentrantLock     evictionLock   = new ReentrantLock();
+
+    private final List<Consumer<String>> evictionListeners = new CopyOnWriteArrayList<>();
+
+    private final LinkedHashMap<String, Node> windowSegment    = new LinkedHashMap<>();
+    private final LinkedHashMap<String, Node> probationSegment = new LinkedHashMap<>();
+    private final LinkedHashMap<String, Node> protectedSegment = new LinkedHashMap<>();
+
+    private long windowWeight    = 0;
+    private long probationWeight = 0;
+    private long protectedWeight = 0;
+
+    private static enum Segment
+    {
+        WINDOW, PROBATION, PROTECTED
+    }
+
+    private static class Node
+    {
+        private final String key;
+        private final Object value;
+        private final long   weight;
+        private Segment      segment;
+
+        public Node(String key, Object value, long weight)
+        {
+            super();
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    private static long estimateWeight(Object value, int depth)
+    {
+        if (value == null)
+        {
+            return 0;
+        }
+        else if (value instanceof byte[])
+        {
+            return ((byte[]) value).length;
+        }
+        else if (value instanceof CharSequence)
+        {
+            return ((CharSequence) value).length() * 2l;
+        }
+        else if (value instanceof Number || value instanceof Boolean || value instanceof Character || value instanceof Enum)
+        {
+            return 16;
+        }
+        else if (value instanceof RawResponse)
+        {
+            return ((RawResponse) value).getBody().length;
+        }
+        else if (value instanceof CompressedCacheEntry)
+        {
+            return ((CompressedCacheEntry) value).getData().length;
+        }
+        else if (depth >= MAX_SAMPLE_DEPTH)
+        {
+            return OBJECT_WEIGHT_IN_BYTES;
+        }
+        else if (value instanceof Collection)
+        {
+            Collection<?> collection = (Collection<?>) value;
+            return estimateWeight(collection, collection.size(), depth);
+        }
+        else if (value instanceof Map)
+        {
+            Map<?, ?> map = (Map<?, ?>) value;
+            return estimateWeight(map.keySet(), map.size(), depth) + estimateWeight(map.values(), map.size(), depth);
+        }
+        else if (value instanceof Object[])
+        {
+            Object[] array = (Object[]) value;
+            return estimateWeight(Arrays.asList(array), array.length, depth);
+        }
+        else if (value.getClass()
+                      .isArray())
+        {
+            return Array.getLength(value) * 8l;
+        }
+        else
+        {
+            return OBJECT_WEIGHT_IN_BYTES;
+        }
+    }
+
+    /**
+     * Estimates the weight of all elements from the average weight of the first elements
+     */
+    private static long estimateWeight(Iterable<?> elements, int size, int depth)
+    {
+        long sampleWeight = 0;
+        int sampleSize = 0;
+        Iterator<?> iterator = elements.iterator();
+        while (sampleSize < MAX_SAMPLE_SIZE && iterator.hasNext())
+        {
+            sampleWeight += 8 + estimateWeight(iterator.next(), depth + 1);
+            sampleSize++;
+        }
+        return sampleSize > 0 ? sampleWeight * size / sampleSize : 0;
+    }
+
+    /**
+     * @param maximumWeightInBytes
+     */
+    public BoundedInMemoryCache(long maximumWeightInBytes)
+    {
+        this(maximumWeightInBytes, DEFAULT_WEIGHER);
+    }
+
+    /**
+     * @param maximumWeightInBytes
+     * @param weigher
+     *            estimates the weight of a value in bytes
+     */
+    public BoundedInMemoryCache(long maximumWeightInBytes, ToLongFunction<Object> weigher)
+    {
+        super();
+        this.maximumWeight = maximumWeightInBytes;
+        this.maximumWindowWeight = Math.max(1, (long) (maximumWeightInBytes * WINDOW_RATIO));
+        this.maximumProtectedWeight = (long) ((maximumWeightInBytes - this.maximumWindowWeight) * PROTECTED_RATIO);
+        this.weigher = weigher;
+        this.sketch = new FrequencySketch((int) Math.min(Integer.MAX_VALUE, maximumWeightInBytes / 1024));
+    }
+
+    @Override
+    public <V> V get(String key, Class<V> type)
+    {
+        Node node = this.data.get(key);
+        if (node != null)
+        {
+            this.recordRead(node);
+            return type.cast(node.value);
+        }
+        else
+        {
+            return null;
+        }
+    }
+
+    @Override
+    public Class<?> getType(String key)
+    {
+        Node node = this.data.get(key);
+        return node != null && node.value != null ? node.value.getClass() : null;
+    }
+
+    @Override
+    public boolean contains(String key)
+    {
+        return this.data.containsKey(key);
+    }
+
+    @Override
+    public <V> V computeIfAbsent(String key, Supplier<V> supplier, Class<V> type)
+    {
+        Node node = this.data.get(key);
+        if (node != null)
+        {
+            this.recordRead(node);
+            return type.cast(node.value);
+        }
+
+        V value = supplier.get();
+        if (value != null)
+        {
+            this.put(key, value);
+        }
+        return value;
+    }
+
+    @Override
+    public void put(String key, Object value)
+    {
+        this.put(key, value, this.weigher.applyAsLong(value));
+    }
+
+    @Override
+    public void put(String key, Object value, long weightInBytes)
+    {
+        long weight = ENTRY_OVERHEAD_IN_BYTES + key.length() * 2l + weightInBytes;
+        Node node = new Node(key, value, weight);
+        Node previousNode = this.data.put(key, node);
+
+        this.sketch.increment(key);
+        this.evictionLock.lock();
+        try
+        {
+            if (previousNode != null)
+            {
+                this.removeFromPolicy(previousNode);
+            }
+
+            if (weight > this.maximumWeight)
+            {
+                this.data.remove(key, node);
+            }
+            else if (this.data.get(key) == node)
+            {
+                this.addToSegment(node, Segment.WINDOW);
+                this.evict();
+            }
+        }
+        finally
+        {
+            this.evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public void remove(String key)
+    {
+        Node node = this.data.remove(key);
+        if (node != null)
+        {
+            this.evictionLock.lock();
+            try
+            {
+                this.removeFromPolicy(node);
+            }
+            finally
+            {
+                this.evictionLock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public Set<String> keySet()
+    {
+        return Collections.unmodifiableSet(new HashSet<>(this.data.keySet()));
+    }
+
+    @Override
+    public int size()
+    {
+        return this.data.size();
+    }
+
+    @Override
+    public long getWeight()
+    {
+        this.evictionLock.lock();
+        try
+        {
+            return this.windowWeight + this.probationWeight + this.protectedWeight;
+        }
+        finally
+        {
+            this.evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public void addEvictionListener(Consumer<String> listener)
+    {
+        this.evictionListeners.add(listener);
+    }
+
+    private void recordRead(Node node)
+    {
+        this.sketch.increment(node.key);
+        if (this.readBufferSize.get() < READ_BUFFER_SIZE)
+        {
+            this.readBufferSize.incrementAndGet();
+            this.readBuffer.offer(node);
+        }
+
+        if (this.evictionLock.tryLock())
+        {
+            try
+            {
+                this.drainReadBuffer();
+            }
+            finally
+            {
+                this.evictionLock.unlock();
+            }
+        }
+    }
+
+    private void drainReadBuffer()
+    {
+        Node node;
+        while ((node = this.readBuffer.poll()) != null)
+        {
+            this.readBufferSize.decrementAndGet();
+            if (node.segment != null)
+            {
+                this.onAccess(node);
+            }
+        }
+    }
+
+    private void onAccess(Node node)
+    {
+        if (node.segment == Segment.PROBATION)
+        {
+            this.removeFromSegment(node);
+            this.addToSegment(node, Segment.PROTECTED);
+            this.demoteProtected();
+        }
+        else
+        {
+            this.moveToTail(node);
+        }
+    }
+
+    private void demoteProtected()
+    {
+        Iterator<Node> iterator = this.protectedSegment.values()
+                                                       .iterator();
+        while (this.protectedWeight > this.maximumProtectedWeight && iterator.hasNext())
+        {
+            Node node = iterator.next();
+            iterator.remove();
+            this.protectedWeight -= node.weight;
+            this.addToSegment(node, Segment.PROBATION);
+        }
+    }
+
+    private void evict()
+    {
+        this.drainReadBuffer();
+
+        // entries leaving the window become candidates for the main space
+        List<Node> candidates = new ArrayList<>();
+        Iterator<Node> windowIterator = this.windowSegment.values()
+                                                          .iterator();
+        while (this.windowWeight > this.maximumWindowWeight && windowIterator.hasNext())
+        {
+            Node node = windowIterator.next();
+            windowIterator.remove();
+            this.windowWeight -= node.weight;
+            this.addToSegment(node, Segment.PROBATION);
+            candidates.add(node);
+        }
+
+        // a candidate is compared against the next victim as long as it wins, as the policy has to hold for every evicted entry
+        Iterator<Node> candidateIterator = candidates.iterator();
+        Node candidate = nextCandidate(candidateIterator);
+        while (this.windowWeight + this.probationWeight + this.protectedWeight > this.maximumWeight)
+        {
+            Node victim = this.determineVictim(candidate);
+            if (candidate == null || victim == null)
+            {
+                this.evictNode(victim != null ? victim : this.determineAnyVictim());
+            }
+            else if (this.sketch.frequency(candidate.key) > this.sketch.frequency(victim.key))
+            {
+                this.evictNode(victim);
+            }
+            else
+            {
+                this.evictNode(candidate);
+            }
+
+            if (candidate != null && candidate.segment == null)
+            {
+                candidate = nextCandidate(candidateIterator);
+            }
+        }
+    }
+
+    /**
+     * Returns the next candidate which has not been evicted meanwhile
+     */
+    private static Node nextCandidate(Iterator<Node> candidateIterator)
+    {
+        while (candidateIterator.hasNext())
+        {
+            Node candidate = candidateIterator.next();
+            if (candidate.segment != null)
+            {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the least recently used entry of the main space which is not the given candidate
+     */
+    private Node determineVictim(Node candidate)
+    {
+        for (LinkedHashMap<String, Node> segment : Arrays.asList(this.probationSegment, this.protectedSegment))
+        {
+            for (Node node : segment.values())
+            {
+                if (node != candidate)
+                {
+                    return node;
+                }
+            }
+        }
+        return null;
+    }
+
+    private Node determineAnyVictim()
+    {
+        for (LinkedHashMap<String, Node> segment : Arrays.asList(this.probationSegment, this.protectedSegment, this.windowSegment))
+        {
+            if (!segment.isEmpty())
+            {
+                return segment.values()
+                              .iterator()
+                              .next();
+            }
+        }
+        throw new IllegalStateException("Cache weight exceeds maximum without any entry");
+    }
+
+    private void evictNode(Node node)
+    {
+        this.removeFromSegment(node);
+        if (this.data.remove(node.key, node))
+        {
+            this.evictionListeners.forEach(listener -> listener.accept(node.key));
+        }
+    }
+
+    private void removeFromPolicy(Node node)
+    {
+        if (node.segment != null)
+        {
+            this.removeFromSegment(node);
+        }
+    }
+
+    private void addToSegment(Node node, Segment segment)
+    {
+        node.segment = segment;
+        if (segment == Segment.WINDOW)
+        {
+            this.windowSegment.put(node.key, node);
+            this.windowWeight += node.weight;
+        }
+        else if (segment == Segment.PROBATION)
+        {
+            this.probationSegment.put(node.key, node);
+            this.probationWeight += node.weight;
+        }
+        else
+        {
+            this.protectedSegment.put(node.key, node);
+            this.protectedWeight += node.weight;
+        }
+    }
+
+    private void removeFromSegment(Node node)
+    {
+        if (node.segment == Segment.WINDOW)
+        {
+            this.windowSegment.remove(node.key, node);
+            this.windowWeight -= node.weight;
+        }
+        else if (node.segment == Segment.PROBATION)
+        {
+            this.probationSegment.remove(node.key, node);
+            this.probationWeight -= node.weight;
+        }
+        else if (node.segment == Segment.PROTECTED)
+        {
+            this.protectedSegment.remove(node.key, node);
+            this.protectedWeight -= node.weight;
+        }
+        node.segment = null;
+    }
+
+    private void moveToTail(Node node)
+    {
+        Segment segment = node.segment;
+        this.removeFromSegment(node);
+        this.addToSegment(node, segment);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "BoundedInMemoryCache [maximumWeight=" + this.maximumWeight + ", size=" + this.data.size() + "]";
+    }
+
+}
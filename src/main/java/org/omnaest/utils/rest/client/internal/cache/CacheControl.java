@@ -0,0 +1,164 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.rest.client.internal.cache;
+
+import java.util.Date;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.function.Function;
+
+import org.apache.http.client.utils.DateUtils;
+
+/**
+ * Freshness information of a response based on its <code>Cache-Control</code> and <code>Expires</code> headers
+ *
+ * @author omnaest
+ */
+public class CacheControl
+{
+    private boolean noStore              = false;
+    private boolean noCache              = false;
+    private Long    maxAgeInMillis       = null;
+    private Long    sharedMaxAgeInMillis = null;
+    private Long    expiresAt            = null;
+
+    private CacheControl()
+    {
+        super();
+    }
+
+    /**
+     * Parses the <code>Cache-Control</code> and <code>Expires</code> headers resolved by the given header resolver
+     *
+     * @param headerResolver
+     * @return
+     */
+    public static CacheControl of(Function<String, Optional<String>> headerResolver)
+    {
+        CacheControl cacheControl = new CacheControl();
+        headerResolver.apply("Cache-Control")
+                      .ifPresent(cacheControl::parseCacheControl);
+        headerResolver.apply("Expires")
+                      .ifPresent(cacheControl::parseExpires);
+        return cacheControl;
+    }
+
+    private void parseCacheControl(String value)
+    {
+        for (String directive : value.split(","))
+        {
+            String[] tokens = directive.trim()
+                                       .toLowerCase(Locale.ROOT)
+                                       .split("=", 2);
+            String name = tokens[0].trim();
+            String argument = tokens.length > 1 ? tokens[1].trim()
+                                                           .replace("\"", "")
+                    : null;
+            if ("no-store".equals(name))
+            {
+                this.noStore = true;
+            }
+            else if ("no-cache".equals(name))
+            {
+                this.noCache = true;
+            }
+            else if ("max-age".equals(name))
+            {
+                this.maxAgeInMillis = parseSeconds(argument);
+            }
+            else if ("s-maxage".equals(name))
+            {
+                this.sharedMaxAgeInMillis = parseSeconds(argument);
+            }
+        }
+    }
+
+    private void parseExpires(String value)
+    {
+        Date date = DateUtils.parseDate(value);
+
+        // invalid dates like "0" have to be treated as already expired
+        this.expiresAt = date != null ? date.getTime() : 0l;
+    }
+
+    private static Long parseSeconds(String argument)
+    {
+        try
+        {
+            return argument != null ? Math.max(0l, Long.parseLong(argument)) * 1000l : null;
+        }
+        catch (NumberFormatException e)
+        {
+            return 0l;
+        }
+    }
+
+    /**
+     * Returns true if the response must not be stored at all
+     *
+     * @return
+     */
+    public boolean isNoStore()
+    {
+        return this.noStore;
+    }
+
+    /**
+     * Returns true if the response may be stored but has to be revalidated before each reuse
+     *
+     * @return
+     */
+    public boolean isNoCache()
+    {
+        return this.noCache;
+    }
+
+    /**
+     * Returns the point in time in milliseconds at which a response received at the given time becomes stale. <code>s-maxage</code> takes
+     * precedence over <code>max-age</code>, which takes precedence over <code>Expires</code>. If no freshness information is present
+     * {@link Optional#empty()} is returned.
+     *
+     * @param receivedAt
+     * @return
+     */
+    public Optional<Long> getExpiresAt(long receivedAt)
+    {
+        if (this.noCache)
+        {
+            return Optional.of(receivedAt);
+        }
+        else if (this.sharedMaxAgeInMillis != null)
+        {
+            return Optional.of(receivedAt + this.sharedMaxAgeInMillis);
+        }
+        else if (this.maxAgeInMillis != null)
+        {
+            return Optional.of(receivedAt + this.maxAgeInMillis);
+        }
+        else
+        {
+            return Optional.ofNullable(this.expiresAt);
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "CacheControl [noStore=" + this.noStore + ", noCache=" + this.noCache + ", maxAgeInMillis=" + this.maxAgeInMillis
+                + ", sharedMaxAgeInMillis=" + this.sharedMaxAgeInMillis + ", expiresAt=" + this.expiresAt + "]";
+    }
+
+}
@@ -0,0 +1,306 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.rest.client.internal.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.omnaest.utils.JSONHelper;
+import org.omnaest.utils.exception.RuntimeIOException;
+import org.omnaest.utils.rest.client.internal.holder.RawResponse;
+
+/**
+ * Binary representation of a cache entry, which is shared by the {@link org.omnaest.utils.cache.Cache} implementations which store their
+ * entries outside of the heap.<br>
+ * <br>
+ * An entry consists of a small header with the key, the kind of the value and its type or content type, followed by the data. A
+ * {@link RawResponse} is stored with its original body bytes and a {@link CompressedCacheEntry} with its compressed bytes, any other value
+ * is stored as json.
+ *
+ * @author omnaest
+ */
+public class CacheEntryCodec
+{
+    private static final int  MAGIC_NUMBER    = 0x52415743;
+    private static final byte KIND_RAW        = 0;
+    private static final byte KIND_JSON       = 1;
+    private static final byte KIND_COMPRESSED = 2;
+
+    private CacheEntryCodec()
+    {
+        super();
+    }
+
+    /**
+     * Decoded cache entry
+     *
+     * @author omnaest
+     */
+    public static class Entry
+    {
+        private final String key;
+        private final byte   kind;
+        private final String typeOrContentType;
+        private final byte[] data;
+
+        private Entry(String key, byte kind, String typeOrContentType, byte[] data)
+        {
+            super();
+            this.key = key;
+            this.kind = kind;
+            this.typeOrContentType = typeOrContentType;
+            this.data = data;
+        }
+
+        public String getKey()
+        {
+            return this.key;
+        }
+
+        /**
+         * Returns the value of this entry as the given type
+         *
+         * @param type
+         * @return
+         */
+        public <V> V getValue(Class<V> type)
+        {
+            if (this.kind == KIND_RAW)
+            {
+                return type.cast(new RawResponse(this.typeOrContentType.isEmpty() ? null : this.typeOrContentType, this.data));
+            }
+            else if (this.kind == KIND_COMPRESSED)
+            {
+                ByteBuffer buffer = ByteBuffer.wrap(this.data);
+                boolean compressed = buffer.get() != 0;
+                int uncompressedLength = buffer.getInt();
+                byte[] compressedData = new byte[buffer.remaining()];
+                buffer.get(compressedData);
+                return type.cast(new CompressedCacheEntry(compressed, uncompressedLength, compressedData));
+            }
+            else
+            {
+                return JSONHelper.readFromString(new String(this.data, StandardCharsets.UTF_8), type);
+            }
+        }
+
+        public Class<?> getType()
+        {
+            if (this.kind == KIND_RAW)
+            {
+                return RawResponse.class;
+            }
+            else
+            {
+                try
+                {
+                    return Class.forName(this.typeOrContentType);
+                }
+                catch (ClassNotFoundException e)
+                {
+                    throw new IllegalStateException("Unknown type of cache entry: " + this.typeOrContentType, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Encodes the given key and value into their binary representation
+     *
+     * @param key
+     * @param value
+     * @return
+     */
+    public static byte[] encode(String key, Object value)
+    {
+        byte kind;
+        String typeOrContentType;
+        byte[] data;
+        if (value instanceof RawResponse)
+        {
+            RawResponse rawResponse = (RawResponse) value;
+            kind = KIND_RAW;
+            typeOrContentType = rawResponse.getContentType() != null ? rawResponse.getContentType() : "";
+            data = rawResponse.getBody();
+        }
+        else if (value instanceof CompressedCacheEntry)
+        {
+            CompressedCacheEntry compressedEntry = (CompressedCacheEntry) value;
+            kind = KIND_COMPRESSED;
+            typeOrContentType = CompressedCacheEntry.class.getName();
+            data = ByteBuffer.allocate(5 + compressedEntry.getData().length)
+                             .put((byte) (compressedEntry.isCompressed() ? 1 : 0))
+                             .putInt(compressedEntry.getUncompressedLength())
+                             .put(compressedEntry.getData())
+                             .array();
+        }
+        else
+        {
+            kind = KIND_JSON;
+            typeOrContentType = value != null ? value.getClass()
+                                                     .getName()
+                    : Object.class.getName();
+            data = JSONHelper.serialize(value)
+                             .getBytes(StandardCharsets.UTF_8);
+        }
+
+        try
+        {
+            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(data.length + 64);
+            DataOutputStream outputStream = new DataOutputStream(byteArrayOutputStream);
+            outputStream.writeInt(MAGIC_NUMBER);
+            writeString(outputStream, key);
+            outputStream.writeByte(kind);
+            writeString(outputStream, typeOrContentType);
+            outputStream.writeInt(data.length);
+            outputStream.write(data);
+            outputStream.flush();
+            return byteArrayOutputStream.toByteArray();
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeIOException(e);
+        }
+    }
+
+    /**
+     * Decodes an entry from the given bytes
+     *
+     * @param bytes
+     * @return
+     */
+    public static Entry decode(byte[] bytes)
+    {
+        return decode(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Decodes an entry starting at the current position of the given {@link ByteBuffer}. Afterwards the position of the buffer is located
+     * behind the entry.
+     *
+     * @param buffer
+     * @return
+     */
+    public static Entry decode(ByteBuffer buffer)
+    {
+        try
+        {
+            if (buffer.getInt() != MAGIC_NUMBER)
+            {
+                throw new IllegalStateException("Invalid cache entry");
+            }
+            String key = readString(buffer);
+            byte kind = buffer.get();
+            String typeOrContentType = readString(buffer);
+            byte[] data = new byte[readLength(buffer)];
+            buffer.get(data);
+            return new Entry(key, kind, typeOrContentType, data);
+        }
+        catch (BufferUnderflowException e)
+        {
+            throw new IllegalStateException("Truncated cache entry", e);
+        }
+    }
+
+    /**
+     * Decodes only the key of the entry starting at the current position of the given {@link ByteBuffer}, without copying its data
+     *
+     * @param buffer
+     * @return
+     */
+    public static String decodeKey(ByteBuffer buffer)
+    {
+        try
+        {
+            if (buffer.getInt() != MAGIC_NUMBER)
+            {
+                throw new IllegalStateException("Invalid cache entry");
+            }
+            return readString(buffer);
+        }
+        catch (BufferUnderflowException e)
+        {
+            throw new IllegalStateException("Truncated cache entry", e);
+        }
+    }
+
+    /**
+     * Decodes only the key of the entry at the beginning of the given {@link InputStream}, so the remaining data of the entry is never read
+     *
+     * @param inputStream
+     * @param entryLength
+     *            total length of the entry in bytes, used to reject corrupted key lengths
+     * @return
+     * @throws IOException
+     */
+    public static String decodeKey(InputStream inputStream, long entryLength) throws IOException
+    {
+        try
+        {
+            DataInputStream dataInputStream = new DataInputStream(inputStream);
+            if (dataInputStream.readInt() != MAGIC_NUMBER)
+            {
+                throw new IllegalStateException("Invalid cache entry");
+            }
+            int length = dataInputStream.readInt();
+            if (length < 0 || length > entryLength - 8)
+            {
+                throw new IllegalStateException("Truncated cache entry");
+            }
+            byte[] bytes = new byte[length];
+            dataInputStream.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+        catch (EOFException e)
+        {
+            throw new IllegalStateException("Truncated cache entry", e);
+        }
+    }
+
+    private static String readString(ByteBuffer buffer)
+    {
+        byte[] bytes = new byte[readLength(buffer)];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads a length and verifies that it fits into the remaining bytes, so a corrupted length is reported as truncated entry
+     */
+    private static int readLength(ByteBuffer buffer)
+    {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining())
+        {
+            throw new BufferUnderflowException();
+        }
+        return length;
+    }
+
+    private static void writeString(DataOutputStream outputStream, String value) throws IOException
+    {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        outputStream.writeInt(bytes.length);
+        outputStream.write(bytes);
+    }
+}
@@ -0,0 +1,166 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.rest.client.internal.cache;
+
+/**
+ * Metadata which is stored alongside a cached response and which allows to revalidate the cached response using the http validators
+ * <code>ETag</code> and <code>Last-Modified</code>
+ *
+ * @author omnaest
+ */
+public class CacheEntryMetadata
+{
+    private long    storedAt;
+    private String  eTag;
+    private String  lastModified;
+    private Long    expiresAt;
+    private Integer negativeStatusCode;
+    private String  negativeContent;
+
+    public CacheEntryMetadata()
+    {
+        super();
+    }
+
+    public CacheEntryMetadata(long storedAt, String eTag, String lastModified)
+    {
+        super();
+        this.storedAt = storedAt;
+        this.eTag = eTag;
+        this.lastModified = lastModified;
+    }
+
+    public long getStoredAt()
+    {
+        return this.storedAt;
+    }
+
+    public CacheEntryMetadata setStoredAt(long storedAt)
+    {
+        this.storedAt = storedAt;
+        return this;
+    }
+
+    public String getETag()
+    {
+        return this.eTag;
+    }
+
+    public CacheEntryMetadata setETag(String eTag)
+    {
+        this.eTag = eTag;
+        return this;
+    }
+
+    public String getLastModified()
+    {
+        return this.lastModified;
+    }
+
+    public CacheEntryMetadata setLastModified(String lastModified)
+    {
+        this.lastModified = lastModified;
+        return this;
+    }
+
+    /**
+     * Returns the point in time in milliseconds at which the cached response becomes stale, or null if it never expires
+     *
+     * @return
+     */
+    public Long getExpiresAt()
+    {
+        return this.expiresAt;
+    }
+
+    public CacheEntryMetadata setExpiresAt(Long expiresAt)
+    {
+        this.expiresAt = expiresAt;
+        return this;
+    }
+
+    /**
+     * Returns the http status code of a cached negative response, or null if the cached response is a regular result
+     *
+     * @return
+     */
+    public Integer getNegativeStatusCode()
+    {
+        return this.negativeStatusCode;
+    }
+
+    public CacheEntryMetadata setNegativeStatusCode(Integer negativeStatusCode)
+    {
+        this.negativeStatusCode = negativeStatusCode;
+        return this;
+    }
+
+    /**
+     * Returns the error body of a cached negative response, which is replayed together with the status code
+     *
+     * @return
+     */
+    public String getNegativeContent()
+    {
+        return this.negativeContent;
+    }
+
+    public CacheEntryMetadata setNegativeContent(String negativeContent)
+    {
+        this.negativeContent = negativeContent;
+        return this;
+    }
+
+    /**
+     * Returns true if this entry marks a negative response like <code>404 Not Found</code> and no result is cached
+     *
+     * @return
+     */
+    public boolean representsNegativeResponse()
+    {
+        return this.negativeStatusCode != null;
+    }
+
+    /**
+     * Returns true if the cached response is expired at the given point in time
+     *
+     * @param now
+     * @return
+     */
+    public boolean isExpired(long now)
+    {
+        return this.expiresAt != null && now >= this.expiresAt;
+    }
+
+    /**
+     * Returns true if at least one of the validators <code>ETag</code> or <code>Last-Modified</code> is present
+     *
+     * @return
+     */
+    public boolean hasValidators()
+    {
+        return this.eTag != null || this.lastModified != null;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "CacheEntryMetadata [storedAt=" + this.storedAt + ", eTag=" + this.eTag + ", lastModified=" + this.lastModified + ", expiresAt="
+                + this.expiresAt + ", negativeStatusCode=" + this.negativeStatusCode + ", negativeContent=" + this.negativeContent
+                + "]";
+    }
+
+}
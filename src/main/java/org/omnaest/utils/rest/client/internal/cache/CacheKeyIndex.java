@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.rest.client.internal.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Predicate;
+
+/**
+ * Sorted index over the keys of cached entries, which allows to determine all keys with a given prefix in time proportional to the number
+ * of matching keys
+ *
+ * @see org.omnaest.utils.rest.client.internal.CachedRestClient#invalidate(String)
+ * @author omnaest
+ */
+public class CacheKeyIndex
+{
+    private final NavigableSet<String> keys = new ConcurrentSkipListSet<>();
+
+    public void add(String key)
+    {
+        this.keys.add(key);
+    }
+
+    public void remove(String key)
+    {
+        this.keys.remove(key);
+    }
+
+    public boolean contains(String key)
+    {
+        return this.keys.contains(key);
+    }
+
+    public int size()
+    {
+        return this.keys.size();
+    }
+
+    /**
+     * Returns all keys which start with the given prefix
+     *
+     * @param prefix
+     * @return
+     */
+    public List<String> getKeysWithPrefix(String prefix)
+    {
+        List<String> result = new ArrayList<>();
+        for (String key : this.keys.tailSet(prefix, true))
+        {
+            if (!key.startsWith(prefix))
+            {
+                break;
+            }
+            result.add(key);
+        }
+        return result;
+    }
+
+    /**
+     * Returns all keys which match the given {@link Predicate}. This requires a scan over all keys of the index.
+     *
+     * @param filter
+     * @return
+     */
+    public List<String> getKeysMatching(Predicate<String> filter)
+    {
+        List<String> result = new ArrayList<>();
+        for (String key : this.keys)
+        {
+            if (filter.test(key))
+            {
+                result.add(key);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "CacheKeyIndex [size=" + this.keys.size() + "]";
+    }
+
+}
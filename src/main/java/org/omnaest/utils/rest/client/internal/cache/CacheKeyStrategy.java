@@ -0,0 +1,50 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.rest.client.internal.cache;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Strategy which generates the keys of cached responses from the requested url and the request headers
+ *
+ * @see DefaultCacheKeyStrategy
+ * @author omnaest
+ */
+public interface CacheKeyStrategy
+{
+    /**
+     * Returns the key which identifies the requested resource regardless of any request headers
+     * 
+     * @param url
+     * @return
+     */
+    public String generateUrlKey(String url);
+
+    /**
+     * Returns the key of a cached response for the given url key and request headers.
+     * 
+     * @param urlKey
+     *            key returned by {@link #generateUrlKey(String)}
+     * @param headers
+     *            request headers, can be null
+     * @param varyHeaderNames
+     *            names of the headers which the server listed within the <code>Vary</code> header of a former response, these have to be
+     *            part of the key
+     * @return
+     */
+    public String generateKey(String urlKey, Map<String, String> headers, Set<String> varyHeaderNames);
+}
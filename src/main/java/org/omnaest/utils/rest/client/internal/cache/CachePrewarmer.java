@@ -0,0 +1,307 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.rest.client.internal.cache;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import org.omnaest.utils.rest.client.RestClient;
+import org.omnaest.utils.rest.client.RestClient.ResponseHolder;
+import org.omnaest.utils.rest.client.URLBuilder;
+import org.omnaest.utils.rest.client.URLBuilder.URLBuilderWithBaseUrl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Loads a given set of urls into the cache of a caching {@link RestClient}, e.g. before a service admits traffic.<br>
+ * <br>
+ * The urls are requested in parallel with a limited concurrency. The urls are consumed lazily, so even large manifests are not held in
+ * memory. If the optional timeout expires, no further urls are requested and {@link #load(Stream, Class)} returns. Requests which are
+ * already running at that point are not aborted, as blocking http I/O does not react on thread interruption. They complete in the
+ * background and still populate the cache.
+ *
+ * @see org.omnaest.utils.rest.client.internal.CachedRestClient#prewarm()
+ * @author omnaest
+ */
+public class CachePrewarmer
+{
+    private static final Logger LOG = LoggerFactory.getLogger(CachePrewarmer.class);
+
+    private final RestClient restClient;
+
+    private int                     maxConcurrency   = 8;
+    private Long                    timeoutInMillis  = null;
+    private Consumer<PrewarmStatus> progressListener = null;
+    private Map<String, String>     headers          = Collections.emptyMap();
+
+    /**
+     * Snapshot of the progress of a prewarm run
+     *
+     * @author omnaest
+     */
+    public static class PrewarmStatus
+    {
+        private final long    numberOfLoadedUrls;
+        private final long    numberOfFailedUrls;
+        private final long    elapsedTimeInMillis;
+        private final boolean timedOut;
+
+        public PrewarmStatus(long numberOfLoadedUrls, long numberOfFailedUrls, long elapsedTimeInMillis, boolean timedOut)
+        {
+            super();
+            this.numberOfLoadedUrls = numberOfLoadedUrls;
+            this.numberOfFailedUrls = numberOfFailedUrls;
+            this.elapsedTimeInMillis = elapsedTimeInMillis;
+            this.timedOut = timedOut;
+        }
+
+        public long getNumberOfLoadedUrls()
+        {
+            return this.numberOfLoadedUrls;
+        }
+
+        public long getNumberOfFailedUrls()
+        {
+            return this.numberOfFailedUrls;
+        }
+
+        public long getNumberOfProcessedUrls()
+        {
+            return this.numberOfLoadedUrls + this.numberOfFailedUrls;
+        }
+
+        public long getElapsedTimeInMillis()
+        {
+            return this.elapsedTimeInMillis;
+        }
+
+        /**
+         * Returns true if the timeout expired before all urls have been processed
+         *
+         * @return
+         */
+        public boolean isTimedOut()
+        {
+            return this.timedOut;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "PrewarmStatus [numberOfLoadedUrls=" + this.numberOfLoadedUrls + ", numberOfFailedUrls=" + this.numberOfFailedUrls
+                    + ", elapsedTimeInMillis=" + this.elapsedTimeInMillis + ", timedOut=" + this.timedOut + "]";
+        }
+
+    }
+
+    public CachePrewarmer(RestClient restClient)
+    {
+        super();
+        this.restClient = restClient;
+    }
+
+    /**
+     * Defines the maximum number of parallel requests. Default is 8.
+     *
+     * @param maxConcurrency
+     * @return
+     */
+    public CachePrewarmer withMaxConcurrency(int maxConcurrency)
+    {
+        if (maxConcurrency < 1)
+        {
+            throw new IllegalArgumentException("maxConcurrency must be at least 1: " + maxConcurrency);
+        }
+        this.maxConcurrency = maxConcurrency;
+        return this;
+    }
+
+    /**
+     * Defines the overall time after which the prewarming is aborted. By default there is no timeout.
+     *
+     * @param duration
+     * @param timeUnit
+     * @return
+     */
+    public CachePrewarmer withTimeout(long duration, TimeUnit timeUnit)
+    {
+        this.timeoutInMillis = timeUnit.toMillis(duration);
+        return this;
+    }
+
+    /**
+     * Defines a listener which is called after each processed url. The listener is called from the requesting threads.
+     *
+     * @param progressListener
+     * @return
+     */
+    public CachePrewarmer withProgressListener(Consumer<PrewarmStatus> progressListener)
+    {
+        this.progressListener = progressListener;
+        return this;
+    }
+
+    /**
+     * Defines the headers which are sent with each request. They have to match the headers of the later requests, as far as they are part of
+     * the cache key.
+     *
+     * @param headers
+     * @return
+     */
+    public CachePrewarmer withHeaders(Map<String, String> headers)
+    {
+        this.headers = new LinkedHashMap<>(headers);
+        return this;
+    }
+
+    /**
+     * Loads the given urls into the cache and blocks until all urls are processed or the timeout expired. Requests which are running when
+     * the timeout expires are not aborted and complete in the background.
+     *
+     * @param urls
+     * @param type
+     *            result type which is used for the requests
+     * @return
+     */
+    public PrewarmStatus load(Collection<String> urls, Class<?> type)
+    {
+        return this.load(urls.stream(), type);
+    }
+
+    /**
+     * Similar to {@link #load(Collection, Class)} for urls which are generated by the given {@link URLBuilder} functions
+     *
+     * @param urlBuilderFunctions
+     * @param type
+     * @return
+     */
+    public PrewarmStatus loadFromUrlBuilders(Stream<Function<URLBuilder, URLBuilderWithBaseUrl>> urlBuilderFunctions, Class<?> type)
+    {
+        return this.load(urlBuilderFunctions.map(urlBuilderFunction -> urlBuilderFunction.apply(RestClient.urlBuilder())
+                                                                                         .build()),
+                         type);
+    }
+
+    /**
+     * Similar to {@link #load(Collection, Class)}
+     *
+     * @param urls
+     * @param type
+     * @return
+     */
+    public PrewarmStatus load(Stream<String> urls, Class<?> type)
+    {
+        long start = System.currentTimeMillis();
+        long deadline = this.timeoutInMillis != null ? start + this.timeoutInMillis : Long.MAX_VALUE;
+        AtomicLong numberOfLoadedUrls = new AtomicLong();
+        AtomicLong numberOfFailedUrls = new AtomicLong();
+        boolean timedOut = false;
+
+        ExecutorService executorService = Executors.newFixedThreadPool(this.maxConcurrency);
+        try
+        {
+            Semaphore semaphore = new Semaphore(this.maxConcurrency);
+            Iterator<String> iterator = urls.iterator();
+            while (iterator.hasNext())
+            {
+                String url = iterator.next();
+
+                // a timeout which is not positive anymore still acquires a free permit, so the deadline is checked explicitly
+                long remainingTimeInMillis = deadline - System.currentTimeMillis();
+                if (remainingTimeInMillis <= 0 || !semaphore.tryAcquire(remainingTimeInMillis, TimeUnit.MILLISECONDS))
+                {
+                    timedOut = true;
+                    break;
+                }
+
+                executorService.execute(() ->
+                {
+                    try
+                    {
+                        ResponseHolder<?> responseHolder = this.restClient.requestGetAnd(url, type, this.headers);
+                        if (responseHolder.getStatusCode() < 400)
+                        {
+                            numberOfLoadedUrls.incrementAndGet();
+                        }
+                        else
+                        {
+                            LOG.debug("Prewarming failed for url: " + url + " with status code " + responseHolder.getStatusCode());
+                            numberOfFailedUrls.incrementAndGet();
+                        }
+                    }
+                    catch (RuntimeException e)
+                    {
+                        LOG.debug("Prewarming failed for url: " + url, e);
+                        numberOfFailedUrls.incrementAndGet();
+                    }
+                    finally
+                    {
+                        this.reportProgress(numberOfLoadedUrls.get(), numberOfFailedUrls.get(), start);
+                        semaphore.release();
+                    }
+                });
+            }
+
+            // waits for the running requests
+            if (!timedOut && !semaphore.tryAcquire(this.maxConcurrency, deadline - System.currentTimeMillis(), TimeUnit.MILLISECONDS))
+            {
+                timedOut = true;
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread()
+                  .interrupt();
+            throw new IllegalStateException("Interrupted while prewarming the cache", e);
+        }
+        finally
+        {
+            executorService.shutdownNow();
+        }
+
+        PrewarmStatus status = new PrewarmStatus(numberOfLoadedUrls.get(), numberOfFailedUrls.get(), System.currentTimeMillis() - start,
+                                                 timedOut);
+        LOG.info("Prewarmed cache: " + status);
+        return status;
+    }
+
+    private void reportProgress(long numberOfLoadedUrls, long numberOfFailedUrls, long start)
+    {
+        if (this.progressListener != null)
+        {
+            try
+            {
+                this.progressListener.accept(new PrewarmStatus(numberOfLoadedUrls, numberOfFailedUrls, System.currentTimeMillis() - start, false));
+            }
+            catch (RuntimeException e)
+            {
+                LOG.warn("Prewarm progress listener failed", e);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,193 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.rest.client.internal.cache;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable snapshot of the statistics of a {@link org.omnaest.utils.rest.client.internal.CachedRestClient}
+ *
+ * @see CacheStatsCounter
+ * @author omnaest
+ */
+public class CacheStats
+{
+    private final long   hitCount;
+    private final long   missCount;
+    private final long   loadSuccessCount;
+    private final long   loadFailureCount;
+    private final long   totalLoadTimeInNanos;
+    private final long   medianLoadTimeInNanos;
+    private final long   p95LoadTimeInNanos;
+    private final long   p99LoadTimeInNanos;
+    private final long   evictionCount;
+    private final long   entryCount;
+    private final long   estimatedBytes;
+    private final double compressionRatio;
+
+    public CacheStats(long hitCount, long missCount, long loadSuccessCount, long loadFailureCount, long totalLoadTimeInNanos,
+                      long medianLoadTimeInNanos, long p95LoadTimeInNanos, long p99LoadTimeInNanos, long evictionCount, long entryCount,
+                      long estimatedBytes, double compressionRatio)
+    {
+        super();
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.loadSuccessCount = loadSuccessCount;
+        this.loadFailureCount = loadFailureCount;
+        this.totalLoadTimeInNanos = totalLoadTimeInNanos;
+        this.medianLoadTimeInNanos = medianLoadTimeInNanos;
+        this.p95LoadTimeInNanos = p95LoadTimeInNanos;
+        this.p99LoadTimeInNanos = p99LoadTimeInNanos;
+        this.evictionCount = evictionCount;
+        this.entryCount = entryCount;
+        this.estimatedBytes = estimatedBytes;
+        this.compressionRatio = compressionRatio;
+    }
+
+    public long getHitCount()
+    {
+        return this.hitCount;
+    }
+
+    public long getMissCount()
+    {
+        return this.missCount;
+    }
+
+    public long getRequestCount()
+    {
+        return this.hitCount + this.missCount;
+    }
+
+    /**
+     * Returns the ratio of requests which have been answered from the cache, or 1.0 if there were no requests yet
+     * 
+     * @return
+     */
+    public double getHitRate()
+    {
+        long requestCount = this.getRequestCount();
+        return requestCount == 0 ? 1.0 : (double) this.hitCount / requestCount;
+    }
+
+    public long getLoadSuccessCount()
+    {
+        return this.loadSuccessCount;
+    }
+
+    public long getLoadFailureCount()
+    {
+        return this.loadFailureCount;
+    }
+
+    public long getTotalLoadTime(TimeUnit timeUnit)
+    {
+        return timeUnit.convert(this.totalLoadTimeInNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public long getAverageLoadTime(TimeUnit timeUnit)
+    {
+        long loadCount = this.loadSuccessCount + this.loadFailureCount;
+        return loadCount == 0 ? 0 : timeUnit.convert(this.totalLoadTimeInNanos / loadCount, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the estimated median of the load times. The estimate is accurate within a factor of about 1.2.
+     * 
+     * @param timeUnit
+     * @return
+     */
+    public long getMedianLoadTime(TimeUnit timeUnit)
+    {
+        return timeUnit.convert(this.medianLoadTimeInNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the estimated 95th percentile of the load times
+     * 
+     * @see #getMedianLoadTime(TimeUnit)
+     * @param timeUnit
+     * @return
+     */
+    public long getP95LoadTime(TimeUnit timeUnit)
+    {
+        return timeUnit.convert(this.p95LoadTimeInNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the estimated 99th percentile of the load times
+     * 
+     * @see #getMedianLoadTime(TimeUnit)
+     * @param timeUnit
+     * @return
+     */
+    public long getP99LoadTime(TimeUnit timeUnit)
+    {
+        return timeUnit.convert(this.p99LoadTimeInNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the number of responses which have been evicted by the underlying cache
+     * 
+     * @return
+     */
+    public long getEvictionCount()
+    {
+        return this.evictionCount;
+    }
+
+    /**
+     * Returns the number of entries within the underlying cache, which includes one metadata entry per cached response, or -1 if the cache
+     * is not a {@link MeasurableCache}
+     * 
+     * @return
+     */
+    public long getEntryCount()
+    {
+        return this.entryCount;
+    }
+
+    /**
+     * Returns the estimated size of the underlying cache in bytes, or -1 if the cache is not a {@link MeasurableCache}
+     * 
+     * @return
+     */
+    public long getEstimatedBytes()
+    {
+        return this.estimatedBytes;
+    }
+
+    /**
+     * Returns the ratio between the uncompressed and the stored size of the written entries, or 1.0 if the entries are not compressed
+     * 
+     * @see org.omnaest.utils.rest.client.internal.CachedRestClient#withCompression()
+     * @return
+     */
+    public double getCompressionRatio()
+    {
+        return this.compressionRatio;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "CacheStats [hitCount=" + this.hitCount + ", missCount=" + this.missCount + ", loadSuccessCount=" + this.loadSuccessCount
+                + ", loadFailureCount=" + this.loadFailureCount + ", averageLoadTimeInMillis=" + this.getAverageLoadTime(TimeUnit.MILLISECONDS)
+                + ", p99LoadTimeInMillis=" + this.getP99LoadTime(TimeUnit.MILLISECONDS) + ", evictionCount=" + this.evictionCount
+                + ", entryCount=" + this.entryCount + ", estimatedBytes=" + this.estimatedBytes + ", compressionRatio=" + this.compressionRatio + "]";
+    }
+
+}
@@ -0,0 +1,160 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.rest.client.internal.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link CacheStatsListener} which accumulates the cache events into counters. Load times are recorded within a histogram with
+ * logarithmic buckets, four per power of two, which allows to estimate percentiles with a fixed memory footprint.
+ *
+ * @author omnaest
+ */
+public class CacheStatsCounter implements CacheStatsListener
+{
+    private static final int SUB_BUCKET_BITS   = 2;
+    private static final int NUMBER_OF_BUCKETS = 64 << SUB_BUCKET_BITS;
+
+    private final LongAdder   hitCount         = new LongAdder();
+    private final LongAdder   missCount        = new LongAdder();
+    private final LongAdder   loadSuccessCount = new LongAdder();
+    private final LongAdder   loadFailureCount = new LongAdder();
+    private final LongAdder   totalLoadTime    = new LongAdder();
+    private final LongAdder   evictionCount    = new LongAdder();
+    private final LongAdder[] loadTimeBuckets  = new LongAdder[NUMBER_OF_BUCKETS];
+
+    public CacheStatsCounter()
+    {
+        super();
+        for (int i = 0; i < NUMBER_OF_BUCKETS; i++)
+        {
+            this.loadTimeBuckets[i] = new LongAdder();
+        }
+    }
+
+    @Override
+    public void onHit(String key)
+    {
+        this.hitCount.increment();
+    }
+
+    @Override
+    public void onMiss(String key)
+    {
+        this.missCount.increment();
+    }
+
+    @Override
+    public void onLoadSuccess(String key, long durationInNanos)
+    {
+        this.loadSuccessCount.increment();
+        this.recordLoadTime(durationInNanos);
+    }
+
+    @Override
+    public void onLoadFailure(String key, long durationInNanos, Throwable exception)
+    {
+        this.loadFailureCount.increment();
+        this.recordLoadTime(durationInNanos);
+    }
+
+    @Override
+    public void onEviction(String key)
+    {
+        this.evictionCount.increment();
+    }
+
+    /**
+     * Returns a snapshot of the current counters
+     * 
+     * @param entryCount
+     * @param estimatedBytes
+     * @param compressionRatio
+     * @return
+     */
+    public CacheStats snapshot(long entryCount, long estimatedBytes, double compressionRatio)
+    {
+        long[] buckets = new long[NUMBER_OF_BUCKETS];
+        long numberOfLoads = 0;
+        for (int i = 0; i < NUMBER_OF_BUCKETS; i++)
+        {
+            buckets[i] = this.loadTimeBuckets[i].sum();
+            numberOfLoads += buckets[i];
+        }
+        return new CacheStats(this.hitCount.sum(), this.missCount.sum(), this.loadSuccessCount.sum(), this.loadFailureCount.sum(),
+                              this.totalLoadTime.sum(), determinePercentile(buckets, numberOfLoads, 0.5),
+                              determinePercentile(buckets, numberOfLoads, 0.95), determinePercentile(buckets, numberOfLoads, 0.99),
+                              this.evictionCount.sum(), entryCount, estimatedBytes, compressionRatio);
+    }
+
+    private void recordLoadTime(long durationInNanos)
+    {
+        long duration = Math.max(0, durationInNanos);
+        this.totalLoadTime.add(duration);
+        this.loadTimeBuckets[determineBucket(duration)].increment();
+    }
+
+    private static int determineBucket(long value)
+    {
+        if (value < (1 << SUB_BUCKET_BITS))
+        {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & ((1 << SUB_BUCKET_BITS) - 1);
+        return ((exponent - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS) + subBucket;
+    }
+
+    /**
+     * Returns the upper bound of the bucket which contains the given percentile
+     */
+    private static long determinePercentile(long[] buckets, long numberOfValues, double percentile)
+    {
+        if (numberOfValues == 0)
+        {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(percentile * numberOfValues);
+        long count = 0;
+        for (int i = 0; i < buckets.length; i++)
+        {
+            count += buckets[i];
+            if (count >= rank)
+            {
+                return determineBucketUpperBound(i);
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    private static long determineBucketUpperBound(int bucket)
+    {
+        if (bucket < (1 << SUB_BUCKET_BITS))
+        {
+            return bucket;
+        }
+        int exponent = (bucket >>> SUB_BUCKET_BITS) + SUB_BUCKET_BITS - 1;
+        long subBucket = bucket & ((1 << SUB_BUCKET_BITS) - 1);
+        if (exponent >= 63)
+        {
+            return Long.MAX_VALUE;
+        }
+        long lowerBound = (1l << exponent) + (subBucket << (exponent - SUB_BUCKET_BITS));
+        return lowerBound + (1l << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+}
@@ -0,0 +1,74 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.rest.client.internal.cache;
+
+/**
+ * Listener which is notified about cache events of a {@link org.omnaest.utils.rest.client.internal.CachedRestClient}. Listeners are called
+ * synchronously from the requesting threads, so implementations should be fast and thread safe.
+ *
+ * @see CacheStats
+ * @author omnaest
+ */
+public interface CacheStatsListener
+{
+    /**
+     * A request was answered from the cache
+     * 
+     * @param key
+     */
+    public default void onHit(String key)
+    {
+    }
+
+    /**
+     * A request could not be answered from the cache
+     * 
+     * @param key
+     */
+    public default void onMiss(String key)
+    {
+    }
+
+    /**
+     * A response has been loaded from the server
+     * 
+     * @param key
+     * @param durationInNanos
+     */
+    public default void onLoadSuccess(String key, long durationInNanos)
+    {
+    }
+
+    /**
+     * Loading a response from the server failed
+     * 
+     * @param key
+     * @param durationInNanos
+     * @param exception
+     */
+    public default void onLoadFailure(String key, long durationInNanos, Throwable exception)
+    {
+    }
+
+    /**
+     * A cached response has been evicted by the underlying cache
+     * 
+     * @param key
+     */
+    public default void onEviction(String key)
+    {
+    }
+}
@@ -0,0 +1,76 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.rest.client.internal.cache;
+
+/**
+ * Entry which is stored by a {@link CompressingCache} within its underlying {@link org.omnaest.utils.cache.Cache}. The data is the binary
+ * representation of the original entry created by {@link CacheEntryCodec}, which is compressed if it exceeds the compression threshold.
+ *
+ * @author omnaest
+ */
+public class CompressedCacheEntry
+{
+    private boolean compressed;
+    private int     uncompressedLength;
+    private byte[]  data;
+
+    public CompressedCacheEntry()
+    {
+        super();
+    }
+
+    public CompressedCacheEntry(boolean compressed, int uncompressedLength, byte[] data)
+    {
+        super();
+        this.compressed = compressed;
+        this.uncompressedLength = uncompressedLength;
+        this.data = data;
+    }
+
+    public boolean isCompressed()
+    {
+        return this.compressed;
+    }
+
+    public CompressedCacheEntry setCompressed(boolean compressed)
+    {
+        this.compressed = compressed;
+        return this;
+    }
+
+    public int getUncompressedLength()
+    {
+        return this.uncompressedLength;
+    }
+
+    public CompressedCacheEntry setUncompressedLength(int uncompressedLength)
+    {
+        this.uncompressedLength = uncompressedLength;
+        return this;
+    }
+
+    public byte[] getData()
+    {
+        return this.data;
+    }
+
+    public CompressedCacheEntry setData(byte[] data)
+    {
+        this.data = data;
+        return this;
+    }
+
+}
@@ -0,0 +1,239 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.rest.client.internal.cache;
+
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.omnaest.utils.cache.Cache;
+
+/**
+ * {@link Cache} which stores the entries of an underlying {@link Cache} in compressed form.<br>
+ * <br>
+ * Each value is converted into its binary representation by {@link CacheEntryCodec} and wrapped into a {@link CompressedCacheEntry}. Only
+ * entries whose binary representation reaches the given threshold are compressed, as small entries like the metadata of a response do not
+ * shrink noticeably. Entries of the underlying {@link Cache} which have been written without compression are still readable.<br>
+ * <br>
+ * The caches of this package store the compressed bytes as they are. Other caches, like the local json folder cache of CommonsUtils, store
+ * them as base64 text, whose growth by a third is included into the {@link #getCompressionRatio()}.
+ *
+ * @author omnaest
+ */
+public class CompressingCache implements Cache, MeasurableCache
+{
+    public static final int DEFAULT_THRESHOLD_IN_BYTES = 1024;
+
+    private final Cache            cache;
+    private final CompressionCodec codec;
+    private final int              thresholdInBytes;
+    private final boolean          base64Encoded;
+
+    private final LongAdder uncompressedBytes = new LongAdder();
+    private final LongAdder compressedBytes   = new LongAdder();
+
+    /**
+     * Uses a {@link DeflateCompressionCodec} and a threshold of {@value #DEFAULT_THRESHOLD_IN_BYTES} bytes
+     *
+     * @param cache
+     */
+    public CompressingCache(Cache cache)
+    {
+        this(cache, new DeflateCompressionCodec(), DEFAULT_THRESHOLD_IN_BYTES);
+    }
+
+    /**
+     * @param cache
+     *            underlying {@link Cache}
+     * @param codec
+     * @param thresholdInBytes
+     *            minimum size of an entry to get compressed
+     */
+    public CompressingCache(Cache cache, CompressionCodec codec, int thresholdInBytes)
+    {
+        super();
+        this.cache = cache;
+        this.codec = codec;
+        this.thresholdInBytes = thresholdInBytes;
+        this.base64Encoded = !storesBinaryData(cache);
+    }
+
+    /**
+     * Returns true if the given {@link Cache} stores byte arrays without encoding them as text
+     */
+    private static boolean storesBinaryData(Cache cache)
+    {
+        if (cache instanceof TieredCache)
+        {
+            return storesBinaryData(((TieredCache) cache).getSecondLevelCache());
+        }
+        return cache instanceof BoundedInMemoryCache || cache instanceof OffHeapCache || cache instanceof MappedSegmentCache
+                || cache instanceof LocalRawFolderCache;
+    }
+
+    @Override
+    public <V> V get(String key, Class<V> type)
+    {
+        CompressedCacheEntry compressedEntry;
+        try
+        {
+            compressedEntry = this.cache.get(key, CompressedCacheEntry.class);
+        }
+        catch (RuntimeException e)
+        {
+            // entries which have been written without compression can not be read as compressed entry
+            return this.cache.get(key, type);
+        }
+
+        if (compressedEntry == null)
+        {
+            return null;
+        }
+        else if (compressedEntry.getData() == null)
+        {
+            return this.cache.get(key, type);
+        }
+        else
+        {
+            return this.decode(compressedEntry)
+                       .getValue(type);
+        }
+    }
+
+    @Override
+    public Class<?> getType(String key)
+    {
+        Class<?> type = this.cache.getType(key);
+        if (CompressedCacheEntry.class.equals(type))
+        {
+            CompressedCacheEntry compressedEntry = this.cache.get(key, CompressedCacheEntry.class);
+            return compressedEntry != null ? this.decode(compressedEntry)
+                                                 .getType()
+                    : null;
+        }
+        return type;
+    }
+
+    @Override
+    public boolean contains(String key)
+    {
+        return this.cache.contains(key);
+    }
+
+    @Override
+    public <V> V computeIfAbsent(String key, Supplier<V> supplier, Class<V> type)
+    {
+        V value = this.get(key, type);
+        if (value == null && !this.contains(key))
+        {
+            value = supplier.get();
+            if (value != null)
+            {
+                this.put(key, value);
+            }
+        }
+        return value;
+    }
+
+    @Override
+    public void put(String key, Object value)
+    {
+        byte[] data = CacheEntryCodec.encode(key, value);
+        CompressedCacheEntry entry;
+        if (data.length >= this.thresholdInBytes)
+        {
+            byte[] compressedData = this.codec.compress(data);
+            entry = compressedData.length < data.length ? new CompressedCacheEntry(true, data.length, compressedData)
+                    : new CompressedCacheEntry(false, data.length, data);
+        }
+        else
+        {
+            entry = new CompressedCacheEntry(false, data.length, data);
+        }
+
+        int storedLength = entry.getData().length;
+        this.uncompressedBytes.add(data.length);
+        this.compressedBytes.add(this.base64Encoded ? (storedLength + 2) / 3 * 4 : storedLength);
+        this.cache.put(key, entry);
+    }
+
+    @Override
+    public void remove(String key)
+    {
+        this.cache.remove(key);
+    }
+
+    @Override
+    public Set<String> keySet()
+    {
+        return this.cache.keySet();
+    }
+
+    /**
+     * Returns the ratio between the size of all entries written so far before and after compression, or 1.0 if no entry has been written
+     * yet. Entries below the threshold are included with a ratio of 1.0. If the underlying {@link Cache} stores the compressed bytes as
+     * base64 text, the size after compression is the size of the text.
+     *
+     * @return
+     */
+    public double getCompressionRatio()
+    {
+        long compressedBytes = this.compressedBytes.sum();
+        return compressedBytes == 0 ? 1.0 : (double) this.uncompressedBytes.sum() / compressedBytes;
+    }
+
+    /**
+     * Returns the number of entries of the underlying {@link Cache}, or -1 if it is not a {@link MeasurableCache}
+     */
+    @Override
+    public int size()
+    {
+        return this.cache instanceof MeasurableCache ? ((MeasurableCache) this.cache).size() : -1;
+    }
+
+    /**
+     * Returns the weight of the compressed entries within the underlying {@link Cache}, or -1 if it is not a {@link MeasurableCache}
+     */
+    @Override
+    public long getWeight()
+    {
+        return this.cache instanceof MeasurableCache ? ((MeasurableCache) this.cache).getWeight() : -1;
+    }
+
+    @Override
+    public void addEvictionListener(Consumer<String> listener)
+    {
+        if (this.cache instanceof MeasurableCache)
+        {
+            ((MeasurableCache) this.cache).addEvictionListener(listener);
+        }
+    }
+
+    private CacheEntryCodec.Entry decode(CompressedCacheEntry compressedEntry)
+    {
+        byte[] data = compressedEntry.isCompressed() ? this.codec.decompress(compressedEntry.getData(), compressedEntry.getUncompressedLength())
+                : compressedEntry.getData();
+        return CacheEntryCodec.decode(data);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "CompressingCache [cache=" + this.cache + ", codec=" + this.codec + ", thresholdInBytes=" + this.thresholdInBytes + "]";
+    }
+
+}
@@ -0,0 +1,237 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.rest.client.internal.cache;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Default {@link CacheKeyStrategy}.<br>
+ * <br>
+ * The url is normalized by lower casing scheme and host, removing default ports and fragments and sorting the query parameters by their
+ * name. Only request headers which are part of the allow list or which the server listed within the <code>Vary</code> header are part of the
+ * key, so headers like tracing ids do not fragment the cache. The credential headers {@link #CREDENTIAL_HEADER_NAMES} are always part of
+ * the key if present, so a response is never shared between different users, even if the server does not list them within the
+ * <code>Vary</code> header. The names and values are reduced to a SHA-256 hash which is appended to the normalized url, so credentials do not
+ * appear within the keys and keys of different header values can not be made to collide.
+ *
+ * @author omnaest
+ */
+public class DefaultCacheKeyStrategy implements CacheKeyStrategy
+{
+    /**
+     * Headers which are part of the key by default
+     */
+    public static final String[] DEFAULT_HEADER_NAMES = new String[] { "Accept", "Accept-Charset", "Accept-Language" };
+
+    /**
+     * Headers which are part of the key whenever they are present, regardless of the allow list
+     */
+    public static final String[] CREDENTIAL_HEADER_NAMES = new String[] { "Authorization", "Cookie" };
+
+    private final Set<String> headerNames = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+
+    public DefaultCacheKeyStrategy()
+    {
+        this(DEFAULT_HEADER_NAMES);
+    }
+
+    /**
+     * @param headerNames
+     *            allow list of the request headers which are part of the key in addition to the {@link #CREDENTIAL_HEADER_NAMES}
+     */
+    public DefaultCacheKeyStrategy(String... headerNames)
+    {
+        super();
+        this.headerNames.addAll(Arrays.asList(headerNames));
+        this.headerNames.addAll(Arrays.asList(CREDENTIAL_HEADER_NAMES));
+    }
+
+    @Override
+    public String generateUrlKey(String url)
+    {
+        return normalizeUrl(url);
+    }
+
+    @Override
+    public String generateKey(String urlKey, Map<String, String> headers, Set<String> varyHeaderNames)
+    {
+        if (headers == null || headers.isEmpty())
+        {
+            return urlKey;
+        }
+
+        Map<String, String> relevantHeaders = null;
+        for (Map.Entry<String, String> header : headers.entrySet())
+        {
+            String name = header.getKey();
+            if (name != null && (this.headerNames.contains(name) || containsIgnoreCase(varyHeaderNames, name)))
+            {
+                if (relevantHeaders == null)
+                {
+                    relevantHeaders = new TreeMap<>();
+                }
+                relevantHeaders.put(name.toLowerCase(Locale.ROOT), header.getValue());
+            }
+        }
+
+        if (relevantHeaders == null)
+        {
+            return urlKey;
+        }
+        else
+        {
+            MessageDigest digest = createDigest();
+            for (Map.Entry<String, String> header : relevantHeaders.entrySet())
+            {
+                // the length prefixes keep the encoding unambiguous, whatever characters the names and values contain
+                update(digest, header.getKey());
+                update(digest, header.getValue() != null ? header.getValue() : "");
+            }
+
+            StringBuilder key = new StringBuilder(urlKey).append(" #");
+            for (byte value : digest.digest())
+            {
+                key.append(Character.forDigit((value >> 4) & 0xf, 16))
+                   .append(Character.forDigit(value & 0xf, 16));
+            }
+            return key.toString();
+        }
+    }
+
+    /**
+     * Normalizes the given url, so equivalent urls result in the same string
+     * 
+     * @param url
+     * @return
+     */
+    public static String normalizeUrl(String url)
+    {
+        int fragmentIndex = url.indexOf('#');
+        if (fragmentIndex >= 0)
+        {
+            url = url.substring(0, fragmentIndex);
+        }
+
+        int queryIndex = url.indexOf('?');
+        String path = queryIndex >= 0 ? url.substring(0, queryIndex) : url;
+        String query = queryIndex >= 0 ? url.substring(queryIndex + 1) : "";
+
+        StringBuilder normalizedUrl = new StringBuilder(url.length());
+        normalizedUrl.append(normalizeSchemeAndAuthority(path));
+
+        if (!query.isEmpty())
+        {
+            List<String> parameters = new ArrayList<>(Arrays.asList(query.split("&")));
+            parameters.removeIf(String::isEmpty);
+
+            // the sort is stable, so repeated parameters keep their order
+            parameters.sort(Comparator.comparing(DefaultCacheKeyStrategy::determineParameterName));
+            if (!parameters.isEmpty())
+            {
+                normalizedUrl.append('?')
+                             .append(String.join("&", parameters));
+            }
+        }
+        return normalizedUrl.toString();
+    }
+
+    private static String normalizeSchemeAndAuthority(String path)
+    {
+        int schemeIndex = path.indexOf("://");
+        if (schemeIndex < 0)
+        {
+            return path;
+        }
+
+        String scheme = path.substring(0, schemeIndex)
+                            .toLowerCase(Locale.ROOT);
+        int authorityStart = schemeIndex + 3;
+        int authorityEnd = path.indexOf('/', authorityStart);
+        String authority = authorityEnd >= 0 ? path.substring(authorityStart, authorityEnd) : path.substring(authorityStart);
+        String remainder = authorityEnd >= 0 ? path.substring(authorityEnd) : "/";
+
+        int userInfoIndex = authority.lastIndexOf('@');
+        String userInfo = userInfoIndex >= 0 ? authority.substring(0, userInfoIndex + 1) : "";
+        String host = authority.substring(userInfoIndex + 1)
+                               .toLowerCase(Locale.ROOT);
+        if ((scheme.equals("http") && host.endsWith(":80")) || (scheme.equals("https") && host.endsWith(":443")))
+        {
+            host = host.substring(0, host.lastIndexOf(':'));
+        }
+        return scheme + "://" + userInfo + host + remainder;
+    }
+
+    private static String determineParameterName(String parameter)
+    {
+        int index = parameter.indexOf('=');
+        return index >= 0 ? parameter.substring(0, index) : parameter;
+    }
+
+    private static boolean containsIgnoreCase(Set<String> names, String name)
+    {
+        if (names != null)
+        {
+            for (String candidate : names)
+            {
+                if (candidate.equalsIgnoreCase(name))
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static MessageDigest createDigest()
+    {
+        try
+        {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void update(MessageDigest digest, String value)
+    {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        digest.update(ByteBuffer.allocate(4)
+                                .putInt(bytes.length)
+                                .array());
+        digest.update(bytes);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "DefaultCacheKeyStrategy [headerNames=" + this.headerNames + "]";
+    }
+
+}
@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.rest.client.internal.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * {@link CompressionCodec} based on the deflate algorithm of {@link java.util.zip}
+ *
+ * @author omnaest
+ */
+public class DeflateCompressionCodec implements CompressionCodec
+{
+    private final int level;
+
+    /**
+     * Uses {@link Deflater#BEST_SPEED}, which already reduces json by a large factor at a fraction of the cost of higher levels
+     */
+    public DeflateCompressionCodec()
+    {
+        this(Deflater.BEST_SPEED);
+    }
+
+    /**
+     * @param level
+     *            compression level between 0 and 9
+     */
+    public DeflateCompressionCodec(int level)
+    {
+        super();
+        this.level = level;
+    }
+
+    @Override
+    public byte[] compress(byte[] data)
+    {
+        Deflater deflater = new Deflater(this.level, true);
+        try
+        {
+            deflater.setInput(data);
+            deflater.finish();
+
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished())
+            {
+                int length = deflater.deflate(buffer);
+                outputStream.write(buffer, 0, length);
+            }
+            return outputStream.toByteArray();
+        }
+        finally
+        {
+            deflater.end();
+        }
+    }
+
+    @Override
+    public byte[] decompress(byte[] data, int uncompressedLength)
+    {
+        Inflater inflater = new Inflater(true);
+        try
+        {
+            inflater.setInput(data);
+            byte[] result = new byte[uncompressedLength];
+            int offset = 0;
+            while (offset < uncompressedLength && !inflater.finished())
+            {
+                int length = inflater.inflate(result, offset, uncompressedLength - offset);
+                if (length == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                {
+                    break;
+                }
+                offset += length;
+            }
+            if (offset != uncompressedLength)
+            {
+                throw new IllegalStateException("Corrupt compressed cache entry");
+            }
+            return result;
+        }
+        catch (DataFormatException e)
+        {
+            throw new IllegalStateException("Corrupt compressed cache entry", e);
+        }
+        finally
+        {
+            inflater.end();
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "DeflateCompressionCodec [level=" + this.level + "]";
+    }
+
+}
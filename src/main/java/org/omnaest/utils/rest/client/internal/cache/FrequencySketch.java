@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.rest.client.internal.cache;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Count-min sketch which estimates the access frequency of keys with a small and fixed memory footprint. Counters are limited to 15 and are
+ * halved periodically, so the sketch reflects the recent popularity of keys.<br>
+ * <br>
+ * Increments are lock free, concurrent increments of the same counter may get lost, which is acceptable for an estimate.
+ *
+ * @author omnaest
+ */
+public class FrequencySketch
+{
+    private static final int   MAX_COUNT = 15;
+    private static final int[] SEEDS     = new int[] { 0x97cb3127, 0xb2f7c5b5, 0xc2b2ae35, 0x27d4eb2f };
+
+    private final AtomicIntegerArray table;
+    private final int                mask;
+    private final long               sampleSize;
+    private final AtomicLong         additions = new AtomicLong();
+
+    /**
+     * @param expectedNumberOfEntries
+     *            determines the width of the sketch
+     */
+    public FrequencySketch(int expectedNumberOfEntries)
+    {
+        super();
+        int size = Integer.highestOneBit(Math.max(64, Math.min(expectedNumberOfEntries, 1 << 24)) - 1) << 1;
+        this.table = new AtomicIntegerArray(size);
+        this.mask = size - 1;
+        this.sampleSize = 10l * size;
+    }
+
+    /**
+     * Returns the estimated access frequency of the given key between 0 and 15
+     *
+     * @param key
+     * @return
+     */
+    public int frequency(String key)
+    {
+        int hash = spread(key.hashCode());
+        int frequency = MAX_COUNT;
+        for (int seed : SEEDS)
+        {
+            frequency = Math.min(frequency, this.table.get(this.indexOf(hash, seed)));
+        }
+        return frequency;
+    }
+
+    /**
+     * Increments the access frequency of the given key
+     *
+     * @param key
+     */
+    public void increment(String key)
+    {
+        int hash = spread(key.hashCode());
+        boolean incremented = false;
+        for (int seed : SEEDS)
+        {
+            int index = this.indexOf(hash, seed);
+            int count = this.table.get(index);
+            if (count < MAX_COUNT && this.table.compareAndSet(index, count, count + 1))
+            {
+                incremented = true;
+            }
+        }
+
+        if (incremented && this.additions.incrementAndGet() >= this.sampleSize)
+        {
+            this.reset();
+        }
+    }
+
+    /**
+     * Halves all counters, so older accesses lose their weight
+     */
+    private void reset()
+    {
+        this.additions.set(0);
+        for (int i = 0; i < this.table.length(); i++)
+        {
+            this.table.set(i, this.table.get(i) >>> 1);
+        }
+    }
+
+    private int indexOf(int hash, int seed)
+    {
+        int index = hash * seed;
+        index += index >>> 16;
+        return index & this.mask;
+    }
+
+    private static int spread(int hash)
+    {
+        hash ^= hash >>> 17;
+        hash *= 0xed5ad4bb;
+        hash ^= hash >>> 11;
+        hash *= 0xac4c1b51;
+        hash ^= hash >>> 15;
+        return hash;
+    }
+}
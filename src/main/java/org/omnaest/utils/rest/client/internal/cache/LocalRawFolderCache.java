@@ -0,0 +1,227 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.rest.client.internal.cache;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.omnaest.utils.cache.Cache;
+import org.omnaest.utils.exception.RuntimeIOException;
+import org.omnaest.utils.rest.client.internal.holder.RawResponse;
+
+/**
+ * {@link Cache} which stores each entry as a single file within a local folder.<br>
+ * <br>
+ * {@link RawResponse}s are stored as their original bytes together with their content type, so reading a cached response costs one file
+ * read and no intermediate serialization. Any other value is stored as json.
+ *
+ * @author omnaest
+ */
+public class LocalRawFolderCache implements Cache
+{
+    private static final String FILE_EXTENSION         = ".entry";
+    private static final int    KEY_HEADER_BUFFER_SIZE = 512;
+
+    private final Path directory;
+
+    public LocalRawFolderCache(File directory)
+    {
+        super();
+        this.directory = directory.toPath();
+        try
+        {
+            Files.createDirectories(this.directory);
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeIOException(e);
+        }
+    }
+
+    @Override
+    public <V> V get(String key, Class<V> type)
+    {
+        CacheEntryCodec.Entry entry = this.readEntry(this.resolveFile(key));
+        return entry != null ? entry.getValue(type) : null;
+    }
+
+    @Override
+    public Class<?> getType(String key)
+    {
+        CacheEntryCodec.Entry entry = this.readEntry(this.resolveFile(key));
+        return entry != null ? entry.getType() : null;
+    }
+
+    @Override
+    public boolean contains(String key)
+    {
+        return Files.exists(this.resolveFile(key));
+    }
+
+    @Override
+    public <V> V computeIfAbsent(String key, Supplier<V> supplier, Class<V> type)
+    {
+        V value = this.get(key, type);
+        if (value == null && !this.contains(key))
+        {
+            value = supplier.get();
+            if (value != null)
+            {
+                this.put(key, value);
+            }
+        }
+        return value;
+    }
+
+    @Override
+    public void put(String key, Object value)
+    {
+        this.writeEntry(this.resolveFile(key), CacheEntryCodec.encode(key, value));
+    }
+
+    @Override
+    public void remove(String key)
+    {
+        try
+        {
+            Files.deleteIfExists(this.resolveFile(key));
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeIOException(e);
+        }
+    }
+
+    @Override
+    public Set<String> keySet()
+    {
+        try (Stream<Path> files = Files.list(this.directory))
+        {
+            Set<String> keys = files.filter(file -> file.getFileName()
+                                                        .toString()
+                                                        .endsWith(FILE_EXTENSION))
+                                    .map(this::readKey)
+                                    .filter(key -> key != null)
+                                    .collect(Collectors.toSet());
+            return Collections.unmodifiableSet(keys);
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeIOException(e);
+        }
+    }
+
+    private CacheEntryCodec.Entry readEntry(Path file)
+    {
+        try
+        {
+            return CacheEntryCodec.decode(Files.readAllBytes(file));
+        }
+        catch (NoSuchFileException e)
+        {
+            return null;
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeIOException(e);
+        }
+    }
+
+    /**
+     * Reads only the key header of the given entry file. Missing and corrupted files are ignored.
+     * 
+     * @param file
+     * @return
+     */
+    private String readKey(Path file)
+    {
+        try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(file), KEY_HEADER_BUFFER_SIZE))
+        {
+            return CacheEntryCodec.decodeKey(inputStream, Files.size(file));
+        }
+        catch (NoSuchFileException | IllegalStateException e)
+        {
+            return null;
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeIOException(e);
+        }
+    }
+
+    private void writeEntry(Path file, byte[] entry)
+    {
+        try
+        {
+            // write to a temporary file first, so readers never see partially written entries
+            Path temporaryFile = Files.createTempFile(this.directory, "entry", ".tmp");
+            try
+            {
+                Files.write(temporaryFile, entry);
+                Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            finally
+            {
+                Files.deleteIfExists(temporaryFile);
+            }
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeIOException(e);
+        }
+    }
+
+    private Path resolveFile(String key)
+    {
+        try
+        {
+            byte[] hash = MessageDigest.getInstance("SHA-256")
+                                       .digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder fileName = new StringBuilder();
+            for (byte value : hash)
+            {
+                fileName.append(String.format("%02x", value));
+            }
+            return this.directory.resolve(fileName.append(FILE_EXTENSION)
+                                                  .toString());
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "LocalRawFolderCache [directory=" + this.directory + "]";
+    }
+
+}
@@ -0,0 +1,787 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.rest.client.internal.cache;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.omnaest.utils.cache.Cache;
+import org.omnaest.utils.exception.RuntimeIOException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Persistent {@link Cache} which appends its entries to segment files and reads them via memory mapping.<br>
+ * <br>
+ * Every write appends the encoded entry to the current segment and a fixed size record with the hash of the key and the location of the
+ * entry to an index file. At startup the index file is mapped and replayed into an in memory index, so reopening the cache does not read
+ * the entries itself. Removed and overwritten entries remain in their segments until {@link #compact()} rewrites all live entries, which
+ * happens automatically in the background if the dead bytes exceed the live bytes. Writes continue into a new segment while a compaction
+ * copies the live entries.<br>
+ * <br>
+ * Appended entries are forced to the storage device in batches of {@value #FORCE_BATCH_SIZE} bytes, by {@link #flush()} and on
+ * {@link #close()}. After a crash the index can therefore reference entries which have not been written completely, such entries are
+ * treated as missing.<br>
+ * <br>
+ * Entries are indexed by a 64 bit hash of their key and the key is verified on read. If two keys share the same hash, the later write
+ * replaces the former entry.
+ *
+ * @author omnaest
+ */
+public class MappedSegmentCache implements Cache, MeasurableCache, Closeable
+{
+    private static final String  INDEX_FILE_NAME                   = "index.log";
+    private static final Pattern SEGMENT_FILE_NAME_PATTERN         = Pattern.compile("segment-([0-9]+)\\.data");
+    private static final int     INDEX_RECORD_SIZE                 = 24;
+    private static final int     TOMBSTONE                         = -1;
+    private static final long    DEFAULT_MAXIMUM_SEGMENT_SIZE      = 64 * 1024 * 1024;
+    private static final long    DEFAULT_COMPACTION_THRESHOLD_SIZE = 16 * 1024 * 1024;
+    private static final long    MAPPING_GROWTH_STEP_SIZE          = 4 * 1024 * 1024;
+    private static final long    FORCE_BATCH_SIZE                  = 1024 * 1024;
+
+    private static final Logger             LOG                 = LoggerFactory.getLogger(MappedSegmentCache.class);
+    private static final ThreadPoolExecutor COMPACTION_EXECUTOR = createCompactionExecutor();
+
+    private final Path directory;
+    private final long maximumSegmentSize;
+    private final long compactionThresholdSize;
+
+    private final Map<Long, Location>   index               = new ConcurrentHashMap<>();
+    private final Map<Integer, Segment> segments            = new ConcurrentHashMap<>();
+    private final Object                compactionLock      = new Object();
+    private final AtomicBoolean         compactionScheduled = new AtomicBoolean(false);
+    private FileChannel                 indexChannel;
+    private Segment                     activeSegment;
+    private int                         nextSegmentId       = 0;
+    private long                        liveBytes           = 0;
+    private long                        deadBytes           = 0;
+    private long                        unforcedBytes       = 0;
+    private boolean                     closed              = false;
+
+    private static class Location
+    {
+        private final int  segmentId;
+        private final long offset;
+        private final int  length;
+
+        public Location(int segmentId, long offset, int length)
+        {
+            super();
+            this.segmentId = segmentId;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    private static class Segment
+    {
+        private final int                 id;
+        private final Path                file;
+        private final FileChannel         channel;
+        private volatile MappedByteBuffer buffer;
+
+        public Segment(int id, Path file) throws IOException
+        {
+            super();
+            this.id = id;
+            this.file = file;
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+
+        public long size() throws IOException
+        {
+            return this.channel.size();
+        }
+
+        public long append(byte[] data) throws IOException
+        {
+            long offset = this.channel.size();
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            while (buffer.hasRemaining())
+            {
+                this.channel.write(buffer, offset + buffer.position());
+            }
+            return offset;
+        }
+
+        /**
+         * Forces the appended entries to the storage device
+         */
+        public void force() throws IOException
+        {
+            this.channel.force(false);
+        }
+
+        /**
+         * Returns a view of the given region or null, if the region lies outside of the segment file. The mapping is extended only if the
+         * unmapped part of the file has grown by at least {@link #MAPPING_GROWTH_STEP_SIZE}, regions behind the mapping are read from the
+         * channel otherwise. This prevents a remapping of the whole segment for each read of a recently appended entry.
+         */
+        public ByteBuffer read(long offset, int length) throws IOException
+        {
+            if (offset < 0 || length < 0)
+            {
+                return null;
+            }
+
+            long end = offset + length;
+            MappedByteBuffer buffer = this.buffer;
+            if (buffer == null || end > buffer.capacity())
+            {
+                long size = this.channel.size();
+                if (end > size)
+                {
+                    return null;
+                }
+
+                synchronized (this)
+                {
+                    buffer = this.buffer;
+                    if (buffer == null || size - buffer.capacity() >= MAPPING_GROWTH_STEP_SIZE)
+                    {
+                        buffer = this.channel.map(MapMode.READ_ONLY, 0, size);
+                        this.buffer = buffer;
+                    }
+                }
+
+                if (end > buffer.capacity())
+                {
+                    ByteBuffer region = ByteBuffer.allocate(length);
+                    while (region.hasRemaining())
+                    {
+                        if (this.channel.read(region, offset + region.position()) < 0)
+                        {
+                            return null;
+                        }
+                    }
+                    region.flip();
+                    return region;
+                }
+            }
+
+            ByteBuffer view = buffer.duplicate();
+            view.position((int) offset);
+            view.limit((int) end);
+            return view;
+        }
+
+        public void close() throws IOException
+        {
+            this.channel.close();
+        }
+    }
+
+    private static ThreadPoolExecutor createCompactionExecutor()
+    {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable ->
+        {
+            Thread thread = new Thread(runnable, "MappedSegmentCache-compaction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * @param directory
+     */
+    public MappedSegmentCache(File directory)
+    {
+        this(directory, DEFAULT_MAXIMUM_SEGMENT_SIZE, DEFAULT_COMPACTION_THRESHOLD_SIZE);
+    }
+
+    /**
+     * @param directory
+     * @param maximumSegmentSize
+     *            size in bytes after which a new segment file is started
+     * @param compactionThresholdSize
+     *            minimum number of dead bytes before an automatic compaction is considered
+     */
+    public MappedSegmentCache(File directory, long maximumSegmentSize, long compactionThresholdSize)
+    {
+        super();
+        this.directory = directory.toPath();
+        this.maximumSegmentSize = Math.min(maximumSegmentSize, Integer.MAX_VALUE);
+        this.compactionThresholdSize = compactionThresholdSize;
+        try
+        {
+            Files.createDirectories(this.directory);
+            this.load();
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeIOException(e);
+        }
+    }
+
+    @Override
+    public <V> V get(String key, Class<V> type)
+    {
+        CacheEntryCodec.Entry entry = this.readEntry(key);
+        return entry != null ? entry.getValue(type) : null;
+    }
+
+    @Override
+    public Class<?> getType(String key)
+    {
+        CacheEntryCodec.Entry entry = this.readEntry(key);
+        return entry != null ? entry.getType() : null;
+    }
+
+    @Override
+    public boolean contains(String key)
+    {
+        return key.equals(this.readKey(this.index.get(hash(key))));
+    }
+
+    @Override
+    public <V> V computeIfAbsent(String key, Supplier<V> supplier, Class<V> type)
+    {
+        V value = this.get(key, type);
+        if (value == null && !this.contains(key))
+        {
+            value = supplier.get();
+            if (value != null)
+            {
+                this.put(key, value);
+            }
+        }
+        return value;
+    }
+
+    @Override
+    public void put(String key, Object value)
+    {
+        byte[] entry = CacheEntryCodec.encode(key, value);
+        synchronized (this)
+        {
+            try
+            {
+                if (this.activeSegment.size() + entry.length > this.maximumSegmentSize && this.activeSegment.size() > 0)
+                {
+                    this.activeSegment.force();
+                    this.activeSegment = this.openSegment();
+                }
+                long offset = this.activeSegment.append(entry);
+                Location location = new Location(this.activeSegment.id, offset, entry.length);
+                this.appendIndexRecord(hash(key), location);
+                this.updateIndex(hash(key), location);
+                this.forceIfNecessary(entry.length + INDEX_RECORD_SIZE);
+            }
+            catch (IOException e)
+            {
+                throw new RuntimeIOException(e);
+            }
+            this.compactIfNecessary();
+        }
+    }
+
+    @Override
+    public void remove(String key)
+    {
+        long hash = hash(key);
+        synchronized (this)
+        {
+            if (key.equals(this.readKey(this.index.get(hash))))
+            {
+                try
+                {
+                    this.appendIndexRecord(hash, new Location(0, 0, TOMBSTONE));
+                    this.forceIfNecessary(INDEX_RECORD_SIZE);
+                }
+                catch (IOException e)
+                {
+                    throw new RuntimeIOException(e);
+                }
+                this.updateIndex(hash, null);
+                this.compactIfNecessary();
+            }
+        }
+    }
+
+    @Override
+    public Set<String> keySet()
+    {
+        Set<String> keys = new HashSet<>();
+        for (Location location : this.index.values())
+        {
+            String key = this.readKey(location);
+            if (key != null)
+            {
+                keys.add(key);
+            }
+        }
+        return Collections.unmodifiableSet(keys);
+    }
+
+    @Override
+    public int size()
+    {
+        return this.index.size();
+    }
+
+    /**
+     * Returns the number of bytes of the live entries within the segments
+     */
+    @Override
+    public synchronized long getWeight()
+    {
+        return this.liveBytes;
+    }
+
+    /**
+     * Entries are never evicted, so the given listener is never called
+     */
+    @Override
+    public void addEvictionListener(Consumer<String> listener)
+    {
+    }
+
+    /**
+     * Rewrites all live entries into new segments together with a new index and deletes the old segments afterwards. The entries are copied
+     * without blocking reads and writes, which continue into a new active segment meanwhile.
+     */
+    public void compact()
+    {
+        synchronized (this.compactionLock)
+        {
+            try
+            {
+                Set<Segment> previousSegments;
+                Map<Long, Location> previousIndex;
+                synchronized (this)
+                {
+                    if (this.closed)
+                    {
+                        return;
+                    }
+                    this.activeSegment.force();
+                    previousSegments = new HashSet<>(this.segments.values());
+                    previousIndex = new HashMap<>(this.index);
+                    this.activeSegment = this.openSegment();
+                }
+
+                Map<Long, Location> compactedIndex = new HashMap<>();
+                Segment segment = null;
+                for (Map.Entry<Long, Location> indexEntry : previousIndex.entrySet())
+                {
+                    ByteBuffer source = this.readRegion(indexEntry.getValue());
+                    if (source == null)
+                    {
+                        continue;
+                    }
+                    byte[] data = new byte[source.remaining()];
+                    source.get(data);
+
+                    if (segment == null || (segment.size() + data.length > this.maximumSegmentSize && segment.size() > 0))
+                    {
+                        if (segment != null)
+                        {
+                            segment.force();
+                        }
+                        segment = this.openSegment();
+                    }
+                    compactedIndex.put(indexEntry.getKey(), new Location(segment.id, segment.append(data), data.length));
+                }
+                if (segment != null)
+                {
+                    segment.force();
+                }
+
+                synchronized (this)
+                {
+                    // entries which have been written or removed during the copy are kept as they are
+                    for (Map.Entry<Long, Location> compactedEntry : compactedIndex.entrySet())
+                    {
+                        this.index.replace(compactedEntry.getKey(), previousIndex.get(compactedEntry.getKey()), compactedEntry.getValue());
+                    }
+                    this.index.values()
+                              .removeIf(location -> previousSegments.contains(this.segments.get(location.segmentId)));
+                    this.rewriteIndex();
+
+                    // readers which still hold an old location keep a valid mapping until the buffer is garbage collected
+                    for (Segment previousSegment : previousSegments)
+                    {
+                        this.segments.remove(previousSegment.id);
+                        previousSegment.close();
+                        Files.deleteIfExists(previousSegment.file);
+                    }
+
+                    this.liveBytes = this.index.values()
+                                               .stream()
+                                               .mapToLong(location -> location.length)
+                                               .sum();
+                    long totalBytes = 0;
+                    for (Segment remainingSegment : this.segments.values())
+                    {
+                        totalBytes += remainingSegment.size();
+                    }
+                    this.deadBytes = totalBytes - this.liveBytes;
+                }
+            }
+            catch (IOException e)
+            {
+                throw new RuntimeIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Forces all appended entries and index records to the storage device
+     */
+    public synchronized void flush()
+    {
+        try
+        {
+            this.force();
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeIOException(e);
+        }
+    }
+
+    /**
+     * Waits for a running compaction, forces all appended entries to the storage device and closes all files
+     */
+    @Override
+    public void close()
+    {
+        synchronized (this.compactionLock)
+        {
+            synchronized (this)
+            {
+                if (this.closed)
+                {
+                    return;
+                }
+                this.closed = true;
+                try
+                {
+                    this.force();
+                    this.indexChannel.close();
+                    for (Segment segment : this.segments.values())
+                    {
+                        segment.close();
+                    }
+                }
+                catch (IOException e)
+                {
+                    throw new RuntimeIOException(e);
+                }
+            }
+        }
+    }
+
+    private void load() throws IOException
+    {
+        Path indexFile = this.directory.resolve(INDEX_FILE_NAME);
+        if (Files.exists(indexFile))
+        {
+            try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ))
+            {
+                long numberOfRecords = channel.size() / INDEX_RECORD_SIZE;
+                MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, numberOfRecords * INDEX_RECORD_SIZE);
+                for (long i = 0; i < numberOfRecords; i++)
+                {
+                    long hash = buffer.getLong();
+                    int segmentId = buffer.getInt();
+                    long offset = buffer.getLong();
+                    int length = buffer.getInt();
+                    this.updateIndex(hash, length != TOMBSTONE ? new Location(segmentId, offset, length) : null);
+                }
+            }
+        }
+
+        Set<Integer> referencedSegmentIds = new HashSet<>();
+        for (Location location : this.index.values())
+        {
+            referencedSegmentIds.add(location.segmentId);
+        }
+
+        // segments which are not referenced by the index are left over from an interrupted compaction
+        int maximumSegmentId = 0;
+        try (Stream<Path> files = Files.list(this.directory))
+        {
+            for (Path file : (Iterable<Path>) files::iterator)
+            {
+                Matcher matcher = SEGMENT_FILE_NAME_PATTERN.matcher(file.getFileName()
+                                                                        .toString());
+                if (matcher.matches())
+                {
+                    int segmentId = Integer.parseInt(matcher.group(1));
+                    if (referencedSegmentIds.contains(segmentId))
+                    {
+                        this.segments.put(segmentId, new Segment(segmentId, file));
+                        maximumSegmentId = Math.max(maximumSegmentId, segmentId);
+                    }
+                    else
+                    {
+                        Files.deleteIfExists(file);
+                    }
+                }
+            }
+        }
+
+        this.nextSegmentId = maximumSegmentId;
+        if (this.segments.containsKey(maximumSegmentId))
+        {
+            this.activeSegment = this.segments.get(maximumSegmentId);
+            this.nextSegmentId++;
+        }
+        else
+        {
+            this.activeSegment = this.openSegment();
+        }
+        this.indexChannel = this.openIndexChannel();
+    }
+
+    private FileChannel openIndexChannel() throws IOException
+    {
+        Path indexFile = this.directory.resolve(INDEX_FILE_NAME);
+        FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+
+        // drops a partially written record at the end of the index
+        channel.truncate(channel.size() / INDEX_RECORD_SIZE * INDEX_RECORD_SIZE);
+        channel.position(channel.size());
+        return channel;
+    }
+
+    private synchronized Segment openSegment() throws IOException
+    {
+        int segmentId = this.nextSegmentId++;
+        Segment segment = new Segment(segmentId, this.directory.resolve(String.format("segment-%06d.data", segmentId)));
+        this.segments.put(segmentId, segment);
+        return segment;
+    }
+
+    /**
+     * Replaces the index file by the records of the current index
+     */
+    private void rewriteIndex() throws IOException
+    {
+        Path temporaryIndexFile = this.directory.resolve(INDEX_FILE_NAME + ".tmp");
+        try (FileChannel temporaryIndexChannel = FileChannel.open(temporaryIndexFile, StandardOpenOption.CREATE,
+                                                                  StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))
+        {
+            for (Map.Entry<Long, Location> indexEntry : this.index.entrySet())
+            {
+                writeIndexRecord(temporaryIndexChannel, indexEntry.getKey(), indexEntry.getValue());
+            }
+            temporaryIndexChannel.force(false);
+        }
+        this.activeSegment.force();
+
+        this.indexChannel.close();
+        Files.move(temporaryIndexFile, this.directory.resolve(INDEX_FILE_NAME), StandardCopyOption.REPLACE_EXISTING,
+                   StandardCopyOption.ATOMIC_MOVE);
+        this.indexChannel = this.openIndexChannel();
+        this.unforcedBytes = 0;
+    }
+
+    private void forceIfNecessary(long appendedBytes) throws IOException
+    {
+        this.unforcedBytes += appendedBytes;
+        if (this.unforcedBytes >= FORCE_BATCH_SIZE)
+        {
+            this.force();
+        }
+    }
+
+    private void force() throws IOException
+    {
+        this.activeSegment.force();
+        this.indexChannel.force(false);
+        this.unforcedBytes = 0;
+    }
+
+    private void appendIndexRecord(long hash, Location location) throws IOException
+    {
+        writeIndexRecord(this.indexChannel, hash, location);
+    }
+
+    private static void writeIndexRecord(FileChannel channel, long hash, Location location) throws IOException
+    {
+        ByteBuffer record = ByteBuffer.allocate(INDEX_RECORD_SIZE);
+        record.putLong(hash);
+        record.putInt(location.segmentId);
+        record.putLong(location.offset);
+        record.putInt(location.length);
+        record.flip();
+        while (record.hasRemaining())
+        {
+            channel.write(record);
+        }
+    }
+
+    private void updateIndex(long hash, Location location)
+    {
+        Location previousLocation = location != null ? this.index.put(hash, location) : this.index.remove(hash);
+        if (previousLocation != null)
+        {
+            this.liveBytes -= previousLocation.length;
+            this.deadBytes += previousLocation.length;
+        }
+        if (location != null)
+        {
+            this.liveBytes += location.length;
+        }
+    }
+
+    private void compactIfNecessary()
+    {
+        if (this.isCompactionNecessary() && this.compactionScheduled.compareAndSet(false, true))
+        {
+            COMPACTION_EXECUTOR.execute(() ->
+            {
+                try
+                {
+                    // writes during a compaction can require a further compaction
+                    do
+                    {
+                        this.compact();
+                    } while (this.isCompactionNecessary());
+                }
+                catch (Exception e)
+                {
+                    LOG.warn("Compaction of " + this.directory + " failed", e);
+                }
+                finally
+                {
+                    this.compactionScheduled.set(false);
+                }
+            });
+        }
+    }
+
+    private synchronized boolean isCompactionNecessary()
+    {
+        return !this.closed && this.deadBytes > this.compactionThresholdSize && this.deadBytes > this.liveBytes;
+    }
+
+    private CacheEntryCodec.Entry readEntry(String key)
+    {
+        ByteBuffer region = this.readRegion(this.index.get(hash(key)));
+        if (region != null)
+        {
+            try
+            {
+                CacheEntryCodec.Entry entry = CacheEntryCodec.decode(region);
+                return key.equals(entry.getKey()) ? entry : null;
+            }
+            catch (IllegalStateException e)
+            {
+                LOG.debug("Corrupted entry for key " + key + " -> treated as missing", e);
+                return null;
+            }
+        }
+        else
+        {
+            return null;
+        }
+    }
+
+    private String readKey(Location location)
+    {
+        ByteBuffer region = this.readRegion(location);
+        try
+        {
+            return region != null ? CacheEntryCodec.decodeKey(region) : null;
+        }
+        catch (IllegalStateException e)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the region of the given {@link Location} or null, if the {@link Segment} has been removed by a concurrent compaction or the
+     * {@link Location} lies outside of its {@link Segment}, e.g. as the index references an entry which has not been fully written
+     */
+    private ByteBuffer readRegion(Location location)
+    {
+        if (location == null)
+        {
+            return null;
+        }
+
+        Segment segment = this.segments.get(location.segmentId);
+        if (segment == null)
+        {
+            return null;
+        }
+
+        try
+        {
+            return segment.read(location.offset, location.length);
+        }
+        catch (IOException e)
+        {
+            if (!segment.channel.isOpen())
+            {
+                return null;
+            }
+            throw new RuntimeIOException(e);
+        }
+    }
+
+    /**
+     * 64 bit FNV-1a hash of the given key
+     */
+    private static long hash(String key)
+    {
+        long hash = 0xcbf29ce484222325l;
+        for (byte value : key.getBytes(StandardCharsets.UTF_8))
+        {
+            hash ^= value & 0xff;
+            hash *= 0x100000001b3l;
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "MappedSegmentCache [directory=" + this.directory + ", size=" + this.index.size() + "]";
+    }
+
+}
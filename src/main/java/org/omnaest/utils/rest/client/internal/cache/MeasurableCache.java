@@ -0,0 +1,47 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.rest.client.internal.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * {@link org.omnaest.utils.cache.Cache} which provides its size and reports the keys of evicted entries
+ *
+ * @author omnaest
+ */
+public interface MeasurableCache
+{
+    /**
+     * Returns the number of cached entries
+     * 
+     * @return
+     */
+    public int size();
+
+    /**
+     * Returns the estimated size of all cached entries in bytes
+     * 
+     * @return
+     */
+    public long getWeight();
+
+    /**
+     * Adds a listener which is called with the key of each entry which is evicted to free space. Explicit removals are not reported.
+     * 
+     * @param listener
+     */
+    public void addEvictionListener(Consumer<String> listener);
+}
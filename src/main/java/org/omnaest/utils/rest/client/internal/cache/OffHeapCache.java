@@ -0,0 +1,304 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.rest.client.internal.cache;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.omnaest.utils.cache.Cache;
+
+/**
+ * {@link Cache} which keeps its entries serialized within direct {@link ByteBuffer}s outside of the heap. Only the keys and the entries which
+ * are currently decoded are held on the heap.<br>
+ * <br>
+ * The off heap budget is split into slabs of equal size, which are allocated on demand. Entries are appended to the current slab, if the
+ * budget is exhausted the oldest slab is cleared and reused together with all entries it contains. Entries which are larger than a single
+ * slab are not cached.
+ *
+ * @author omnaest
+ */
+public class OffHeapCache implements Cache, MeasurableCache
+{
+    private static final int DEFAULT_SLAB_SIZE_IN_BYTES = 4 * 1024 * 1024;
+
+    private final int maximumNumberOfSlabs;
+    private final int slabSize;
+
+    private final Map<String, Location> index = new ConcurrentHashMap<>();
+    private final List<Slab>            slabs = new ArrayList<>();
+    private int                         currentSlabIndex = -1;
+
+    private final List<Consumer<String>> evictionListeners = new CopyOnWriteArrayList<>();
+
+    private static class Location
+    {
+        private final String key;
+        private final Slab   slab;
+        private final int    offset;
+        private final int    length;
+
+        public Location(String key, Slab slab, int offset, int length)
+        {
+            super();
+            this.key = key;
+            this.slab = slab;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    private static class Slab
+    {
+        private final ByteBuffer     buffer;
+        private final ReadWriteLock  lock      = new ReentrantReadWriteLock();
+        private final List<Location> locations = new ArrayList<>();
+        private int                  position  = 0;
+
+        public Slab(int size)
+        {
+            super();
+            this.buffer = ByteBuffer.allocateDirect(size);
+        }
+
+        public int remaining()
+        {
+            return this.buffer.capacity() - this.position;
+        }
+    }
+
+    /**
+     * @param maximumOffHeapBytes
+     */
+    public OffHeapCache(long maximumOffHeapBytes)
+    {
+        this(maximumOffHeapBytes, DEFAULT_SLAB_SIZE_IN_BYTES);
+    }
+
+    /**
+     * @param maximumOffHeapBytes
+     *            budget of direct memory, which is never exceeded
+     * @param slabSizeInBytes
+     *            size of a single slab, which also limits the size of a single entry
+     */
+    public OffHeapCache(long maximumOffHeapBytes, int slabSizeInBytes)
+    {
+        super();
+        this.slabSize = (int) Math.min(slabSizeInBytes, maximumOffHeapBytes);
+        this.maximumNumberOfSlabs = (int) Math.min(Integer.MAX_VALUE, Math.max(1, maximumOffHeapBytes / this.slabSize));
+    }
+
+    @Override
+    public <V> V get(String key, Class<V> type)
+    {
+        CacheEntryCodec.Entry entry = this.readEntry(this.index.get(key));
+        return entry != null ? entry.getValue(type) : null;
+    }
+
+    @Override
+    public Class<?> getType(String key)
+    {
+        CacheEntryCodec.Entry entry = this.readEntry(this.index.get(key));
+        return entry != null ? entry.getType() : null;
+    }
+
+    @Override
+    public boolean contains(String key)
+    {
+        return this.index.containsKey(key);
+    }
+
+    @Override
+    public <V> V computeIfAbsent(String key, Supplier<V> supplier, Class<V> type)
+    {
+        V value = this.get(key, type);
+        if (value == null && !this.contains(key))
+        {
+            value = supplier.get();
+            if (value != null)
+            {
+                this.put(key, value);
+            }
+        }
+        return value;
+    }
+
+    @Override
+    public void put(String key, Object value)
+    {
+        byte[] entry = CacheEntryCodec.encode(key, value);
+        if (entry.length > this.slabSize)
+        {
+            this.index.remove(key);
+            return;
+        }
+
+        synchronized (this)
+        {
+            Slab slab = this.determineSlabWithCapacity(entry.length);
+
+            // the region behind the position of the slab is not visible to any reader, so no lock is needed
+            ByteBuffer target = slab.buffer.duplicate();
+            target.position(slab.position);
+            target.put(entry);
+
+            Location location = new Location(key, slab, slab.position, entry.length);
+            slab.position += entry.length;
+            slab.locations.add(location);
+            this.index.put(key, location);
+        }
+    }
+
+    @Override
+    public void remove(String key)
+    {
+        this.index.remove(key);
+    }
+
+    @Override
+    public Set<String> keySet()
+    {
+        return Collections.unmodifiableSet(new HashSet<>(this.index.keySet()));
+    }
+
+    @Override
+    public int size()
+    {
+        return this.index.size();
+    }
+
+    /**
+     * Returns the number of bytes which are occupied within the slabs, including overwritten and removed entries which are not yet reclaimed
+     */
+    @Override
+    public synchronized long getWeight()
+    {
+        long weight = 0;
+        for (Slab slab : this.slabs)
+        {
+            weight += slab.position;
+        }
+        return weight;
+    }
+
+    @Override
+    public void addEvictionListener(Consumer<String> listener)
+    {
+        this.evictionListeners.add(listener);
+    }
+
+    /**
+     * Returns the number of bytes of direct memory which are currently allocated
+     *
+     * @return
+     */
+    public synchronized long getAllocatedBytes()
+    {
+        return (long) this.slabs.size() * this.slabSize;
+    }
+
+    private Slab determineSlabWithCapacity(int length)
+    {
+        Slab slab = this.currentSlabIndex >= 0 ? this.slabs.get(this.currentSlabIndex) : null;
+        if (slab == null || slab.remaining() < length)
+        {
+            if (this.slabs.size() < this.maximumNumberOfSlabs)
+            {
+                slab = new Slab(this.slabSize);
+                this.slabs.add(slab);
+                this.currentSlabIndex = this.slabs.size() - 1;
+            }
+            else
+            {
+                this.currentSlabIndex = (this.currentSlabIndex + 1) % this.slabs.size();
+                slab = this.slabs.get(this.currentSlabIndex);
+                this.clearSlab(slab);
+            }
+        }
+        return slab;
+    }
+
+    private void clearSlab(Slab slab)
+    {
+        slab.lock.writeLock()
+                 .lock();
+        try
+        {
+            for (Location location : slab.locations)
+            {
+                if (this.index.remove(location.key, location))
+                {
+                    this.evictionListeners.forEach(listener -> listener.accept(location.key));
+                }
+            }
+            slab.locations.clear();
+            slab.position = 0;
+        }
+        finally
+        {
+            slab.lock.writeLock()
+                     .unlock();
+        }
+    }
+
+    private CacheEntryCodec.Entry readEntry(Location location)
+    {
+        if (location == null)
+        {
+            return null;
+        }
+
+        Slab slab = location.slab;
+        slab.lock.readLock()
+                 .lock();
+        try
+        {
+            // the slab might have been reused since the location has been read from the index
+            if (this.index.get(location.key) != location)
+            {
+                return null;
+            }
+
+            ByteBuffer source = slab.buffer.duplicate();
+            source.position(location.offset);
+            source.limit(location.offset + location.length);
+            return CacheEntryCodec.decode(source);
+        }
+        finally
+        {
+            slab.lock.readLock()
+                     .unlock();
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "OffHeapCache [maximumNumberOfSlabs=" + this.maximumNumberOfSlabs + ", slabSize=" + this.slabSize + ", size=" + this.index.size()
+                + "]";
+    }
+
+}
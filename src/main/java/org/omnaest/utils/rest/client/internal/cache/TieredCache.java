@@ -0,0 +1,187 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.rest.client.internal.cache;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.omnaest.utils.cache.Cache;
+
+/**
+ * {@link Cache} which combines a fast first level {@link Cache}, e.g. a {@link BoundedInMemoryCache}, with a larger second level
+ * {@link Cache}, e.g. a {@link MappedSegmentCache}.<br>
+ * <br>
+ * Reads are answered by the first level if possible, hits of the second level are promoted into the first level. Writes and removals are
+ * applied to both levels, so the second level always contains all entries and the first level can evict entries at any time.
+ *
+ * @author omnaest
+ */
+public class TieredCache implements WeightAwareCache, MeasurableCache
+{
+    private final Cache firstLevelCache;
+    private final Cache secondLevelCache;
+
+    /**
+     * @param firstLevelCache
+     * @param secondLevelCache
+     */
+    public TieredCache(Cache firstLevelCache, Cache secondLevelCache)
+    {
+        super();
+        this.firstLevelCache = firstLevelCache;
+        this.secondLevelCache = secondLevelCache;
+    }
+
+    /**
+     * Reads the first level and falls back to the second level, if the first level has no value, as the first level can evict an entry at
+     * any time
+     */
+    @Override
+    public <V> V get(String key, Class<V> type)
+    {
+        V value = this.firstLevelCache.get(key, type);
+        if (value == null)
+        {
+            value = this.secondLevelCache.get(key, type);
+            if (value != null)
+            {
+                this.firstLevelCache.put(key, value);
+            }
+        }
+        return value;
+    }
+
+    @Override
+    public Class<?> getType(String key)
+    {
+        Class<?> type = this.firstLevelCache.getType(key);
+        return type != null ? type : this.secondLevelCache.getType(key);
+    }
+
+    @Override
+    public boolean contains(String key)
+    {
+        return this.firstLevelCache.contains(key) || this.secondLevelCache.contains(key);
+    }
+
+    @Override
+    public <V> V computeIfAbsent(String key, Supplier<V> supplier, Class<V> type)
+    {
+        V value = this.get(key, type);
+        if (value == null)
+        {
+            value = supplier.get();
+            if (value != null)
+            {
+                this.put(key, value);
+            }
+        }
+        return value;
+    }
+
+    @Override
+    public void put(String key, Object value)
+    {
+        this.secondLevelCache.put(key, value);
+        this.firstLevelCache.put(key, value);
+    }
+
+    /**
+     * Passes the given weight to the first level, if it is a {@link WeightAwareCache}. Entries which are promoted from the second level are
+     * weighed by the first level itself.
+     */
+    @Override
+    public void put(String key, Object value, long weightInBytes)
+    {
+        this.secondLevelCache.put(key, value);
+        if (this.firstLevelCache instanceof WeightAwareCache)
+        {
+            ((WeightAwareCache) this.firstLevelCache).put(key, value, weightInBytes);
+        }
+        else
+        {
+            this.firstLevelCache.put(key, value);
+        }
+    }
+
+    @Override
+    public void remove(String key)
+    {
+        this.firstLevelCache.remove(key);
+        this.secondLevelCache.remove(key);
+    }
+
+    @Override
+    public Set<String> keySet()
+    {
+        Set<String> keys = new HashSet<>(this.secondLevelCache.keySet());
+        keys.addAll(this.firstLevelCache.keySet());
+        return Collections.unmodifiableSet(keys);
+    }
+
+    /**
+     * Returns the number of entries of the second level, which contains all entries, or -1 if the second level is not a
+     * {@link MeasurableCache}
+     */
+    @Override
+    public int size()
+    {
+        return this.secondLevelCache instanceof MeasurableCache ? ((MeasurableCache) this.secondLevelCache).size() : -1;
+    }
+
+    /**
+     * Returns the sum of the weights of both levels, or -1 if any level is not a {@link MeasurableCache}
+     */
+    @Override
+    public long getWeight()
+    {
+        if (this.firstLevelCache instanceof MeasurableCache && this.secondLevelCache instanceof MeasurableCache)
+        {
+            return ((MeasurableCache) this.firstLevelCache).getWeight() + ((MeasurableCache) this.secondLevelCache).getWeight();
+        }
+        else
+        {
+            return -1;
+        }
+    }
+
+    /**
+     * Reports evictions of the second level only, as entries evicted by the first level are still cached
+     */
+    @Override
+    public void addEvictionListener(Consumer<String> listener)
+    {
+        if (this.secondLevelCache instanceof MeasurableCache)
+        {
+            ((MeasurableCache) this.secondLevelCache).addEvictionListener(listener);
+        }
+    }
+
+    Cache getSecondLevelCache()
+    {
+        return this.secondLevelCache;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "TieredCache [firstLevelCache=" + this.firstLevelCache + ", secondLevelCache=" + this.secondLevelCache + "]";
+    }
+
+}
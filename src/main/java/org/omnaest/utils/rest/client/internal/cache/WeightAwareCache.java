@@ -0,0 +1,36 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.rest.client.internal.cache;
+
+import org.omnaest.utils.cache.Cache;
+
+/**
+ * {@link Cache} which accounts entries by a given weight, e.g. the size of the response body a value has been decoded from, instead of
+ * estimating the weight from the value itself
+ *
+ * @author omnaest
+ */
+public interface WeightAwareCache extends Cache
+{
+    /**
+     * Similar to {@link #put(String, Object)} but uses the given weight for the entry
+     * 
+     * @param key
+     * @param value
+     * @param weightInBytes
+     */
+    public void put(String key, Object value, long weightInBytes);
+}
@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.rest.client.internal.entity;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.http.entity.AbstractHttpEntity;
+import org.omnaest.utils.exception.RuntimeIOException;
+import org.omnaest.utils.rest.client.RestHelper.BodyWriter;
+
+/**
+ * {@link AbstractHttpEntity} which lets a {@link BodyWriter} write the request body.<br>
+ * <br>
+ * Bodies up to the buffer threshold are buffered, so they are sent with a <code>Content-Length</code> header like any other request. Only
+ * larger bodies are written directly into the request {@link OutputStream} using chunked transfer encoding, which avoids holding them in
+ * memory.
+ * 
+ * @author omnaest
+ */
+public class BodyWriterEntity extends AbstractHttpEntity
+{
+    public static final int DEFAULT_BUFFER_THRESHOLD_IN_BYTES = 64 * 1024;
+
+    private final BodyWriter bodyWriter;
+    private final byte[]     bufferedBody;
+
+    /**
+     * Signals that the body exceeds the buffer threshold
+     */
+    private static class BufferThresholdExceededException extends IOException
+    {
+        private static final long serialVersionUID = 1L;
+    }
+
+    public BodyWriterEntity(BodyWriter bodyWriter, String contentType)
+    {
+        this(bodyWriter, contentType, DEFAULT_BUFFER_THRESHOLD_IN_BYTES);
+    }
+
+    /**
+     * @param bodyWriter
+     * @param contentType
+     * @param bufferThresholdInBytes
+     *            maximum size of a body which is buffered and sent with a <code>Content-Length</code>
+     */
+    public BodyWriterEntity(BodyWriter bodyWriter, String contentType, int bufferThresholdInBytes)
+    {
+        super();
+        this.bodyWriter = bodyWriter;
+        this.bufferedBody = bufferBody(bodyWriter, bufferThresholdInBytes);
+        this.setContentType(contentType);
+        this.setChunked(this.bufferedBody == null);
+    }
+
+    /**
+     * Returns the written body or null, if it exceeds the given threshold. In that case the {@link BodyWriter} is aborted as soon as the
+     * threshold is exceeded.
+     */
+    private static byte[] bufferBody(BodyWriter bodyWriter, int bufferThresholdInBytes)
+    {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(Math.min(bufferThresholdInBytes, 8192));
+        try
+        {
+            bodyWriter.writeTo(new OutputStream()
+            {
+                @Override
+                public void write(int b) throws IOException
+                {
+                    this.write(new byte[] { (byte) b }, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] bytes, int offset, int length) throws IOException
+                {
+                    if (buffer.size() + length > bufferThresholdInBytes)
+                    {
+                        throw new BufferThresholdExceededException();
+                    }
+                    buffer.write(bytes, offset, length);
+                }
+            });
+            return buffer.toByteArray();
+        }
+        catch (BufferThresholdExceededException e)
+        {
+            return null;
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeIOException(e);
+        }
+    }
+
+    @Override
+    public boolean isRepeatable()
+    {
+        return true;
+    }
+
+    @Override
+    public long getContentLength()
+    {
+        return this.bufferedBody != null ? this.bufferedBody.length : -1;
+    }
+
+    @Override
+    public InputStream getContent() throws IOException, UnsupportedOperationException
+    {
+        if (this.bufferedBody == null)
+        {
+            throw new UnsupportedOperationException("BodyWriterEntity exceeding the buffer threshold can only be written to an output stream");
+        }
+        return new ByteArrayInputStream(this.bufferedBody);
+    }
+
+    @Override
+    public void writeTo(OutputStream outputStream) throws IOException
+    {
+        if (this.bufferedBody != null)
+        {
+            outputStream.write(this.bufferedBody);
+        }
+        else
+        {
+            this.bodyWriter.writeTo(outputStream);
+        }
+    }
+
+    @Override
+    public boolean isStreaming()
+    {
+        return false;
+    }
+
+}
@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.rest.client.internal.entity;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Iterator;
+
+import org.apache.http.entity.AbstractHttpEntity;
+import org.omnaest.utils.rest.client.RestClient.MediaType;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * {@link AbstractHttpEntity} which writes the given elements as newline delimited json (application/x-ndjson) directly into the request
+ * {@link OutputStream} using chunked transfer encoding. The elements are consumed while the request is sent, so the entity is not repeatable.
+ * 
+ * @author omnaest
+ * @param <E>
+ */
+public class NDJsonEntity<E> extends AbstractHttpEntity
+{
+    private final Iterator<E>  elements;
+    private final ObjectMapper objectMapper;
+
+    public NDJsonEntity(Iterator<E> elements, ObjectMapper objectMapper)
+    {
+        super();
+        this.elements = elements;
+        this.objectMapper = objectMapper;
+        this.setContentType(MediaType.APPLICATION_NDJSON.getHeaderValue());
+        this.setChunked(true);
+    }
+
+    @Override
+    public boolean isRepeatable()
+    {
+        return false;
+    }
+
+    @Override
+    public long getContentLength()
+    {
+        return -1;
+    }
+
+    @Override
+    public InputStream getContent() throws IOException, UnsupportedOperationException
+    {
+        throw new UnsupportedOperationException("NDJsonEntity can only be written to an output stream");
+    }
+
+    @Override
+    public void writeTo(OutputStream outputStream) throws IOException
+    {
+        ObjectWriter writer = this.objectMapper.writer()
+                                               .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (JsonGenerator generator = this.objectMapper.getFactory()
+                                                        .createGenerator(outputStream, JsonEncoding.UTF8))
+        {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            while (this.elements.hasNext())
+            {
+                writer.writeValue(generator, this.elements.next());
+                generator.writeRaw('\n');
+            }
+        }
+    }
+
+    @Override
+    public boolean isStreaming()
+    {
+        return true;
+    }
+
+}
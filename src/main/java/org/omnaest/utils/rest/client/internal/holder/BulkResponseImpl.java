@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.rest.client.internal.holder;
+
+import java.util.Optional;
+
+import org.omnaest.utils.rest.client.RestClient.BulkResponse;
+
+public class BulkResponseImpl<T> implements BulkResponse<T>
+{
+    private final String           url;
+    private final T                result;
+    private final RuntimeException exception;
+
+    private BulkResponseImpl(String url, T result, RuntimeException exception)
+    {
+        super();
+        this.url = url;
+        this.result = result;
+        this.exception = exception;
+    }
+
+    public static <T> BulkResponse<T> ofResult(String url, T result)
+    {
+        return new BulkResponseImpl<>(url, result, null);
+    }
+
+    public static <T> BulkResponse<T> ofException(String url, RuntimeException exception)
+    {
+        return new BulkResponseImpl<>(url, null, exception);
+    }
+
+    @Override
+    public String getUrl()
+    {
+        return this.url;
+    }
+
+    @Override
+    public T get()
+    {
+        if (this.exception != null)
+        {
+            throw this.exception;
+        }
+        return this.result;
+    }
+
+    @Override
+    public boolean isSuccessful()
+    {
+        return this.exception == null;
+    }
+
+    @Override
+    public Optional<RuntimeException> getException()
+    {
+        return Optional.ofNullable(this.exception);
+    }
+
+    @Override
+    public Optional<T> asOptional()
+    {
+        return Optional.ofNullable(this.result);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "BulkResponseImpl [url=" + this.url + ", result=" + this.result + ", exception=" + this.exception + "]";
+    }
+
+}
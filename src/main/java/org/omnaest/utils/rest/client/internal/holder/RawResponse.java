@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.rest.client.internal.holder;
+
+import java.nio.charset.Charset;
+import java.util.Optional;
+
+import org.apache.http.entity.ContentType;
+
+/**
+ * Undecoded response body together with its content type, which allows to cache a response and to decode it later into any target type
+ *
+ * @author omnaest
+ */
+public class RawResponse
+{
+    private final String contentType;
+    private final byte[] body;
+
+    public RawResponse(String contentType, byte[] body)
+    {
+        super();
+        this.contentType = contentType;
+        this.body = body != null ? body : new byte[0];
+    }
+
+    /**
+     * Returns the value of the <code>Content-Type</code> header or null if it was not present
+     *
+     * @return
+     */
+    public String getContentType()
+    {
+        return this.contentType;
+    }
+
+    public byte[] getBody()
+    {
+        return this.body;
+    }
+
+    /**
+     * Returns the charset of the {@link #getContentType()} or the given default charset
+     *
+     * @param defaultCharset
+     * @return
+     */
+    public Charset getCharset(Charset defaultCharset)
+    {
+        try
+        {
+            return Optional.ofNullable(this.contentType)
+                           .map(ContentType::parse)
+                           .map(ContentType::getCharset)
+                           .orElse(defaultCharset);
+        }
+        catch (Exception e)
+        {
+            return defaultCharset;
+        }
+    }
+
+    /**
+     * Returns the body as {@link String} using the given default charset if the content type does not define a charset
+     *
+     * @param defaultCharset
+     * @return
+     */
+    public String getBodyAsString(Charset defaultCharset)
+    {
+        return new String(this.body, this.getCharset(defaultCharset));
+    }
+
+    /**
+     * Returns the body as {@link String}
+     */
+    @Override
+    public String toString()
+    {
+        return this.getBodyAsString(Charset.forName("UTF-8"));
+    }
+
+}
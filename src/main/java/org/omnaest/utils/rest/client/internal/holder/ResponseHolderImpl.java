@@ -1,6 +1,10 @@
 package org.omnaest.utils.rest.client.internal.holder;
 
+import java.util.Collections;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.TreeMap;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
@@ -11,26 +15,74 @@ import org.omnaest.utils.rest.client.RestHelper.RESTAccessExeption;
 
 public class ResponseHolderImpl<T> implements ResponseHolder<T>
 {
-    private final int   responseHttpStatusCode;
-    private Supplier<T> resultSupplier;
+    private final int                 responseHttpStatusCode;
+    private final Map<String, String> headers;
+    private final OptionalLong        bodySize;
+    private Supplier<T>               resultSupplier;
 
     public ResponseHolderImpl(T result, int responseHttpStatusCode)
+    {
+        this(result, responseHttpStatusCode, null);
+    }
+
+    /**
+     * @param result
+     * @param responseHttpStatusCode
+     * @param errorContent
+     *            raw body of a failed response, which is used as content of the {@link RESTAccessExeption} instead of the result
+     */
+    public ResponseHolderImpl(T result, int responseHttpStatusCode, String errorContent)
+    {
+        this(result, responseHttpStatusCode, errorContent, Collections.emptyMap());
+    }
+
+    /**
+     * @param result
+     * @param responseHttpStatusCode
+     * @param errorContent
+     *            raw body of a failed response, which is used as content of the {@link RESTAccessExeption} instead of the result
+     * @param headers
+     *            response headers
+     */
+    public ResponseHolderImpl(T result, int responseHttpStatusCode, String errorContent, Map<String, String> headers)
+    {
+        this(result, responseHttpStatusCode, errorContent, headers, OptionalLong.empty());
+    }
+
+    /**
+     * @param result
+     * @param responseHttpStatusCode
+     * @param errorContent
+     *            raw body of a failed response, which is used as content of the {@link RESTAccessExeption} instead of the result
+     * @param headers
+     *            response headers
+     * @param bodySize
+     *            number of bytes of the response body the result has been decoded from
+     */
+    public ResponseHolderImpl(T result, int responseHttpStatusCode, String errorContent, Map<String, String> headers, OptionalLong bodySize)
     {
         this.responseHttpStatusCode = responseHttpStatusCode;
+        this.headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        if (headers != null)
+        {
+            this.headers.putAll(headers);
+        }
+        this.bodySize = bodySize;
         this.resultSupplier = () ->
         {
-            this.validateResponseStatusCode(result);
+            this.validateResponseStatusCode(result, errorContent);
             return result;
         };
     }
 
-    private void validateResponseStatusCode(T result)
+    private void validateResponseStatusCode(T result, String errorContent)
     {
         if ((this.responseHttpStatusCode < 200 || this.responseHttpStatusCode > 299) && (this.responseHttpStatusCode != 302))
         {
-            throw new RESTAccessExeption(this.responseHttpStatusCode, Optional.ofNullable(result)
-                                                                              .map(String::valueOf)
-                                                                              .orElse(""));
+            throw new RESTAccessExeption(this.responseHttpStatusCode, Optional.ofNullable(errorContent)
+                                                                              .orElseGet(() -> Optional.ofNullable(result)
+                                                                                                       .map(String::valueOf)
+                                                                                                       .orElse("")));
         }
     }
 
@@ -40,6 +92,24 @@ public class ResponseHolderImpl<T> implements ResponseHolder<T>
         return this.resultSupplier.get();
     }
 
+    @Override
+    public int getStatusCode()
+    {
+        return this.responseHttpStatusCode;
+    }
+
+    @Override
+    public Optional<String> getHeader(String name)
+    {
+        return Optional.ofNullable(this.headers.get(name));
+    }
+
+    @Override
+    public OptionalLong getBodySize()
+    {
+        return this.bodySize;
+    }
+
     @Override
     public ResponseHolder<T> handleStatusCode(int httpStatusCode, HttpStatusCodeHandler<T> statusCodeHandler)
     {
@@ -71,6 +141,24 @@ public class ResponseHolderImpl<T> implements ResponseHolder<T>
                 return this.resultSupplier.get();
             }
 
+            @Override
+            public int getStatusCode()
+            {
+                return responseHolder.getStatusCode();
+            }
+
+            @Override
+            public Optional<String> getHeader(String name)
+            {
+                return responseHolder.getHeader(name);
+            }
+
+            @Override
+            public OptionalLong getBodySize()
+            {
+                return responseHolder.getBodySize();
+            }
+
             @Override
             public ResponseHolder<R> handleStatusCode(int httpStatusCode, HttpStatusCodeHandler<R> statusCodeHandler)
             {
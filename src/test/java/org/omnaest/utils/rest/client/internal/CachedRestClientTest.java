@@ -0,0 +1,577 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.rest.client.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.omnaest.utils.cache.Cache;
+import org.omnaest.utils.rest.client.RestClient;
+import org.omnaest.utils.rest.client.RestClient.ResponseHolder;
+import org.omnaest.utils.rest.client.RestHelper.RESTAccessExeption;
+import org.omnaest.utils.rest.client.internal.cache.BoundedInMemoryCache;
+import org.omnaest.utils.rest.client.internal.cache.CompressedCacheEntry;
+import org.omnaest.utils.rest.client.internal.holder.ResponseHolderImpl;
+
+public class CachedRestClientTest
+{
+
+    @Test
+    public void testRequestGetSingleFlight() throws Exception
+    {
+        RestClient restClient = Mockito.mock(RestClient.class);
+        Mockito.when(restClient.requestGetAnd(anyString(), any(), any()))
+               .thenAnswer(invocation ->
+               {
+                   Thread.sleep(200);
+                   return new ResponseHolderImpl<>("value", 200);
+               });
+        CachedRestClient cachedRestClient = new CachedRestClient(restClient);
+
+        int numberOfThreads = 10;
+        ExecutorService executorService = Executors.newFixedThreadPool(numberOfThreads);
+        try
+        {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < numberOfThreads; i++)
+            {
+                futures.add(executorService.submit(() -> cachedRestClient.requestGet("url", String.class, Collections.emptyMap())));
+            }
+            for (Future<String> future : futures)
+            {
+                assertEquals("value", future.get(10, TimeUnit.SECONDS));
+            }
+        }
+        finally
+        {
+            executorService.shutdown();
+        }
+
+        Mockito.verify(restClient, Mockito.times(1))
+               .requestGetAnd(anyString(), any(), any());
+    }
+
+    @Test
+    public void testRequestPostCaching() throws Exception
+    {
+        RestClient restClient = Mockito.mock(RestClient.class);
+        Mockito.when(restClient.requestPost(anyString(), any(), eq(String.class), any()))
+               .thenAnswer(invocation -> "result of " + invocation.getArgument(1));
+        CachedRestClient cachedRestClient = new CachedRestClient(restClient).withPostCaching("http://localhost/search.*");
+
+        assertEquals("result of query1", cachedRestClient.requestPost("http://localhost/search", "query1", String.class, Collections.emptyMap()));
+        assertEquals("result of query1", cachedRestClient.requestPost("http://localhost/search", "query1", String.class, Collections.emptyMap()));
+        assertEquals("result of query2", cachedRestClient.requestPost("http://localhost/search", "query2", String.class, Collections.emptyMap()));
+        assertEquals("result of query1", cachedRestClient.requestPost("http://localhost/other", "query1", String.class, Collections.emptyMap()));
+        assertEquals("result of query1", cachedRestClient.requestPost("http://localhost/other", "query1", String.class, Collections.emptyMap()));
+
+        Mockito.verify(restClient, Mockito.times(1))
+               .requestPost(eq("http://localhost/search"), eq("query1"), eq(String.class), any());
+        Mockito.verify(restClient, Mockito.times(1))
+               .requestPost(eq("http://localhost/search"), eq("query2"), eq(String.class), any());
+        Mockito.verify(restClient, Mockito.times(2))
+               .requestPost(eq("http://localhost/other"), eq("query1"), eq(String.class), any());
+    }
+
+    @Test
+    public void testRequestPostCachingPropagatesErrors() throws Exception
+    {
+        RESTAccessExeption serverError = new RESTAccessExeption(500, "server error");
+        RestClient restClient = Mockito.mock(RestClient.class);
+        Mockito.when(restClient.requestPost(anyString(), eq("missing"), any(), any()))
+               .thenAnswer(invocation ->
+               {
+                   throw new RESTAccessExeption(404, "no such query");
+               });
+        Mockito.when(restClient.requestPost(anyString(), eq("failing"), any(), any()))
+               .thenAnswer(invocation ->
+               {
+                   throw serverError;
+               });
+        CachedRestClient cachedRestClient = new CachedRestClient(restClient).withPostCaching("http://localhost/search.*");
+
+        try
+        {
+            cachedRestClient.requestPost("http://localhost/search", "missing", String.class, Collections.emptyMap());
+            fail();
+        }
+        catch (RESTAccessExeption e)
+        {
+            assertEquals(404, e.getStatusCode());
+            assertEquals("no such query", e.getContent());
+        }
+        try
+        {
+            cachedRestClient.requestPost("http://localhost/search", "failing", String.class, Collections.emptyMap());
+            fail();
+        }
+        catch (RESTAccessExeption e)
+        {
+            assertSame(serverError, e);
+        }
+    }
+
+    @Test
+    public void testInvalidate() throws Exception
+    {
+        RestClient restClient = Mockito.mock(RestClient.class);
+        Mockito.when(restClient.requestGetAnd(anyString(), any(), any()))
+               .thenAnswer(invocation -> new ResponseHolderImpl<>("value of " + invocation.getArgument(0), 200));
+        CachedRestClient cachedRestClient = new CachedRestClient(restClient);
+
+        List<String> urls = Arrays.asList("http://localhost/customers/42/orders", "http://localhost/customers/42/profile",
+                                          "http://localhost/customers/43/orders");
+        urls.forEach(url -> cachedRestClient.requestGet(url, String.class, Collections.emptyMap()));
+
+        assertEquals(2, cachedRestClient.invalidate("HTTP://localhost/customers/42/"));
+        urls.forEach(url -> cachedRestClient.requestGet(url, String.class, Collections.emptyMap()));
+
+        assertEquals(2, cachedRestClient.invalidateMatching("http://localhost/customers/\\d+/orders"));
+        urls.forEach(url -> cachedRestClient.requestGet(url, String.class, Collections.emptyMap()));
+
+        Mockito.verify(restClient, Mockito.times(3))
+               .requestGetAnd(eq("http://localhost/customers/42/orders"), any(), any());
+        Mockito.verify(restClient, Mockito.times(2))
+               .requestGetAnd(eq("http://localhost/customers/42/profile"), any(), any());
+        Mockito.verify(restClient, Mockito.times(2))
+               .requestGetAnd(eq("http://localhost/customers/43/orders"), any(), any());
+    }
+
+    @Test
+    public void testDefaultTimeToLive() throws Exception
+    {
+        RestClient restClient = Mockito.mock(RestClient.class);
+        Mockito.when(restClient.requestGetAnd(anyString(), any(), any()))
+               .thenAnswer(invocation -> new ResponseHolderImpl<>("value", 200));
+        AtomicLong clock = new AtomicLong();
+        CachedRestClient cachedRestClient = new CachedRestClient(restClient).withClock(clock::get)
+                                                                            .withDefaultTimeToLive(100, TimeUnit.MILLISECONDS);
+
+        assertEquals("value", cachedRestClient.requestGet("http://localhost/a", String.class, Collections.emptyMap()));
+        clock.addAndGet(99);
+        assertEquals("value", cachedRestClient.requestGet("http://localhost/a", String.class, Collections.emptyMap()));
+        Mockito.verify(restClient, Mockito.times(1))
+               .requestGetAnd(eq("http://localhost/a"), any(), any());
+
+        clock.addAndGet(1);
+        assertEquals("value", cachedRestClient.requestGet("http://localhost/a", String.class, Collections.emptyMap()));
+        Mockito.verify(restClient, Mockito.times(2))
+               .requestGetAnd(eq("http://localhost/a"), any(), any());
+    }
+
+    @Test
+    public void testMaxTimeToLiveCapsCacheControl() throws Exception
+    {
+        RestClient restClient = Mockito.mock(RestClient.class);
+        Mockito.when(restClient.requestGetAnd(anyString(), any(), any()))
+               .thenAnswer(invocation -> new ResponseHolderImpl<>("value", 200, null, Collections.singletonMap("Cache-Control", "max-age=3600")));
+        AtomicLong clock = new AtomicLong();
+        CachedRestClient cachedRestClient = new CachedRestClient(restClient).withClock(clock::get)
+                                                                            .withMaxTimeToLive(100, TimeUnit.MILLISECONDS);
+
+        cachedRestClient.requestGet("http://localhost/a", String.class, Collections.emptyMap());
+        clock.addAndGet(99);
+        cachedRestClient.requestGet("http://localhost/a", String.class, Collections.emptyMap());
+        Mockito.verify(restClient, Mockito.times(1))
+               .requestGetAnd(eq("http://localhost/a"), any(), any());
+
+        clock.addAndGet(1);
+        cachedRestClient.requestGet("http://localhost/a", String.class, Collections.emptyMap());
+        Mockito.verify(restClient, Mockito.times(2))
+               .requestGetAnd(eq("http://localhost/a"), any(), any());
+    }
+
+    @Test
+    public void testCacheControl() throws Exception
+    {
+        RestClient restClient = Mockito.mock(RestClient.class);
+        Mockito.when(restClient.requestGetAnd(eq("http://localhost/no-store"), any(), any()))
+               .thenAnswer(invocation -> new ResponseHolderImpl<>("value", 200, null, Collections.singletonMap("Cache-Control", "no-store")));
+        Mockito.when(restClient.requestGetAnd(eq("http://localhost/max-age"), any(), any()))
+               .thenAnswer(invocation -> new ResponseHolderImpl<>("value", 200, null, Collections.singletonMap("Cache-Control", "max-age=0")));
+        CachedRestClient cachedRestClient = new CachedRestClient(restClient);
+
+        for (int i = 0; i < 2; i++)
+        {
+            assertEquals("value", cachedRestClient.requestGet("http://localhost/no-store", String.class, Collections.emptyMap()));
+            assertEquals("value", cachedRestClient.requestGet("http://localhost/max-age", String.class, Collections.emptyMap()));
+        }
+        Mockito.verify(restClient, Mockito.times(2))
+               .requestGetAnd(eq("http://localhost/no-store"), any(), any());
+        Mockito.verify(restClient, Mockito.times(2))
+               .requestGetAnd(eq("http://localhost/max-age"), any(), any());
+    }
+
+    @Test
+    public void testCacheControlAsync() throws Exception
+    {
+        RestClient restClient = Mockito.mock(RestClient.class);
+        Mockito.when(restClient.requestGetAndAsync(anyString(), any(), any()))
+               .thenAnswer(invocation -> CompletableFuture.completedFuture(new ResponseHolderImpl<>("value", 200, null,
+                                                                                                    Collections.singletonMap("Cache-Control",
+                                                                                                                             "max-age=0"))));
+        CachedRestClient cachedRestClient = new CachedRestClient(restClient).withDefaultTimeToLive(1, TimeUnit.HOURS);
+
+        for (int i = 0; i < 2; i++)
+        {
+            assertEquals("value", cachedRestClient.requestGetAsync("http://localhost/a", String.class, Collections.emptyMap())
+                                                  .get());
+        }
+        Mockito.verify(restClient, Mockito.times(2))
+               .requestGetAndAsync(eq("http://localhost/a"), any(), any());
+    }
+
+    @Test
+    public void testEntryWithoutMetadataIsStale() throws Exception
+    {
+        RestClient restClient = Mockito.mock(RestClient.class);
+        Mockito.when(restClient.requestGetAnd(anyString(), any(), any()))
+               .thenAnswer(invocation -> new ResponseHolderImpl<>("new value", 200));
+        Cache cache = new BoundedInMemoryCache(1024 * 1024);
+        cache.put("http://localhost/a", "old value");
+
+        assertEquals("old value", new CachedRestClient(restClient, cache).requestGet("http://localhost/a", String.class, Collections.emptyMap()));
+        assertEquals("new value", new CachedRestClient(restClient, cache).withDefaultTimeToLive(1, TimeUnit.HOURS)
+                                                                          .requestGet("http://localhost/a", String.class, Collections.emptyMap()));
+    }
+
+    @Test
+    public void testStaleWhileRevalidate() throws Exception
+    {
+        RestClient restClient = Mockito.mock(RestClient.class);
+        AtomicInteger counter = new AtomicInteger();
+        CountDownLatch refreshLatch = new CountDownLatch(1);
+        Mockito.when(restClient.requestGetAnd(anyString(), any(), any()))
+               .thenAnswer(invocation ->
+               {
+                   if (counter.get() > 0)
+                   {
+                       refreshLatch.await(10, TimeUnit.SECONDS);
+                   }
+                   return new ResponseHolderImpl<>("value " + counter.incrementAndGet(), 200);
+               });
+        AtomicLong clock = new AtomicLong();
+        CachedRestClient cachedRestClient = new CachedRestClient(restClient).withClock(clock::get)
+                                                                            .withDefaultTimeToLive(100, TimeUnit.MILLISECONDS)
+                                                                            .withStaleWhileRevalidate(10, TimeUnit.SECONDS);
+
+        assertEquals("value 1", cachedRestClient.requestGet("http://localhost/a", String.class, Collections.emptyMap()));
+        clock.addAndGet(200);
+        assertEquals("value 1", cachedRestClient.requestGet("http://localhost/a", String.class, Collections.emptyMap()));
+        refreshLatch.countDown();
+        this.awaitCachedValue(cachedRestClient, "http://localhost/a", "value 2");
+
+        Mockito.verify(restClient, Mockito.times(2))
+               .requestGetAnd(eq("http://localhost/a"), any(), any());
+    }
+
+    @Test
+    public void testStaleIfError() throws Exception
+    {
+        RestClient restClient = Mockito.mock(RestClient.class);
+        AtomicInteger counter = new AtomicInteger();
+        Mockito.when(restClient.requestGetAnd(anyString(), any(), any()))
+               .thenAnswer(invocation ->
+               {
+                   if (counter.incrementAndGet() > 1)
+                   {
+                       throw new RESTAccessExeption(503, "unavailable");
+                   }
+                   return new ResponseHolderImpl<>("value", 200);
+               });
+        AtomicLong clock = new AtomicLong();
+        CachedRestClient cachedRestClient = new CachedRestClient(restClient).withClock(clock::get)
+                                                                            .withDefaultTimeToLive(100, TimeUnit.MILLISECONDS)
+                                                                            .withStaleIfError(10, TimeUnit.SECONDS);
+
+        assertEquals("value", cachedRestClient.requestGet("http://localhost/a", String.class, Collections.emptyMap()));
+        clock.addAndGet(200);
+        assertEquals("value", cachedRestClient.requestGet("http://localhost/a", String.class, Collections.emptyMap()));
+        assertEquals("value", cachedRestClient.requestGet("http://localhost/a", String.class, Collections.emptyMap()));
+        Mockito.verify(restClient, Mockito.times(3))
+               .requestGetAnd(eq("http://localhost/a"), any(), any());
+
+        CachedRestClient cachedRestClientWithoutStaleIfError = new CachedRestClient(restClient).withClock(clock::get)
+                                                                                               .withDefaultTimeToLive(100, TimeUnit.MILLISECONDS);
+        counter.set(0);
+        cachedRestClientWithoutStaleIfError.requestGet("http://localhost/b", String.class, Collections.emptyMap());
+        clock.addAndGet(200);
+        try
+        {
+            cachedRestClientWithoutStaleIfError.requestGet("http://localhost/b", String.class, Collections.emptyMap());
+            fail();
+        }
+        catch (RESTAccessExeption e)
+        {
+            assertEquals(503, e.getStatusCode());
+        }
+    }
+
+    @Test
+    public void testRefreshAhead() throws Exception
+    {
+        RestClient restClient = Mockito.mock(RestClient.class);
+        AtomicInteger counter = new AtomicInteger();
+        CountDownLatch refreshLatch = new CountDownLatch(1);
+        Mockito.when(restClient.requestGetAnd(anyString(), any(), any()))
+               .thenAnswer(invocation ->
+               {
+                   if (counter.get() > 0)
+                   {
+                       refreshLatch.await(10, TimeUnit.SECONDS);
+                   }
+                   return new ResponseHolderImpl<>("value " + counter.incrementAndGet(), 200);
+               });
+        AtomicLong clock = new AtomicLong();
+        CachedRestClient cachedRestClient = new CachedRestClient(restClient).withClock(clock::get)
+                                                                            .withDefaultTimeToLive(1, TimeUnit.SECONDS)
+                                                                            .withRefreshAhead(0.5);
+
+        assertEquals("value 1", cachedRestClient.requestGet("http://localhost/a", String.class, Collections.emptyMap()));
+        assertEquals("value 1", cachedRestClient.requestGet("http://localhost/a", String.class, Collections.emptyMap()));
+        Mockito.verify(restClient, Mockito.times(1))
+               .requestGetAnd(eq("http://localhost/a"), any(), any());
+
+        // within the last half of the time to live the fresh entry is still served, but refreshed in the background
+        clock.addAndGet(600);
+        assertEquals("value 1", cachedRestClient.requestGet("http://localhost/a", String.class, Collections.emptyMap()));
+        refreshLatch.countDown();
+        this.awaitCachedValue(cachedRestClient, "http://localhost/a", "value 2");
+    }
+
+    @Test
+    public void testNegativeCaching() throws Exception
+    {
+        RestClient restClient = Mockito.mock(RestClient.class);
+        Mockito.when(restClient.requestGetAnd(eq("http://localhost/missing"), any(), any()))
+               .thenAnswer(invocation ->
+               {
+                   throw new RESTAccessExeption(404, "not found");
+               });
+        Mockito.when(restClient.requestGetAnd(eq("http://localhost/gone"), any(), any()))
+               .thenAnswer(invocation ->
+               {
+                   throw new RESTAccessExeption(410, "gone");
+               });
+        AtomicLong clock = new AtomicLong();
+        CachedRestClient cachedRestClient = new CachedRestClient(restClient).withClock(clock::get)
+                                                                            .withNegativeCaching(200, TimeUnit.MILLISECONDS);
+
+        for (int i = 0; i < 2; i++)
+        {
+            ResponseHolder<String> responseHolder = cachedRestClient.requestGetAnd("http://localhost/missing", String.class,
+                                                                                   Collections.emptyMap());
+            assertEquals(404, responseHolder.getStatusCode());
+            try
+            {
+                responseHolder.get();
+                fail();
+            }
+            catch (RESTAccessExeption e)
+            {
+                assertEquals("not found", e.getContent());
+            }
+            try
+            {
+                cachedRestClient.requestGet("http://localhost/gone", String.class, Collections.emptyMap());
+                fail();
+            }
+            catch (RESTAccessExeption e)
+            {
+                assertEquals(410, e.getStatusCode());
+                assertEquals("gone", e.getContent());
+            }
+        }
+        Mockito.verify(restClient, Mockito.times(1))
+               .requestGetAnd(eq("http://localhost/missing"), any(), any());
+        Mockito.verify(restClient, Mockito.times(1))
+               .requestGetAnd(eq("http://localhost/gone"), any(), any());
+
+        clock.addAndGet(200);
+        assertEquals(404, cachedRestClient.requestGetAnd("http://localhost/missing", String.class, Collections.emptyMap())
+                                          .getStatusCode());
+        Mockito.verify(restClient, Mockito.times(2))
+               .requestGetAnd(eq("http://localhost/missing"), any(), any());
+    }
+
+    @Test
+    public void testNegativeCachingMaxEntries() throws Exception
+    {
+        RestClient restClient = Mockito.mock(RestClient.class);
+        Mockito.when(restClient.requestGetAnd(anyString(), any(), any()))
+               .thenAnswer(invocation ->
+               {
+                   throw new RESTAccessExeption(404, "not found");
+               });
+        CachedRestClient cachedRestClient = new CachedRestClient(restClient).withNegativeCaching(1, TimeUnit.HOURS)
+                                                                            .withNegativeCachingMaxEntries(1);
+
+        cachedRestClient.requestGet("http://localhost/a", String.class, Collections.emptyMap());
+        cachedRestClient.requestGet("http://localhost/b", String.class, Collections.emptyMap());
+        cachedRestClient.requestGet("http://localhost/b", String.class, Collections.emptyMap());
+        cachedRestClient.requestGet("http://localhost/a", String.class, Collections.emptyMap());
+
+        Mockito.verify(restClient, Mockito.times(2))
+               .requestGetAnd(eq("http://localhost/a"), any(), any());
+        Mockito.verify(restClient, Mockito.times(1))
+               .requestGetAnd(eq("http://localhost/b"), any(), any());
+    }
+
+    @Test
+    public void testNegativeCachingStatusCodes() throws Exception
+    {
+        RestClient restClient = Mockito.mock(RestClient.class);
+        Mockito.when(restClient.requestGetAnd(anyString(), any(), any()))
+               .thenAnswer(invocation ->
+               {
+                   throw new RESTAccessExeption(400, "bad request");
+               });
+        CachedRestClient cachedRestClient = new CachedRestClient(restClient).withNegativeCaching(1, TimeUnit.HOURS);
+
+        // 400 is not a negative caching status code by default
+        for (int i = 0; i < 2; i++)
+        {
+            assertEquals(400, cachedRestClient.requestGetAnd("http://localhost/a", String.class, Collections.emptyMap())
+                                              .getStatusCode());
+        }
+        Mockito.verify(restClient, Mockito.times(2))
+               .requestGetAnd(eq("http://localhost/a"), any(), any());
+
+        cachedRestClient.withNegativeCachingStatusCodes(400);
+        for (int i = 0; i < 2; i++)
+        {
+            assertEquals(400, cachedRestClient.requestGetAnd("http://localhost/b", String.class, Collections.emptyMap())
+                                              .getStatusCode());
+        }
+        Mockito.verify(restClient, Mockito.times(1))
+               .requestGetAnd(eq("http://localhost/b"), any(), any());
+    }
+
+    @Test
+    public void testEvictedEntryIsMiss() throws Exception
+    {
+        RestClient restClient = Mockito.mock(RestClient.class);
+        Mockito.when(restClient.requestGetAnd(anyString(), any(), any()))
+               .thenAnswer(invocation -> new ResponseHolderImpl<>("value", 200));
+        // the entry is evicted between the check and the read
+        Cache cache = Mockito.mock(Cache.class);
+        Mockito.when(cache.contains(anyString()))
+               .thenReturn(true);
+
+        ResponseHolder<String> responseHolder = new CachedRestClient(restClient, cache).requestGetAnd("http://localhost/a", String.class,
+                                                                                                      Collections.emptyMap());
+        assertEquals(200, responseHolder.getStatusCode());
+        assertEquals("value", responseHolder.get());
+    }
+
+    @Test
+    public void testEntryIsWeighedByBodySize() throws Exception
+    {
+        RestClient restClient = Mockito.mock(RestClient.class);
+        Mockito.when(restClient.requestGetAnd(anyString(), any(), any()))
+               .thenAnswer(invocation -> new ResponseHolderImpl<>(new Object(), 200, null, Collections.emptyMap(), OptionalLong.of(500000)));
+        BoundedInMemoryCache cache = new BoundedInMemoryCache(1000000);
+
+        new CachedRestClient(restClient, cache).requestGet("http://localhost/a", Object.class, Collections.emptyMap());
+        assertTrue(cache.getWeight() >= 500000);
+    }
+
+    @Test
+    public void testCompressionIsAppliedToNewCache() throws Exception
+    {
+        RestClient restClient = Mockito.mock(RestClient.class);
+        Mockito.when(restClient.requestGetAnd(anyString(), any(), any()))
+               .thenAnswer(invocation -> new ResponseHolderImpl<>("value", 200));
+        BoundedInMemoryCache cache = new BoundedInMemoryCache(1024 * 1024);
+        CachedRestClient cachedRestClient = new CachedRestClient(restClient).withCompression()
+                                                                            .setCache(cache);
+
+        assertEquals("value", cachedRestClient.requestGet("http://localhost/a", String.class, Collections.emptyMap()));
+        assertEquals("value", cachedRestClient.requestGet("http://localhost/a", String.class, Collections.emptyMap()));
+        assertTrue(cache.keySet()
+                        .stream()
+                        .allMatch(key -> CompressedCacheEntry.class.equals(cache.getType(key))));
+        Mockito.verify(restClient, Mockito.times(1))
+               .requestGetAnd(anyString(), any(), any());
+    }
+
+    @Test
+    public void testCacheKeyHeaders() throws Exception
+    {
+        RestClient restClient = Mockito.mock(RestClient.class);
+        Mockito.when(restClient.requestGetAnd(anyString(), any(), any()))
+               .thenAnswer(invocation -> new ResponseHolderImpl<>("value", 200, null, Collections.singletonMap("Vary", "X-Tenant")));
+        Mockito.when(restClient.requestGetAndAsync(anyString(), any(), any()))
+               .thenAnswer(invocation -> CompletableFuture.completedFuture(new ResponseHolderImpl<>("async value", 200)));
+        CachedRestClient cachedRestClient = new CachedRestClient(restClient);
+
+        // credentials are part of the key without a vary header
+        for (String user : Arrays.asList("user1", "user2", "user1"))
+        {
+            cachedRestClient.requestGet("http://localhost/a", String.class, Collections.singletonMap("Authorization", "Bearer " + user));
+        }
+        Mockito.verify(restClient, Mockito.times(2))
+               .requestGetAnd(eq("http://localhost/a"), any(), any());
+
+        // the vary header learned by a blocking request applies to non blocking requests
+        cachedRestClient.requestGet("http://localhost/b", String.class, Collections.singletonMap("X-Tenant", "1"));
+        assertEquals("value", cachedRestClient.requestGetAsync("http://localhost/b", String.class, Collections.singletonMap("X-Tenant", "1"))
+                                              .get());
+        assertEquals("async value", cachedRestClient.requestGetAsync("http://localhost/b", String.class,
+                                                                     Collections.singletonMap("X-Tenant", "2"))
+                                                    .get());
+        assertEquals("async value", cachedRestClient.requestGetAsync("http://localhost/b", String.class,
+                                                                     Collections.singletonMap("X-Tenant", "2"))
+                                                    .get());
+        Mockito.verify(restClient, Mockito.times(1))
+               .requestGetAndAsync(eq("http://localhost/b"), any(), any());
+    }
+
+    private void awaitCachedValue(CachedRestClient cachedRestClient, String url, String expectedValue) throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!expectedValue.equals(cachedRestClient.requestGet(url, String.class, Collections.emptyMap())))
+        {
+            if (System.currentTimeMillis() > deadline)
+            {
+                fail("Background refresh did not finish");
+            }
+            Thread.sleep(10);
+        }
+    }
+
+}
@@ -15,9 +15,12 @@
  ******************************************************************************/
 package org.omnaest.utils.rest.client.internal;
 
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 import org.junit.Test;
@@ -62,4 +65,37 @@ public class RetryingRestClientTest
                .requestGet(anyString(), any());
     }
 
+    @Test
+    public void testCancelAsync() throws Exception
+    {
+        RestClient restClient = Mockito.mock(RestClient.class);
+        CompletableFuture<String> attempt = new CompletableFuture<>();
+        Mockito.when(restClient.requestGetAsync(anyString(), any(), any()))
+               .thenAnswer(invocation -> attempt);
+        RetryingRestClient retryingRestClient = new RetryingRestClient(restClient, 5, 100, TimeUnit.MILLISECONDS);
+
+        retryingRestClient.requestGetAsync("url", String.class, Collections.emptyMap())
+                          .cancel(true);
+        assertTrue(attempt.isCancelled());
+    }
+
+    @Test
+    public void testCancelAsyncDropsPendingRetry() throws Exception
+    {
+        RestClient restClient = Mockito.mock(RestClient.class);
+        CompletableFuture<String> attempt = new CompletableFuture<>();
+        attempt.completeExceptionally(new RestHelper.RESTAccessExeption(429, null));
+        Mockito.when(restClient.requestGetAsync(anyString(), any(), any()))
+               .thenAnswer(invocation -> attempt);
+        RetryingRestClient retryingRestClient = new RetryingRestClient(restClient, 5, 100, TimeUnit.MILLISECONDS);
+
+        CompletableFuture<String> result = retryingRestClient.requestGetAsync("url", String.class, Collections.emptyMap());
+        result.cancel(true);
+        Thread.sleep(300);
+
+        assertTrue(result.isCancelled());
+        Mockito.verify(restClient, Mockito.times(1))
+               .requestGetAsync(anyString(), any(), any());
+    }
+
 }
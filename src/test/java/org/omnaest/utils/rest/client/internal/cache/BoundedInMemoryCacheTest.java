@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.rest.client.internal.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+
+import org.junit.Test;
+
+public class BoundedInMemoryCacheTest
+{
+
+    @Test
+    public void testMaximumWeight() throws Exception
+    {
+        BoundedInMemoryCache cache = new BoundedInMemoryCache(10000, value -> 100);
+        for (int i = 0; i < 1000; i++)
+        {
+            cache.put("key" + i, "value" + i);
+        }
+
+        assertTrue(cache.getWeight() <= 10000);
+        assertTrue(cache.size() < 1000);
+    }
+
+    @Test
+    public void testLargeOneOffEntryDoesNotEvictHotEntries() throws Exception
+    {
+        BoundedInMemoryCache cache = new BoundedInMemoryCache(10000, value -> value instanceof byte[] ? ((byte[]) value).length : 100);
+        for (int i = 0; i < 50; i++)
+        {
+            cache.put("hot" + i, "value" + i);
+        }
+        for (int access = 0; access < 10; access++)
+        {
+            for (int i = 0; i < 50; i++)
+            {
+                assertEquals("value" + i, cache.get("hot" + i, String.class));
+            }
+        }
+
+        cache.put("large", new byte[8000]);
+        cache.put("trigger", "value");
+
+        assertFalse(cache.contains("large"));
+        for (int i = 0; i < 50; i++)
+        {
+            assertTrue(cache.contains("hot" + i));
+        }
+    }
+
+    @Test
+    public void testCandidateIsComparedAgainstEachVictim() throws Exception
+    {
+        // the weight of an entry is 64 bytes overhead + 8 bytes for the key + the given value
+        BoundedInMemoryCache cache = new BoundedInMemoryCache(1000, value -> (Integer) value);
+        cache.put("cold", 328);
+        cache.put("warm", 328);
+        for (int access = 0; access < 10; access++)
+        {
+            cache.get("warm", Integer.class);
+        }
+        for (int i = 0; i < 3; i++)
+        {
+            cache.put("next", 0);
+        }
+
+        // the candidate wins against the cold entry but loses against the warm entry
+        cache.put("next", 628);
+
+        assertFalse(cache.contains("cold"));
+        assertTrue(cache.contains("warm"));
+        assertFalse(cache.contains("next"));
+        assertTrue(cache.getWeight() <= 1000);
+    }
+
+    @Test
+    public void testDefaultWeigher() throws Exception
+    {
+        assertEquals(0, BoundedInMemoryCache.DEFAULT_WEIGHER.applyAsLong(null));
+        assertEquals(6, BoundedInMemoryCache.DEFAULT_WEIGHER.applyAsLong("abc"));
+        assertEquals(4, BoundedInMemoryCache.DEFAULT_WEIGHER.applyAsLong(new byte[4]));
+        assertEquals(1000 * (8 + 6), BoundedInMemoryCache.DEFAULT_WEIGHER.applyAsLong(Collections.nCopies(1000, "abc")));
+        assertEquals((8 + 2) + (8 + 16), BoundedInMemoryCache.DEFAULT_WEIGHER.applyAsLong(Collections.singletonMap("a", 1)));
+    }
+
+    @Test
+    public void testGivenWeight() throws Exception
+    {
+        BoundedInMemoryCache cache = new BoundedInMemoryCache(100000);
+        Object value = new Object();
+        cache.put("large", value);
+        long estimatedWeight = cache.getWeight();
+
+        cache.put("large", value, 50000);
+        assertEquals(50000 - BoundedInMemoryCache.DEFAULT_WEIGHER.applyAsLong(value), cache.getWeight() - estimatedWeight);
+
+        cache.put("tooLarge", new Object(), 200000);
+        assertFalse(cache.contains("tooLarge"));
+        assertTrue(cache.contains("large"));
+    }
+
+}
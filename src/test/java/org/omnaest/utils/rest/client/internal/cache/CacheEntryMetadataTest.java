@@ -0,0 +1,55 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.rest.client.internal.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.omnaest.utils.cache.Cache;
+
+public class CacheEntryMetadataTest
+{
+
+    @Test
+    public void testPersistentCacheRoundTrip() throws Exception
+    {
+        MappedSegmentCache mappedSegmentCache = new MappedSegmentCache(Files.createTempDirectory("mappedSegmentCache")
+                                                                            .toFile());
+        LocalRawFolderCache localRawFolderCache = new LocalRawFolderCache(Files.createTempDirectory("localRawFolderCache")
+                                                                               .toFile());
+        for (Cache cache : Arrays.asList(mappedSegmentCache, localRawFolderCache, new OffHeapCache(1024 * 1024)))
+        {
+            cache.put("key #metadata", new CacheEntryMetadata(1000, "\"etag\"", "Thu, 01 Jan 1970 00:00:01 GMT").setExpiresAt(2000l)
+                                                                                                                 .setNegativeStatusCode(404)
+                                                                                                                 .setNegativeContent("not found"));
+
+            CacheEntryMetadata metadata = cache.get("key #metadata", CacheEntryMetadata.class);
+            assertEquals(1000, metadata.getStoredAt());
+            assertEquals("\"etag\"", metadata.getETag());
+            assertEquals("Thu, 01 Jan 1970 00:00:01 GMT", metadata.getLastModified());
+            assertEquals(Long.valueOf(2000), metadata.getExpiresAt());
+            assertEquals(Integer.valueOf(404), metadata.getNegativeStatusCode());
+            assertEquals("not found", metadata.getNegativeContent());
+            assertTrue(metadata.representsNegativeResponse());
+        }
+        mappedSegmentCache.close();
+    }
+
+}
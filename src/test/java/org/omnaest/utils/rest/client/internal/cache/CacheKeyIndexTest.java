@@ -0,0 +1,46 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.rest.client.internal.cache;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+public class CacheKeyIndexTest
+{
+
+    @Test
+    public void testGetKeysWithPrefix() throws Exception
+    {
+        CacheKeyIndex index = new CacheKeyIndex();
+        index.add("http://localhost/a/1");
+        index.add("http://localhost/a/2 #1f");
+        index.add("http://localhost/ab");
+        index.add("http://localhost/b");
+
+        assertEquals(Arrays.asList("http://localhost/a/1", "http://localhost/a/2 #1f"), index.getKeysWithPrefix("http://localhost/a/"));
+        assertEquals(Arrays.asList("http://localhost/ab"), index.getKeysWithPrefix("http://localhost/ab"));
+        assertEquals(Collections.emptyList(), index.getKeysWithPrefix("http://localhost/c"));
+
+        index.remove("http://localhost/a/1");
+        assertEquals(Arrays.asList("http://localhost/a/2 #1f"), index.getKeysWithPrefix("http://localhost/a/"));
+        assertEquals(Arrays.asList("http://localhost/ab", "http://localhost/b"), index.getKeysMatching(key -> !key.contains("/a/")));
+    }
+
+}
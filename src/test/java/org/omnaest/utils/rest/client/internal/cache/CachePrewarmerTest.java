@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.rest.client.internal.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.omnaest.utils.rest.client.RestClient;
+import org.omnaest.utils.rest.client.internal.cache.CachePrewarmer.PrewarmStatus;
+import org.omnaest.utils.rest.client.internal.holder.ResponseHolderImpl;
+
+public class CachePrewarmerTest
+{
+
+    @Test
+    public void testLoad() throws Exception
+    {
+        AtomicInteger concurrentRequests = new AtomicInteger();
+        AtomicInteger maxConcurrentRequests = new AtomicInteger();
+        RestClient restClient = Mockito.mock(RestClient.class);
+        Mockito.when(restClient.requestGetAnd(anyString(), any(), any()))
+               .thenAnswer(invocation ->
+               {
+                   maxConcurrentRequests.accumulateAndGet(concurrentRequests.incrementAndGet(), Math::max);
+                   Thread.sleep(10);
+                   concurrentRequests.decrementAndGet();
+                   String url = invocation.getArgument(0);
+                   return new ResponseHolderImpl<>("value", url.endsWith("missing") ? 404 : 200);
+               });
+
+        AtomicInteger progressCount = new AtomicInteger();
+        PrewarmStatus status = new CachePrewarmer(restClient).withMaxConcurrency(4)
+                                                             .withProgressListener(progress -> progressCount.incrementAndGet())
+                                                             .load(IntStream.range(0, 50)
+                                                                            .mapToObj(i -> "url" + i + (i % 10 == 0 ? "missing" : ""))
+                                                                            .collect(Collectors.toList()),
+                                                                   String.class);
+
+        assertEquals(45, status.getNumberOfLoadedUrls());
+        assertEquals(5, status.getNumberOfFailedUrls());
+        assertEquals(50, progressCount.get());
+        assertFalse(status.isTimedOut());
+        assertTrue(maxConcurrentRequests.get() <= 4);
+    }
+
+    @Test
+    public void testTimeout() throws Exception
+    {
+        RestClient restClient = Mockito.mock(RestClient.class);
+        Mockito.when(restClient.requestGetAnd(anyString(), any(), any()))
+               .thenAnswer(invocation ->
+               {
+                   Thread.sleep(1000);
+                   return new ResponseHolderImpl<>("value", 200);
+               });
+
+        PrewarmStatus status = new CachePrewarmer(restClient).withMaxConcurrency(2)
+                                                             .withTimeout(100, TimeUnit.MILLISECONDS)
+                                                             .load(IntStream.range(0, 10)
+                                                                            .mapToObj(i -> "url" + i)
+                                                                            .collect(Collectors.toList()),
+                                                                   String.class);
+
+        assertTrue(status.isTimedOut());
+        assertEquals(0, status.getNumberOfLoadedUrls());
+    }
+
+    @Test
+    public void testTimeoutWithFreeConcurrency() throws Exception
+    {
+        RestClient restClient = Mockito.mock(RestClient.class);
+        Mockito.when(restClient.requestGetAnd(anyString(), any(), any()))
+               .thenAnswer(invocation -> new ResponseHolderImpl<>("value", 200));
+
+        // the requests are fast, but the generation of the urls is slow
+        PrewarmStatus status = new CachePrewarmer(restClient).withMaxConcurrency(2)
+                                                             .withTimeout(100, TimeUnit.MILLISECONDS)
+                                                             .load(IntStream.range(0, 20)
+                                                                            .mapToObj(i ->
+                                                                            {
+                                                                                try
+                                                                                {
+                                                                                    Thread.sleep(50);
+                                                                                }
+                                                                                catch (InterruptedException e)
+                                                                                {
+                                                                                    throw new IllegalStateException(e);
+                                                                                }
+                                                                                return "url" + i;
+                                                                            }),
+                                                                   String.class);
+
+        assertTrue(status.isTimedOut());
+        assertTrue(status.getNumberOfProcessedUrls() < 5);
+    }
+
+}
@@ -0,0 +1,59 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.rest.client.internal.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class CacheStatsCounterTest
+{
+
+    @Test
+    public void testSnapshot() throws Exception
+    {
+        CacheStatsCounter counter = new CacheStatsCounter();
+        counter.onHit("key");
+        counter.onHit("key");
+        counter.onHit("key");
+        counter.onMiss("key");
+        for (int i = 1; i <= 100; i++)
+        {
+            counter.onLoadSuccess("key", TimeUnit.MILLISECONDS.toNanos(i));
+        }
+        counter.onLoadFailure("key", 0, new IllegalStateException());
+        counter.onEviction("key");
+
+        CacheStats stats = counter.snapshot(10, 1000, 1.0);
+        assertEquals(3, stats.getHitCount());
+        assertEquals(1, stats.getMissCount());
+        assertEquals(0.75, stats.getHitRate(), 0.001);
+        assertEquals(100, stats.getLoadSuccessCount());
+        assertEquals(1, stats.getLoadFailureCount());
+        assertEquals(1, stats.getEvictionCount());
+        assertEquals(10, stats.getEntryCount());
+        assertEquals(1000, stats.getEstimatedBytes());
+
+        long median = stats.getMedianLoadTime(TimeUnit.MILLISECONDS);
+        long p99 = stats.getP99LoadTime(TimeUnit.MILLISECONDS);
+        assertTrue("" + median, median >= 50 && median <= 60);
+        assertTrue("" + p99, p99 >= 99 && p99 <= 120);
+    }
+
+}
@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.rest.client.internal.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.omnaest.utils.cache.Cache;
+import org.omnaest.utils.rest.client.internal.holder.RawResponse;
+
+public class CompressingCacheTest
+{
+
+    @Test
+    public void testPutAndGet() throws Exception
+    {
+        BoundedInMemoryCache underlyingCache = new BoundedInMemoryCache(1024 * 1024);
+        CompressingCache cache = new CompressingCache(underlyingCache, new DeflateCompressionCodec(), 100);
+
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 1000; i++)
+        {
+            body.append("{\"value\":\"abc\"}");
+        }
+        cache.put("large", new RawResponse("application/json", body.toString()
+                                                                  .getBytes(StandardCharsets.UTF_8)));
+        cache.put("small", "value");
+
+        assertEquals(body.toString(), cache.get("large", RawResponse.class)
+                                           .getBodyAsString(StandardCharsets.UTF_8));
+        assertEquals(RawResponse.class, cache.getType("large"));
+        assertEquals("value", cache.get("small", String.class));
+
+        assertTrue(underlyingCache.get("large", CompressedCacheEntry.class)
+                                  .isCompressed());
+        assertFalse(underlyingCache.get("small", CompressedCacheEntry.class)
+                                   .isCompressed());
+        assertTrue(cache.getCompressionRatio() > 10.0);
+        assertTrue(cache.getWeight() < 1000);
+    }
+
+    @Test
+    public void testBinaryStorage() throws Exception
+    {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 1000; i++)
+        {
+            body.append("{\"value\":\"" + i + "\"}");
+        }
+        RawResponse rawResponse = new RawResponse("application/json", body.toString()
+                                                                          .getBytes(StandardCharsets.UTF_8));
+
+        File directory = Files.createTempDirectory("compressingCache")
+                              .toFile();
+        CompressingCache cache = new CompressingCache(new LocalRawFolderCache(directory));
+        cache.put("key", rawResponse);
+        assertEquals(body.toString(), cache.get("key", RawResponse.class)
+                                           .getBodyAsString(StandardCharsets.UTF_8));
+        assertEquals(RawResponse.class, cache.getType("key"));
+
+        // a json cache stores the compressed bytes as base64 text
+        CompressingCache jsonCache = new CompressingCache(Mockito.mock(Cache.class));
+        jsonCache.put("key", rawResponse);
+        assertEquals(4.0 / 3.0, cache.getCompressionRatio() / jsonCache.getCompressionRatio(), 0.01);
+    }
+
+    @Test
+    public void testUncompressedEntriesOfUnderlyingCache() throws Exception
+    {
+        BoundedInMemoryCache underlyingCache = new BoundedInMemoryCache(1024 * 1024);
+        underlyingCache.put("key", "value");
+
+        CompressingCache cache = new CompressingCache(underlyingCache);
+        assertEquals("value", cache.get("key", String.class));
+        assertEquals(1.0, cache.getCompressionRatio(), 0.0);
+    }
+
+}
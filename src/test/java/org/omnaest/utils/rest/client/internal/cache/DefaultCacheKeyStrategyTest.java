@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.rest.client.internal.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class DefaultCacheKeyStrategyTest
+{
+
+    @Test
+    public void testNormalizeUrl() throws Exception
+    {
+        assertEquals("http://example.org/path?a=1&b=2&b=1", DefaultCacheKeyStrategy.normalizeUrl("HTTP://Example.org:80/path?b=2&a=1&b=1#fragment"));
+        assertEquals("https://example.org/", DefaultCacheKeyStrategy.normalizeUrl("https://example.org:443"));
+        assertEquals("https://example.org:8443/Path", DefaultCacheKeyStrategy.normalizeUrl("https://example.org:8443/Path?"));
+    }
+
+    @Test
+    public void testGenerateKey() throws Exception
+    {
+        DefaultCacheKeyStrategy strategy = new DefaultCacheKeyStrategy();
+        String urlKey = strategy.generateUrlKey("http://example.org/path");
+
+        Map<String, String> headers = new HashMap<>();
+        headers.put("X-Trace-Id", "1");
+        assertEquals(urlKey, strategy.generateKey(urlKey, headers, Collections.emptySet()));
+
+        headers.put("accept", "application/json");
+        String key = strategy.generateKey(urlKey, headers, Collections.emptySet());
+        assertTrue(key.startsWith(urlKey + " #"));
+
+        headers.put("X-Trace-Id", "2");
+        assertEquals(key, strategy.generateKey(urlKey, headers, Collections.emptySet()));
+        assertTrue(!key.equals(strategy.generateKey(urlKey, headers, Collections.singleton("x-trace-id"))));
+    }
+
+    @Test
+    public void testCredentialHeadersArePartOfKey() throws Exception
+    {
+        DefaultCacheKeyStrategy strategy = new DefaultCacheKeyStrategy("Accept");
+        String urlKey = strategy.generateUrlKey("http://example.org/path");
+
+        String keyOfUser1 = strategy.generateKey(urlKey, Collections.singletonMap("Authorization", "Bearer user1"), Collections.emptySet());
+        String keyOfUser2 = strategy.generateKey(urlKey, Collections.singletonMap("authorization", "Bearer user2"), Collections.emptySet());
+        assertTrue(!keyOfUser1.equals(urlKey));
+        assertTrue(!keyOfUser1.equals(keyOfUser2));
+        assertTrue(!keyOfUser1.contains("user1"));
+        assertTrue(!urlKey.equals(strategy.generateKey(urlKey, Collections.singletonMap("Cookie", "session=1"), Collections.emptySet())));
+    }
+
+}
@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.rest.client.internal.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.Test;
+import org.omnaest.utils.rest.client.internal.holder.RawResponse;
+
+public class LocalRawFolderCacheTest
+{
+
+    @Test
+    public void testPutAndGet() throws Exception
+    {
+        LocalRawFolderCache cache = new LocalRawFolderCache(Files.createTempDirectory("localRawFolderCache")
+                                                                 .toFile());
+        cache.put("key1", "value1");
+        cache.put("key2", new RawResponse("application/json", "{}".getBytes()));
+        cache.put("key1", "value1b");
+
+        assertEquals("value1b", cache.get("key1", String.class));
+        assertEquals(String.class, cache.getType("key1"));
+        assertEquals("{}", cache.get("key2", RawResponse.class)
+                                .getBodyAsString(StandardCharsets.UTF_8));
+
+        cache.remove("key1");
+        assertFalse(cache.contains("key1"));
+        assertNull(cache.get("key1", String.class));
+    }
+
+    @Test
+    public void testKeySet() throws Exception
+    {
+        File directory = Files.createTempDirectory("localRawFolderCache")
+                              .toFile();
+        LocalRawFolderCache cache = new LocalRawFolderCache(directory);
+        cache.put("key1", "value1");
+        cache.put("key2", new RawResponse("application/json", new byte[1024 * 1024]));
+        cache.put("key3", "value3");
+
+        // an entry which was not written completely is skipped
+        Files.write(directory.toPath()
+                             .resolve("truncated.entry"),
+                    new byte[6]);
+
+        assertEquals(new HashSet<>(Arrays.asList("key1", "key2", "key3")), cache.keySet());
+    }
+
+}
@@ -0,0 +1,182 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.rest.client.internal.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.Test;
+
+public class MappedSegmentCacheTest
+{
+
+    @Test
+    public void testReopen() throws Exception
+    {
+        File directory = Files.createTempDirectory("mappedSegmentCache")
+                              .toFile();
+
+        MappedSegmentCache cache = new MappedSegmentCache(directory);
+        for (int i = 0; i < 100; i++)
+        {
+            cache.put("key" + i, "value" + i);
+        }
+        cache.put("key1", "overwritten");
+        cache.remove("key2");
+        cache.close();
+
+        MappedSegmentCache reopenedCache = new MappedSegmentCache(directory);
+        assertEquals(99, reopenedCache.size());
+        assertEquals("value0", reopenedCache.get("key0", String.class));
+        assertEquals("overwritten", reopenedCache.get("key1", String.class));
+        assertFalse(reopenedCache.contains("key2"));
+        assertNull(reopenedCache.get("key2", String.class));
+        reopenedCache.close();
+    }
+
+    @Test
+    public void testCompaction() throws Exception
+    {
+        File directory = Files.createTempDirectory("mappedSegmentCache")
+                              .toFile();
+
+        MappedSegmentCache cache = new MappedSegmentCache(directory, 1024, 0);
+        for (int round = 0; round < 10; round++)
+        {
+            for (int i = 0; i < 20; i++)
+            {
+                cache.put("key" + i, "value" + round + "-" + i);
+            }
+        }
+        cache.compact();
+
+        assertEquals(20, cache.size());
+        assertTrue(cache.keySet()
+                        .contains("key19"));
+        for (int i = 0; i < 20; i++)
+        {
+            assertEquals("value9-" + i, cache.get("key" + i, String.class));
+        }
+        cache.close();
+
+        MappedSegmentCache reopenedCache = new MappedSegmentCache(directory, 1024, 0);
+        assertEquals("value9-5", reopenedCache.get("key5", String.class));
+        reopenedCache.close();
+    }
+
+    @Test
+    public void testBackgroundCompaction() throws Exception
+    {
+        File directory = Files.createTempDirectory("mappedSegmentCache")
+                              .toFile();
+
+        MappedSegmentCache cache = new MappedSegmentCache(directory, 1024, 0);
+        for (int round = 0; round < 10; round++)
+        {
+            for (int i = 0; i < 20; i++)
+            {
+                cache.put("key" + i, "value" + round + "-" + i);
+            }
+        }
+
+        long timeout = System.currentTimeMillis() + 10000;
+        while (cache.getWeight() * 2 < countSegmentBytes(directory) && System.currentTimeMillis() < timeout)
+        {
+            Thread.sleep(10);
+        }
+        assertTrue(cache.getWeight() * 2 >= countSegmentBytes(directory));
+        for (int i = 0; i < 20; i++)
+        {
+            assertEquals("value9-" + i, cache.get("key" + i, String.class));
+        }
+        cache.close();
+    }
+
+    private static long countSegmentBytes(File directory)
+    {
+        long bytes = 0;
+        for (File file : directory.listFiles((dir, name) -> name.startsWith("segment-")))
+        {
+            bytes += file.length();
+        }
+        return bytes;
+    }
+
+    @Test
+    public void testCorruptedEntry() throws Exception
+    {
+        File directory = Files.createTempDirectory("mappedSegmentCache")
+                              .toFile();
+
+        MappedSegmentCache cache = new MappedSegmentCache(directory);
+        cache.put("key0", "value0");
+        cache.put("key1", "value1");
+        cache.close();
+
+        // the first entry was not written completely before a crash
+        try (FileChannel channel = FileChannel.open(directory.toPath()
+                                                             .resolve("segment-000000.data"),
+                                                    StandardOpenOption.WRITE))
+        {
+            channel.write(ByteBuffer.allocate(8), 0);
+        }
+
+        MappedSegmentCache reopenedCache = new MappedSegmentCache(directory);
+        assertNull(reopenedCache.get("key0", String.class));
+        assertNull(reopenedCache.getType("key0"));
+        assertFalse(reopenedCache.contains("key0"));
+        assertEquals("value1", reopenedCache.get("key1", String.class));
+        reopenedCache.close();
+    }
+
+    @Test
+    public void testTruncatedSegment() throws Exception
+    {
+        File directory = Files.createTempDirectory("mappedSegmentCache")
+                              .toFile();
+
+        MappedSegmentCache cache = new MappedSegmentCache(directory);
+        for (int i = 0; i < 10; i++)
+        {
+            cache.put("key" + i, "value" + i);
+            assertEquals("value" + i, cache.get("key" + i, String.class));
+        }
+        cache.close();
+
+        // the last entry is lost, while its index record has been written
+        try (FileChannel channel = FileChannel.open(directory.toPath()
+                                                             .resolve("segment-000000.data"),
+                                                    StandardOpenOption.WRITE))
+        {
+            channel.truncate(channel.size() - 5);
+        }
+
+        MappedSegmentCache reopenedCache = new MappedSegmentCache(directory);
+        assertEquals("value0", reopenedCache.get("key0", String.class));
+        assertFalse(reopenedCache.contains("key9"));
+        assertNull(reopenedCache.get("key9", String.class));
+        reopenedCache.close();
+    }
+
+}
@@ -0,0 +1,67 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.rest.client.internal.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+import org.omnaest.utils.rest.client.internal.holder.RawResponse;
+
+public class OffHeapCacheTest
+{
+
+    @Test
+    public void testPutAndGet() throws Exception
+    {
+        OffHeapCache cache = new OffHeapCache(1024 * 1024);
+        cache.put("key1", "value1");
+        cache.put("key2", new RawResponse("application/json", "{}".getBytes()));
+        cache.put("key1", "value1b");
+
+        assertEquals("value1b", cache.get("key1", String.class));
+        assertEquals(String.class, cache.getType("key1"));
+        assertEquals("{}", cache.get("key2", RawResponse.class)
+                                .getBodyAsString(StandardCharsets.UTF_8));
+
+        cache.remove("key1");
+        assertFalse(cache.contains("key1"));
+        assertNull(cache.get("key1", String.class));
+    }
+
+    @Test
+    public void testBudget() throws Exception
+    {
+        OffHeapCache cache = new OffHeapCache(4096, 1024);
+        for (int i = 0; i < 1000; i++)
+        {
+            cache.put("key" + i, "value" + i);
+        }
+
+        assertEquals(4096, cache.getAllocatedBytes());
+        assertTrue(cache.size() < 1000);
+        assertEquals("value999", cache.get("key999", String.class));
+        assertFalse(cache.contains("key0"));
+
+        cache.put("large", new byte[2048]);
+        assertFalse(cache.contains("large"));
+    }
+
+}